@@ -0,0 +1,179 @@
+package com.alex323glo.tutor.h2db.part_2.benchmark;
+
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.dao.H2AccessTokenDAO;
+import com.alex323glo.tutor.h2db.part_2.dao.H2UserDAO;
+import com.alex323glo.tutor.h2db.part_2.dao.memory.InMemoryDAO;
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.User;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
+import com.alex323glo.tutor.h2db.part_2.pool.PooledConnection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Store of benchmark data, created from scratch for each trial (instead of hard-coded
+ * Data Base files of unit tests):
+ * <ul>
+ * <li>"mem" - in-memory H2 Data Base;</li>
+ * <li>"file" - H2 Data Base file in temp directory (deleted on close);</li>
+ * <li>"file-sync" - the same file, but each commit is written to file right away
+ * (WRITE_DELAY=0), as with durable commits;</li>
+ * <li>"memory" - InMemoryDAO (no Data Base at all).</li>
+ * </ul>
+ *
+ * @author alex323glo
+ * @version 1.0
+ */
+class BenchmarkDatabase implements AutoCloseable {
+
+    static final String USERS_TABLE = "users";
+    static final String ACCESS_TOKENS_TABLE = "access_tokens";
+    static final String USERNAME_PREFIX = "user_";
+    static final String PASSWORD = "password";
+
+    private static final int POOL_SIZE = 16;
+    private static final int BATCH_SIZE = 10_000;
+    private static final AtomicInteger DATABASE_NUMBER = new AtomicInteger();
+
+    private final String store;
+    private final ConnectionPool connectionPool;
+    private final File directory;
+
+    BenchmarkDatabase(String store) throws IOException {
+        this.store = store;
+        switch (store) {
+            case "mem":
+                directory = null;
+                connectionPool = new ConnectionPool("jdbc:h2:mem:benchmark" + DATABASE_NUMBER.incrementAndGet() +
+                        ";DB_CLOSE_DELAY=-1", "user", "pass", POOL_SIZE);
+                break;
+            case "file":
+            case "file-sync":
+                directory = Files.createTempDirectory("h2db-benchmark").toFile();
+                connectionPool = new ConnectionPool("jdbc:h2:" + new File(directory, "benchmark").getAbsolutePath() +
+                        (store.equals("file-sync") ? ";WRITE_DELAY=0" : ""), "user", "pass", POOL_SIZE);
+                break;
+            case "memory":
+                directory = null;
+                connectionPool = null;
+                break;
+            default:
+                throw new IllegalArgumentException("wrong store: " + store);
+        }
+    }
+
+    /**
+     * Returns pool of connections to H2 Data Base, or Null for "memory" store.
+     */
+    ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * Creates DAO (H2 DAO creates its table with H2SchemaManager).
+     */
+    DAO<String, User> createUserDAO() throws DAOException {
+        if (connectionPool == null) {
+            return new InMemoryDAO<>();
+        }
+        return new H2UserDAO(connectionPool, USERS_TABLE);
+    }
+
+    /**
+     * Creates DAO (H2 DAO creates its table with H2SchemaManager).
+     */
+    DAO<TokenId, AccessToken> createAccessTokenDAO() throws DAOException {
+        if (connectionPool == null) {
+            return new InMemoryDAO<>();
+        }
+        return new H2AccessTokenDAO(connectionPool, ACCESS_TOKENS_TABLE);
+    }
+
+    /**
+     * Creates users USERNAME_PREFIX + [0, count) (in batches).
+     */
+    static void fillUsers(DAO<String, User> userDAO, int count) throws DAOException {
+        Map<String, User> batch = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String username = USERNAME_PREFIX + i;
+            batch.put(username, new User(username, PASSWORD));
+            if (batch.size() == BATCH_SIZE || i == count - 1) {
+                userDAO.createAll(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Creates access tokens (in batches) of users USERNAME_PREFIX + [0, userCount).
+     *
+     * @return ids of created tokens.
+     */
+    static TokenId[] fillAccessTokens(DAO<TokenId, AccessToken> accessTokenDAO, int count, int userCount)
+            throws DAOException {
+        TokenId[] tokens = new TokenId[count];
+        Map<TokenId, AccessToken> batch = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            tokens[i] = new TokenId(i, ~i);
+            batch.put(tokens[i], new AccessToken(tokens[i], USERNAME_PREFIX + i % userCount,
+                    UserType.USER));
+            if (batch.size() == BATCH_SIZE || i == count - 1) {
+                accessTokenDAO.createAll(batch);
+                batch.clear();
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Drops Data Base (and deletes its files).
+     */
+    @Override
+    public void close() throws DAOException {
+        if (connectionPool == null) {
+            return;
+        }
+
+        try (PooledConnection connection = connectionPool.borrow();
+             Statement statement = connection.getConnection().createStatement()) {
+            statement.execute("SHUTDOWN");
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't shut down Data Base", e);
+        } finally {
+            connectionPool.close();
+            if (directory != null) {
+                delete(directory);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return store;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete()) {
+            // TODO row below could be replaced with logger
+            System.out.printf("BenchmarkDatabase: can't delete \"%s\"%n", file);
+        }
+    }
+}
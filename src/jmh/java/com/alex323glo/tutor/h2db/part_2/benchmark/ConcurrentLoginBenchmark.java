@@ -0,0 +1,97 @@
+package com.alex323glo.tutor.h2db.part_2.benchmark;
+
+import com.alex323glo.tutor.h2db.part_2.controller.AsyncMainController;
+import com.alex323glo.tutor.h2db.part_2.controller.AsyncMainControllerImpl;
+import com.alex323glo.tutor.h2db.part_2.controller.DAOExecutor;
+import com.alex323glo.tutor.h2db.part_2.controller.MainControllerImpl;
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.model.user.User;
+import com.alex323glo.tutor.h2db.part_2.util.VirtualThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares throughput of AsyncMainController on platform thread pool (DAOExecutor) and in
+ * virtual-thread-per-request mode: one operation is given number of concurrent logins.
+ * "virtual" mode fails on JDK older than 21 (run task with newer JDK, see build.gradle).
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see VirtualThreads
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ConcurrentLoginBenchmark {
+
+    private static final int USER_COUNT = 1000;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    /**
+     * Number of threads of DAOExecutor in "platform" mode.
+     */
+    @Param({"8"})
+    public int platformThreads;
+
+    @Param({"10000"})
+    public int logins;
+
+    private BenchmarkDatabase database;
+    private AutoCloseable executor;
+    private AsyncMainController asyncMainController;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase("mem");
+        DAO<String, User> userDAO = database.createUserDAO();
+        BenchmarkDatabase.fillUsers(userDAO, USER_COUNT);
+        MainControllerImpl mainController = new MainControllerImpl(userDAO, database.createAccessTokenDAO());
+
+        if (mode.equals("platform")) {
+            DAOExecutor daoExecutor = new DAOExecutor(platformThreads, logins);
+            executor = daoExecutor;
+            asyncMainController = new AsyncMainControllerImpl(mainController, daoExecutor);
+        } else {
+            ExecutorService virtualExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            executor = virtualExecutor::shutdown;
+            asyncMainController = new AsyncMainControllerImpl(mainController, virtualExecutor);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.close();
+        database.close();
+    }
+
+    @Benchmark
+    public void concurrentLogins() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[logins];
+        for (int i = 0; i < logins; i++) {
+            futures[i] = asyncMainController.login(BenchmarkDatabase.USERNAME_PREFIX + i % USER_COUNT,
+                    BenchmarkDatabase.PASSWORD);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+}
@@ -0,0 +1,116 @@
+package com.alex323glo.tutor.h2db.part_2.benchmark;
+
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.model.response.Response;
+import com.alex323glo.tutor.h2db.part_2.model.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks of DAO operations of users DAO (H2 or InMemoryDAO) with given number of records.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DAOBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"mem", "file", "memory"})
+    public String store;
+
+    @Param({"1000", "100000"})
+    public int tableSize;
+
+    private BenchmarkDatabase database;
+    private DAO<String, User> userDAO;
+    private final AtomicLong newUserNumber = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(store);
+        userDAO = database.createUserDAO();
+        BenchmarkDatabase.fillUsers(userDAO, tableSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public Response<User> read() {
+        return userDAO.read(randomUsername());
+    }
+
+    @Benchmark
+    public Response<User> readMissing() {
+        return userDAO.read("missing_" + ThreadLocalRandom.current().nextInt(tableSize));
+    }
+
+    @Benchmark
+    public Response<User> update() {
+        String username = randomUsername();
+        return userDAO.update(username, new User(username, BenchmarkDatabase.PASSWORD));
+    }
+
+    /**
+     * Creates new record and deletes it, so size of table doesn't change.
+     */
+    @Benchmark
+    public Response<User> createAndDelete() {
+        String username = "new_" + newUserNumber.incrementAndGet();
+        userDAO.create(username, new User(username, BenchmarkDatabase.PASSWORD));
+        return userDAO.delete(username);
+    }
+
+    @Benchmark
+    public Set<String> getKeyset() {
+        return userDAO.getKeyset();
+    }
+
+    @Benchmark
+    public Map<String, User> getAll() {
+        return userDAO.getAll();
+    }
+
+    @Benchmark
+    public void forEach(Blackhole blackhole) {
+        userDAO.forEach((username, user) -> blackhole.consume(user));
+    }
+
+    @Benchmark
+    public Map<String, User> readPage() {
+        return userDAO.readPage(randomUsername(), PAGE_SIZE);
+    }
+
+    private String randomUsername() {
+        return BenchmarkDatabase.USERNAME_PREFIX + ThreadLocalRandom.current().nextInt(tableSize);
+    }
+}
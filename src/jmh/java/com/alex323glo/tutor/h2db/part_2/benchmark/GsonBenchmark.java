@@ -0,0 +1,84 @@
+package com.alex323glo.tutor.h2db.part_2.benchmark;
+
+import com.alex323glo.tutor.h2db.part_2.model.page.Page;
+import com.alex323glo.tutor.h2db.part_2.model.user.User;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of Gson serialization of users and pages of users (as in MainController).
+ *
+ * @author alex323glo
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GsonBenchmark {
+
+    private static final Type USER_PAGE_TYPE = new TypeToken<Page<User>>() {}.getType();
+
+    @Param({"10", "100"})
+    public int pageSize;
+
+    private final Gson gson = new Gson();
+    private User user;
+    private String userJSON;
+    private Page<User> page;
+    private String pageJSON;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        user = new User(BenchmarkDatabase.USERNAME_PREFIX + 0, BenchmarkDatabase.PASSWORD, UserType.ROOT);
+        userJSON = gson.toJson(user, User.class);
+
+        Map<String, User> records = new LinkedHashMap<>();
+        for (int i = 0; i < pageSize; i++) {
+            String username = BenchmarkDatabase.USERNAME_PREFIX + i;
+            records.put(username, new User(username, BenchmarkDatabase.PASSWORD));
+        }
+        page = new Page<>(records, "next_cursor");
+        pageJSON = gson.toJson(page, USER_PAGE_TYPE);
+    }
+
+    @Benchmark
+    public String userToJSON() {
+        return gson.toJson(user, User.class);
+    }
+
+    @Benchmark
+    public User userFromJSON() {
+        return gson.fromJson(userJSON, User.class);
+    }
+
+    @Benchmark
+    public String pageToJSON() {
+        return gson.toJson(page, USER_PAGE_TYPE);
+    }
+
+    @Benchmark
+    public Page<User> pageFromJSON() {
+        return gson.fromJson(pageJSON, USER_PAGE_TYPE);
+    }
+}
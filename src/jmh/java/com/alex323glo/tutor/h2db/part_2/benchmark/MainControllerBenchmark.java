@@ -0,0 +1,97 @@
+package com.alex323glo.tutor.h2db.part_2.benchmark;
+
+import com.alex323glo.tutor.h2db.part_2.controller.MainController;
+import com.alex323glo.tutor.h2db.part_2.controller.MainControllerImpl;
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.User;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks of full MainController flows. Table size is number of users and of
+ * already issued access tokens, so it shows that login doesn't depend on number of tokens.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see MainController
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MainControllerBenchmark {
+
+    private static final String ROOT_USERNAME = "root";
+
+    @Param({"mem", "file", "memory"})
+    public String store;
+
+    @Param({"1000", "100000"})
+    public int tableSize;
+
+    private BenchmarkDatabase database;
+    private MainController mainController;
+    private String rootAccessToken;
+    private final AtomicLong newUserNumber = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(store);
+        DAO<String, User> userDAO = database.createUserDAO();
+        DAO<TokenId, AccessToken> accessTokenDAO = database.createAccessTokenDAO();
+        BenchmarkDatabase.fillUsers(userDAO, tableSize);
+        BenchmarkDatabase.fillAccessTokens(accessTokenDAO, tableSize, tableSize);
+        userDAO.create(ROOT_USERNAME, new User(ROOT_USERNAME, BenchmarkDatabase.PASSWORD, UserType.ROOT));
+
+        mainController = new MainControllerImpl(userDAO, accessTokenDAO);
+        rootAccessToken = mainController.login(ROOT_USERNAME, BenchmarkDatabase.PASSWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    /**
+     * Registers new user (so number of users grows during benchmark).
+     */
+    @Benchmark
+    public String register() {
+        return mainController.register("new_" + newUserNumber.incrementAndGet(), BenchmarkDatabase.PASSWORD);
+    }
+
+    /**
+     * Logs in and logs out, so number of access tokens doesn't change.
+     */
+    @Benchmark
+    public boolean loginLogout() {
+        String username = BenchmarkDatabase.USERNAME_PREFIX + ThreadLocalRandom.current().nextInt(tableSize);
+        return mainController.logout(mainController.login(username, BenchmarkDatabase.PASSWORD));
+    }
+
+    @Benchmark
+    public String getUserInfoAsJSON() {
+        return mainController.getUserInfoAsJSON(rootAccessToken);
+    }
+}
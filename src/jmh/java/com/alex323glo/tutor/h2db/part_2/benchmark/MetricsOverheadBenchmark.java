@@ -0,0 +1,175 @@
+package com.alex323glo.tutor.h2db.part_2.benchmark;
+
+import com.alex323glo.tutor.h2db.part_2.controller.MainController;
+import com.alex323glo.tutor.h2db.part_2.controller.MainControllerImpl;
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.metrics.LatencyHistogram;
+import com.alex323glo.tutor.h2db.part_2.metrics.MetricsDAO;
+import com.alex323glo.tutor.h2db.part_2.metrics.MetricsMainController;
+import com.alex323glo.tutor.h2db.part_2.metrics.MetricsRegistry;
+import com.alex323glo.tutor.h2db.part_2.model.response.Response;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.User;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of metrics layer: same DAO and controller calls with and without
+ * MetricsDAO/MetricsMainController decorators (timing each call or sampled calls),
+ * and cost of one histogram record().
+ * <p>
+ * Run-to-run error of H2 calls (several microseconds) is a few percent even with 5 forks,
+ * which is more than overhead to be shown, so difference of daoRead with and without
+ * metrics proves nothing by itself. Therefore decoratorRead measures absolute cost of
+ * MetricsDAO around DAO, which does nothing (with error of about a nanosecond), and
+ * overhead of H2 path is that cost divided by latency of H2 call.
+ * <p>
+ * Measured on 1 CPU (JDK 8, store "mem"): daoRead 5817 +- 267 ns, decoratorRead
+ * 4.1 ns without metrics, 125.8 +- 4.0 ns with "all" and 31.2 +- 1.4 ns with "sampled",
+ * i.e. ~2.1% overhead of H2 read with "all" and ~0.5% with "sampled". So 1% holds only
+ * for H2 paths (with "all" - only for calls longer than ~12 us), not for sub-microsecond DAOs.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see MetricsRegistry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(5)
+public class MetricsOverheadBenchmark {
+
+    private static final int USER_COUNT = 10_000;
+    private static final String ROOT_USERNAME = "root";
+    private static final int SAMPLE_INTERVAL = 16;
+
+    @Param({"mem", "memory"})
+    public String store;
+
+    /**
+     * "none" - no decorators, "all" - latency of each call, "sampled" - latency of 1/16 of calls.
+     */
+    @Param({"none", "all", "sampled"})
+    public String metrics;
+
+    private BenchmarkDatabase database;
+    private DAO<String, User> userDAO;
+    private MainController mainController;
+    private String rootAccessToken;
+    private DAO<String, User> constantDAO;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(store);
+        userDAO = database.createUserDAO();
+        DAO<TokenId, AccessToken> accessTokenDAO = database.createAccessTokenDAO();
+        BenchmarkDatabase.fillUsers(userDAO, USER_COUNT);
+        userDAO.create(ROOT_USERNAME, new User(ROOT_USERNAME, BenchmarkDatabase.PASSWORD, UserType.ROOT));
+
+        constantDAO = new ConstantDAO();
+        if (!metrics.equals("none")) {
+            MetricsRegistry registry = new MetricsRegistry(metrics.equals("sampled") ? SAMPLE_INTERVAL : 1);
+            constantDAO = new MetricsDAO<>(constantDAO, registry, "ConstantDAO");
+            userDAO = new MetricsDAO<>(userDAO, registry, "UserDAO");
+            accessTokenDAO = new MetricsDAO<>(accessTokenDAO, registry, "AccessTokenDAO");
+            mainController = new MetricsMainController(new MainControllerImpl(userDAO, accessTokenDAO), registry);
+        } else {
+            mainController = new MainControllerImpl(userDAO, accessTokenDAO);
+        }
+        rootAccessToken = mainController.login(ROOT_USERNAME, BenchmarkDatabase.PASSWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public Response<User> daoRead() {
+        return userDAO.read(BenchmarkDatabase.USERNAME_PREFIX + ThreadLocalRandom.current().nextInt(USER_COUNT));
+    }
+
+    @Benchmark
+    public Response<User> decoratorRead() {
+        return constantDAO.read(ROOT_USERNAME);
+    }
+
+    @Benchmark
+    public String getUserInfoAsJSON() {
+        return mainController.getUserInfoAsJSON(rootAccessToken);
+    }
+
+    @Benchmark
+    public boolean loginLogout() {
+        String username = BenchmarkDatabase.USERNAME_PREFIX + ThreadLocalRandom.current().nextInt(USER_COUNT);
+        return mainController.logout(mainController.login(username, BenchmarkDatabase.PASSWORD));
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(ThreadLocalRandom.current().nextInt(1_000_000));
+    }
+
+    /**
+     * DAO, which reads same response for any key, so it costs almost nothing.
+     */
+    private static class ConstantDAO implements DAO<String, User> {
+
+        private final Response<User> response =
+                new Response<>(ResponseStatus.OK, new User(ROOT_USERNAME, BenchmarkDatabase.PASSWORD, UserType.ROOT));
+
+        @Override
+        public Response create(String key, User value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Response<User> read(String key) {
+            return response;
+        }
+
+        @Override
+        public Response<User> update(String key, User value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Response<User> delete(String key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<String> getKeyset() {
+            return Collections.singleton(ROOT_USERNAME);
+        }
+
+        @Override
+        public Map<String, User> getAll() {
+            return Collections.singletonMap(ROOT_USERNAME, response.getBody());
+        }
+    }
+}
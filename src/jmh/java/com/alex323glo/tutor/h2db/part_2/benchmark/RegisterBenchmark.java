@@ -0,0 +1,77 @@
+package com.alex323glo.tutor.h2db.part_2.benchmark;
+
+import com.alex323glo.tutor.h2db.part_2.controller.MainController;
+import com.alex323glo.tutor.h2db.part_2.controller.MainControllerImpl;
+import com.alex323glo.tutor.h2db.part_2.pool.TransactionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares register() with users and access tokens in separate Data Bases ("separate"),
+ * in one Data Base with auto-commit of each write ("colocated") and in one Data Base
+ * with single transaction of TransactionManager ("transaction").
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see TransactionManager
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegisterBenchmark {
+
+    @Param({"separate", "colocated", "transaction"})
+    public String schema;
+
+    @Param({"mem", "file", "file-sync"})
+    public String store;
+
+    private BenchmarkDatabase userDatabase;
+    private BenchmarkDatabase accessTokenDatabase;
+    private MainController mainController;
+    private final AtomicLong newUserNumber = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        userDatabase = new BenchmarkDatabase(store);
+        accessTokenDatabase = schema.equals("separate") ? new BenchmarkDatabase(store) : userDatabase;
+
+        MainControllerImpl mainControllerImpl = new MainControllerImpl(userDatabase.createUserDAO(),
+                accessTokenDatabase.createAccessTokenDAO());
+        if (schema.equals("transaction")) {
+            mainControllerImpl.setTransactionManager(new TransactionManager(userDatabase.getConnectionPool()));
+        }
+        mainController = mainControllerImpl;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        userDatabase.close();
+        if (accessTokenDatabase != userDatabase) {
+            accessTokenDatabase.close();
+        }
+    }
+
+    @Benchmark
+    public String register() {
+        return mainController.register("new_" + newUserNumber.incrementAndGet(), BenchmarkDatabase.PASSWORD);
+    }
+}
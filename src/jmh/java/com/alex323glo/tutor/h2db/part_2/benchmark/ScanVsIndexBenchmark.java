@@ -0,0 +1,122 @@
+package com.alex323glo.tutor.h2db.part_2.benchmark;
+
+import com.alex323glo.tutor.h2db.part_2.dao.H2SchemaManager;
+import com.alex323glo.tutor.h2db.part_2.pool.PooledConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares lookups in access tokens table, created by H2SchemaManager (primary key and
+ * secondary indexes), with lookups in old ad hoc table without any keys or indexes (full scan).
+ * Plain JDBC is used, because H2 DAOs always create their tables with H2SchemaManager.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see H2SchemaManager
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScanVsIndexBenchmark {
+
+    private static final int TOKENS_PER_USER = 10;
+    private static final String TABLE = BenchmarkDatabase.ACCESS_TOKENS_TABLE;
+
+    private static final String CREATE_UNINDEXED_TABLE_QUERY = "CREATE TABLE " + TABLE +
+            "(token UUID NOT NULL, username VARCHAR(45) NOT NULL, type TINYINT NOT NULL, expires_at BIGINT)";
+    private static final String INSERT_QUERY = "INSERT INTO " + TABLE +
+            "(token, username, type, expires_at) VALUES (?, ?, 0, NULL)";
+    private static final String SELECT_BY_TOKEN_QUERY = "SELECT username, type, expires_at FROM " + TABLE +
+            " WHERE token = ?";
+    private static final String SELECT_BY_USERNAME_QUERY = "SELECT token FROM " + TABLE + " WHERE username = ?";
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    @Param({"10000", "100000"})
+    public int tableSize;
+
+    private BenchmarkDatabase database;
+    private UUID[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase("mem");
+        if (indexed) {
+            H2SchemaManager.createAccessTokenTable(database.getConnectionPool(), TABLE);
+        } else {
+            try (PooledConnection connection = database.getConnectionPool().borrow();
+                 Statement statement = connection.getConnection().createStatement()) {
+                statement.execute(CREATE_UNINDEXED_TABLE_QUERY);
+            }
+        }
+
+        tokens = new UUID[tableSize];
+        try (PooledConnection connection = database.getConnectionPool().borrow()) {
+            PreparedStatement statement = connection.prepare(INSERT_QUERY);
+            for (int i = 0; i < tableSize; i++) {
+                tokens[i] = UUID.randomUUID();
+                statement.setObject(1, tokens[i]);
+                statement.setString(2, BenchmarkDatabase.USERNAME_PREFIX + i / TOKENS_PER_USER);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public int selectByToken() throws SQLException {
+        return select(SELECT_BY_TOKEN_QUERY, tokens[ThreadLocalRandom.current().nextInt(tableSize)]);
+    }
+
+    @Benchmark
+    public int selectByUsername() throws SQLException {
+        return select(SELECT_BY_USERNAME_QUERY, BenchmarkDatabase.USERNAME_PREFIX +
+                ThreadLocalRandom.current().nextInt(tableSize / TOKENS_PER_USER));
+    }
+
+    /**
+     * Executes query and returns number of found rows.
+     */
+    private int select(String query, Object parameter) throws SQLException {
+        try (PooledConnection connection = database.getConnectionPool().borrow()) {
+            PreparedStatement statement = connection.prepare(query);
+            statement.setObject(1, parameter);
+            int count = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
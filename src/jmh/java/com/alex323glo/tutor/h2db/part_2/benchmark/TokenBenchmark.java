@@ -0,0 +1,88 @@
+package com.alex323glo.tutor.h2db.part_2.benchmark;
+
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.util.Generator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of access token generation: old generateUniqueToken() (with Set of all issued
+ * tokens, which login used to load from DAO), generateToken() and binary generateTokenId().
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see Generator
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int tokenSetSize;
+
+    private Set<String> tokenSet;
+    private TokenId tokenId;
+    private String tokenString;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tokenSet = new HashSet<>();
+        while (tokenSet.size() < tokenSetSize) {
+            tokenSet.add(Generator.generateToken());
+        }
+        tokenId = Generator.generateTokenId();
+        tokenString = tokenId.toString();
+    }
+
+    @Benchmark
+    public String generateUniqueToken() {
+        return Generator.generateUniqueToken(tokenSet);
+    }
+
+    /**
+     * Old login path as whole: copy of keyset (like getKeyset() of DAO) and unique token.
+     */
+    @Benchmark
+    public String generateUniqueTokenWithKeysetCopy() {
+        return Generator.generateUniqueToken(new HashSet<>(tokenSet));
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return Generator.generateToken();
+    }
+
+    @Benchmark
+    public TokenId generateTokenId() {
+        return Generator.generateTokenId();
+    }
+
+    @Benchmark
+    public TokenId parseTokenId() {
+        return TokenId.parse(tokenString);
+    }
+
+    @Benchmark
+    public String formatTokenId() {
+        return tokenId.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package com.alex323glo.tutor.h2db.part_2.benchmark;
+
+import com.alex323glo.tutor.h2db.part_2.controller.AsyncMainController;
+import com.alex323glo.tutor.h2db.part_2.controller.AsyncMainControllerImpl;
+import com.alex323glo.tutor.h2db.part_2.controller.DAOExecutor;
+import com.alex323glo.tutor.h2db.part_2.controller.MainControllerImpl;
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.dao.cache.WriteBehindDAO;
+import com.alex323glo.tutor.h2db.part_2.dao.cache.WriteBehindMode;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares login storm (given number of concurrent logins through AsyncMainController)
+ * with access tokens inserted one by one ("direct") and through WriteBehindDAO in each
+ * WriteBehindMode. Logins per second = logins / score.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see WriteBehindDAO
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class WriteBehindLoginBenchmark {
+
+    private static final int USER_COUNT = 1000;
+
+    @Param({"direct", "ASYNC", "GROUP_COMMIT"})
+    public String writeMode;
+
+    @Param({"mem", "file", "file-sync"})
+    public String store;
+
+    @Param({"8"})
+    public int threads;
+
+    @Param({"10000"})
+    public int logins;
+
+    private BenchmarkDatabase database;
+    private WriteBehindDAO<TokenId, AccessToken> writeBehindDAO;
+    private DAOExecutor executor;
+    private AsyncMainController asyncMainController;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = new BenchmarkDatabase(store);
+        DAO<String, User> userDAO = database.createUserDAO();
+        BenchmarkDatabase.fillUsers(userDAO, USER_COUNT);
+
+        DAO<TokenId, AccessToken> accessTokenDAO = database.createAccessTokenDAO();
+        if (!writeMode.equals("direct")) {
+            writeBehindDAO = new WriteBehindDAO<>(accessTokenDAO, WriteBehindMode.valueOf(writeMode));
+            accessTokenDAO = writeBehindDAO;
+        }
+
+        executor = new DAOExecutor(threads, logins);
+        asyncMainController = new AsyncMainControllerImpl(new MainControllerImpl(userDAO, accessTokenDAO), executor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.close();
+        if (writeBehindDAO != null) {
+            writeBehindDAO.close();
+            // TODO row below could be replaced with logger
+            System.out.printf("%nWriteBehindDAO: %d flushes, average batch %.1f, max batch %d%n",
+                    writeBehindDAO.getFlushCount(), writeBehindDAO.getAverageBatchSize(),
+                    writeBehindDAO.getMaxFlushedBatchSize());
+        }
+        database.close();
+    }
+
+    @Benchmark
+    public void concurrentLogins() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[logins];
+        for (int i = 0; i < logins; i++) {
+            futures[i] = asyncMainController.login(BenchmarkDatabase.USERNAME_PREFIX + i % USER_COUNT,
+                    BenchmarkDatabase.PASSWORD);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+}
@@ -0,0 +1,83 @@
+package com.alex323glo.tutor.h2db.part_2.controller;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous Main Application controller interface. Methods don't block caller:
+ * they return CompletableFuture, which is completed with result of MainController
+ * method of the same name, or completed exceptionally with AppException (also if
+ * request was rejected because of overload).
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see MainController
+ */
+public interface AsyncMainController {
+
+    /**
+     * Registers new user in system.
+     *
+     * @param username unique identifier for new user.
+     * @param password password for new user.
+     * @return future of String access token of registered (and automatically authorised) user.
+     *
+     * @see MainController#register(String, String)
+     */
+    CompletableFuture<String> register(String username, String password);
+
+    /**
+     * Authorises registered user in system.
+     *
+     * @param username unique identifier of existent user.
+     * @param password password of this existent user.
+     * @return future of String access token of authorised user.
+     *
+     * @see MainController#login(String, String)
+     */
+    CompletableFuture<String> login(String username, String password);
+
+    /**
+     * Removes access token from list (in system) of authorised users.
+     *
+     * @param accessToken token, which will be removed from system.
+     * @return future of true, if delete operation was successful, or false, if it wasn't.
+     *
+     * @see MainController#logout(String)
+     */
+    CompletableFuture<Boolean> logout(String accessToken);
+
+    /**
+     * Returns JSON object of personal single user data record, converted to String.
+     *
+     * @param accessToken unique access token.
+     * @return future of JSON object, represented as String.
+     *
+     * @see MainController#getUserInfoAsJSON(String)
+     */
+    CompletableFuture<String> getUserInfoAsJSON(String accessToken);
+
+    /**
+     * Returns JSON object of all user data records (accessed by unique ROOT access token),
+     * converted to String.
+     *
+     * @param accessToken unique access token, which gives root access.
+     * @return future of JSON object, represented as String.
+     *
+     * @see MainController#getAllUsersAsJSON(String)
+     */
+    CompletableFuture<String> getAllUsersAsJSON(String accessToken);
+
+    /**
+     * Returns JSON object of one page of user data records (accessed by unique ROOT access token).
+     *
+     * @param accessToken unique access token, which gives root access.
+     * @param cursor      opaque cursor of requested page, or Null for first page.
+     * @param pageSize    max number of records in page.
+     * @return future of JSON object, represented as String.
+     *
+     * @see MainController#getUsersPageAsJSON(String, String, int)
+     */
+    CompletableFuture<String> getUsersPageAsJSON(String accessToken, String cursor, int pageSize);
+
+}
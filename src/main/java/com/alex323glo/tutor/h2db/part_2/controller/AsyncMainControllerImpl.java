@@ -0,0 +1,112 @@
+package com.alex323glo.tutor.h2db.part_2.controller;
+
+import com.alex323glo.tutor.h2db.part_2.exception.AppException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous Main Application controller implementation. Calls of synchronous
+ * MainController are executed on DAO executor (usually bounded DAOExecutor), so
+ * any number of in-flight requests is served by few threads and connections.
+ * <p>
+ * Futures are completed on executor threads: dependent stages, which do more than
+ * trivial work, should be added with *Async methods of CompletableFuture.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see AsyncMainController
+ * @see DAOExecutor
+ */
+public class AsyncMainControllerImpl implements AsyncMainController {
+
+    private final MainController mainController;
+    private final Executor executor;
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * @param mainController synchronous controller.
+     * @param executor       executor of blocking calls of controller.
+     */
+    public AsyncMainControllerImpl(MainController mainController, Executor executor) {
+        if (mainController == null) {
+            throw new NullPointerException("mainController is null");
+        }
+        if (executor == null) {
+            throw new NullPointerException("executor is null");
+        }
+        this.mainController = mainController;
+        this.executor = executor;
+    }
+
+    public MainController getMainController() {
+        return mainController;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Returns number of requests, rejected by overloaded executor.
+     *
+     * @return number of rejected requests.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public CompletableFuture<String> register(String username, String password) {
+        return submit(() -> mainController.register(username, password));
+    }
+
+    @Override
+    public CompletableFuture<String> login(String username, String password) {
+        return submit(() -> mainController.login(username, password));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> logout(String accessToken) {
+        return submit(() -> mainController.logout(accessToken));
+    }
+
+    @Override
+    public CompletableFuture<String> getUserInfoAsJSON(String accessToken) {
+        return submit(() -> mainController.getUserInfoAsJSON(accessToken));
+    }
+
+    @Override
+    public CompletableFuture<String> getAllUsersAsJSON(String accessToken) {
+        return submit(() -> mainController.getAllUsersAsJSON(accessToken));
+    }
+
+    @Override
+    public CompletableFuture<String> getUsersPageAsJSON(String accessToken, String cursor, int pageSize) {
+        return submit(() -> mainController.getUsersPageAsJSON(accessToken, cursor, pageSize));
+    }
+
+    /**
+     * Executes call on executor. Rejected call gives future, completed with AppException.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            future.completeExceptionally(new AppException("executor is overloaded", e));
+        }
+        return future;
+    }
+}
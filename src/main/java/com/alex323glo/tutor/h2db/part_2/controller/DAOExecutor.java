@@ -0,0 +1,165 @@
+package com.alex323glo.tutor.h2db.part_2.controller;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dedicated bounded executor of blocking DAO calls: fixed number of (daemon) threads and
+ * bounded queue of waiting tasks. Task, which doesn't fit in full queue, is rejected with
+ * RejectedExecutionException, so overload is reported to caller instead of growing memory.
+ * Number of threads should be close to size of ConnectionPool: extra threads only wait
+ * for connections. Virtual threads (see VirtualThreads) don't change this: JDBC calls of H2
+ * still pin carrier threads.
+ * <p>
+ * Queue depth and time, which tasks waited in queue, are collected as metrics.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see AsyncMainController
+ * @see com.alex323glo.tutor.h2db.part_2.util.VirtualThreads
+ */
+public class DAOExecutor implements Executor, AutoCloseable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder startedCount = new LongAdder();
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    public DAOExecutor(int threadCount) {
+        this(threadCount, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param threadCount   number of threads.
+     * @param queueCapacity max number of tasks, which wait for free thread.
+     */
+    public DAOExecutor(int threadCount, int queueCapacity) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("wrong threadCount: " + threadCount);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("wrong queueCapacity: " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "dao-executor-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues task for execution.
+     *
+     * @param task blocking DAO work.
+     * @throws RejectedExecutionException if queue is full or executor is closed.
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("task is null");
+        }
+
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long waitNanos = System.nanoTime() - queuedAt;
+                startedCount.increment();
+                totalWaitNanos.add(waitNanos);
+                maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+                try {
+                    task.run();
+                } finally {
+                    completedCount.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            throw e;
+        }
+        submittedCount.increment();
+        maxQueueDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+    }
+
+    public int getThreadCount() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns number of tasks, which wait for free thread now.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    /**
+     * Returns average time, which started tasks waited in queue.
+     */
+    public double getAverageWaitNanos() {
+        long count = startedCount.sum();
+        return count == 0 ? 0 : (double) totalWaitNanos.sum() / count;
+    }
+
+    /**
+     * Stops accepting tasks and waits (up to 1 minute) until queued tasks are finished.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
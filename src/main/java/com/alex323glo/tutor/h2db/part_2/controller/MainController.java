@@ -2,6 +2,8 @@ package com.alex323glo.tutor.h2db.part_2.controller;
 
 import com.alex323glo.tutor.h2db.part_2.exception.AppException;
 
+import java.io.Writer;
+
 /**
  * Main Application controller interface.
  *
@@ -70,4 +72,33 @@ public interface MainController {
      */
     String getAllUsersAsJSON(String accessToken) throws AppException;
 
+    /**
+     * Writes JSON object of all user data records (accessed by unique ROOT access token)
+     * to writer. Records are streamed from DAO one by one, so memory usage doesn't depend
+     * on number of users. Writer is flushed, but not closed.
+     *
+     * @param accessToken unique access token, which gives access to all records
+     *                    of user data (gives root access).
+     * @param writer destination of JSON object.
+     * @return true, if JSON object was written, or false, if access token is not valid.
+     * @throws AppException if params don't pass validation or service has some problems
+     * with execution of this part of logic (check cause of thrown AppException).
+     */
+    boolean writeAllUsersAsJSON(String accessToken, Writer writer) throws AppException;
+
+    /**
+     * Returns JSON object of one page of user data records (accessed by unique ROOT access token),
+     * ordered by username: {"records": {username: user, ...}, "next": cursor}.
+     *
+     * @param accessToken unique access token, which gives access to all records
+     *                    of user data (gives root access).
+     * @param cursor opaque cursor of requested page (taken from "next" of previous page),
+     *               or Null for first page.
+     * @param pageSize max number of records in page.
+     * @return JSON object, represented as String ("next" is absent on the last page).
+     * @throws AppException if params don't pass validation or service has some problems
+     * with execution of this part of logic (check cause of thrown AppException).
+     */
+    String getUsersPageAsJSON(String accessToken, String cursor, int pageSize) throws AppException;
+
 }
@@ -1,23 +1,45 @@
 package com.alex323glo.tutor.h2db.part_2.controller;
 
 import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.dao.H2AccessTokenDAO;
+import com.alex323glo.tutor.h2db.part_2.dao.H2UserDAO;
 import com.alex323glo.tutor.h2db.part_2.exception.AppException;
 import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
 import com.alex323glo.tutor.h2db.part_2.exception.ValidationException;
+import com.alex323glo.tutor.h2db.part_2.model.page.Page;
 import com.alex323glo.tutor.h2db.part_2.model.response.Response;
 import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
 import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
 import com.alex323glo.tutor.h2db.part_2.model.user.User;
 import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
+import com.alex323glo.tutor.h2db.part_2.pool.TransactionManager;
+import com.alex323glo.tutor.h2db.part_2.util.PageCursor;
+import com.alex323glo.tutor.h2db.part_2.util.RevocationList;
+import com.alex323glo.tutor.h2db.part_2.util.TokenSigner;
 import com.google.gson.Gson;
-
+import com.google.gson.JsonIOException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import static com.alex323glo.tutor.h2db.part_2.util.Validator.*;
 import static com.alex323glo.tutor.h2db.part_2.util.Generator.*;
 
 /**
- * Main Application controller implementation.
+ * Main Application controller implementation. Access tokens are Strings only
+ * in this API: inside application they are binary TokenIds.
+ * <p>
+ * If users and access tokens are stored in one Data Base (co-located schema, see
+ * createColocated()), register() creates user and its access token inside one
+ * transaction of TransactionManager: single commit, and no user without token.
  *
  * @author alex323glo
  * @version 1.0
@@ -26,14 +48,44 @@ import static com.alex323glo.tutor.h2db.part_2.util.Generator.*;
  */
 public class MainControllerImpl implements MainController {
 
+    private static final int MAX_TOKEN_ATTEMPTS = 8;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Type USER_PAGE_TYPE = new TypeToken<Page<User>>() {}.getType();
+
+    private final Gson gson = new Gson();
+
     private DAO<String, User> userDAO;
-    private DAO<String, AccessToken> accessTokenDAO;
+    private DAO<TokenId, AccessToken> accessTokenDAO;
+    private volatile long tokenTtlMillis;
+    private volatile TokenSigner tokenSigner;
+    private volatile RevocationList revocationList;
+    private volatile TransactionManager transactionManager;
 
-    public MainControllerImpl(DAO<String, User> userDAO, DAO<String, AccessToken> accessTokenDAO) {
+    public MainControllerImpl(DAO<String, User> userDAO, DAO<TokenId, AccessToken> accessTokenDAO) {
         setUserDAO(userDAO);
         setAccessTokenDAO(accessTokenDAO);
     }
 
+    /**
+     * Creates controller in co-located schema mode: users and access tokens tables are
+     * created (if they don't exist) in one Data Base, and register() writes both of them
+     * with single commit.
+     *
+     * @param connectionPool       pool of connections to Data Base.
+     * @param userTableName        name of users table.
+     * @param accessTokenTableName name of access tokens table.
+     * @return new controller with TransactionManager of given pool.
+     * @throws DAOException if tables can't be created or have incompatible schema.
+     */
+    public static MainControllerImpl createColocated(ConnectionPool connectionPool, String userTableName,
+                                                     String accessTokenTableName) throws DAOException {
+        MainControllerImpl mainController = new MainControllerImpl(
+                new H2UserDAO(connectionPool, userTableName),
+                new H2AccessTokenDAO(connectionPool, accessTokenTableName));
+        mainController.setTransactionManager(new TransactionManager(connectionPool));
+        return mainController;
+    }
+
     public DAO<String, User> getUserDAO() {
         return userDAO;
     }
@@ -45,17 +97,83 @@ public class MainControllerImpl implements MainController {
         this.userDAO = userDAO;
     }
 
-    public DAO<String, AccessToken> getAccessTokenDAO() {
+    public DAO<TokenId, AccessToken> getAccessTokenDAO() {
         return accessTokenDAO;
     }
 
-    public void setAccessTokenDAO(DAO<String, AccessToken> accessTokenDAO) {
+    public void setAccessTokenDAO(DAO<TokenId, AccessToken> accessTokenDAO) {
         if (accessTokenDAO == null) {
             throw new NullPointerException("accessTokenDAO is null");
         }
         this.accessTokenDAO = accessTokenDAO;
     }
 
+    public long getTokenTtlMillis() {
+        return tokenTtlMillis;
+    }
+
+    /**
+     * Sets time to live of access tokens, created by register() and login().
+     * Expired tokens are rejected and later removed by AccessTokenSweeper.
+     *
+     * @param tokenTtlMillis time to live in milliseconds, or 0, if tokens never expire
+     *                       (not allowed for signed tokens).
+     * @see com.alex323glo.tutor.h2db.part_2.dao.AccessTokenSweeper
+     */
+    public void setTokenTtlMillis(long tokenTtlMillis) {
+        if (tokenTtlMillis < 0) {
+            throw new IllegalArgumentException("wrong tokenTtlMillis: " + tokenTtlMillis);
+        }
+        if (tokenTtlMillis == 0 && tokenSigner != null) {
+            throw new IllegalStateException("signed access tokens must expire");
+        }
+        this.tokenTtlMillis = tokenTtlMillis;
+    }
+
+    public TokenSigner getTokenSigner() {
+        return tokenSigner;
+    }
+
+    public RevocationList getRevocationList() {
+        return revocationList;
+    }
+
+    /**
+     * Switches register() and login() to signed access tokens, which carry username, type
+     * and expiration time and are verified without access token DAO. Logged out signed tokens
+     * are kept inside revocation list until they expire, so tokenTtlMillis must be set first.
+     * Opaque tokens, created earlier, are still accepted.
+     *
+     * @param tokenSigner    signer of access tokens, or Null to create opaque tokens again.
+     * @param revocationList list of revoked signed tokens (must not be Null, if tokenSigner is set).
+     * @throws IllegalStateException if tokenSigner is set, while tokenTtlMillis is 0.
+     */
+    public void setTokenSigner(TokenSigner tokenSigner, RevocationList revocationList) {
+        if (tokenSigner != null && revocationList == null) {
+            throw new NullPointerException("revocationList is null");
+        }
+        if (tokenSigner != null && tokenTtlMillis == 0) {
+            throw new IllegalStateException("signed access tokens must expire (tokenTtlMillis is 0)");
+        }
+        this.revocationList = revocationList;
+        this.tokenSigner = tokenSigner;
+    }
+
+    public TransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    /**
+     * Sets TransactionManager, which groups writes of register() into one transaction.
+     * Both DAOs must be H2 DAOs of its ConnectionPool: otherwise writes of other DAO
+     * aren't part of transaction.
+     *
+     * @param transactionManager manager of shared pool, or Null to auto-commit each write.
+     */
+    public void setTransactionManager(TransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
     /**
      * Registers new user in system.
      *
@@ -79,18 +197,11 @@ public class MainControllerImpl implements MainController {
         User newUser = new User(username, password);
 
         try {
-            Response response = userDAO.create(newUser.getUsername(), newUser);
-            if (response.getStatus().equals(ResponseStatus.KO)) {
-                // TODO row below could be replaced with logger
-                System.out.printf("MainController: User \"" + username + "\" already exists!");
-                return null;
+            TransactionManager manager = transactionManager;
+            if (manager == null) {
+                return createUser(newUser);
             }
-
-            String newToken = generateUniqueToken(accessTokenDAO.getKeyset());
-            AccessToken newAccessToken = new AccessToken(newToken, newUser.getUsername());
-            accessTokenDAO.create(newAccessToken.getToken(), newAccessToken);
-
-            return newToken;
+            return manager.execute(() -> createUser(newUser));
         } catch (DAOException e) {
             e.printStackTrace();
             throw new AppException("can't work with DAO", e);
@@ -134,11 +245,7 @@ public class MainControllerImpl implements MainController {
                 return null;
             }
 
-            String newToken = generateUniqueToken(accessTokenDAO.getKeyset());
-            AccessToken newAccessToken = new AccessToken(newToken, username, response.getBody().getUserType());
-            accessTokenDAO.create(newAccessToken.getToken(), newAccessToken);
-
-            return newToken;
+            return createAccessToken(username, response.getBody().getUserType());
         } catch (DAOException e) {
             e.printStackTrace();
             throw new AppException("can't work with DAO", e);
@@ -163,7 +270,18 @@ public class MainControllerImpl implements MainController {
         }
 
         try {
-            Response<AccessToken> response = accessTokenDAO.delete(accessToken);
+            TokenSigner signer = tokenSigner;
+            if (signer != null && TokenSigner.isSigned(accessToken)) {
+                AccessToken signedAccessToken = readSignedAccessToken(signer, accessToken);
+                return signedAccessToken != null && revocationList.revoke(signedAccessToken);
+            }
+
+            TokenId tokenId = parseTokenId(accessToken);
+            if (tokenId == null) {
+                return false;
+            }
+
+            Response<AccessToken> response = accessTokenDAO.delete(tokenId);
             if (response.getStatus().equals(ResponseStatus.KO)) {
                 // TODO row below could be replaced with logger
                 System.out.printf("MainController: AccessToken \"" + accessToken + "\" doesn't exists!");
@@ -171,6 +289,12 @@ public class MainControllerImpl implements MainController {
                 return false;
             }
 
+            if (response.getBody().isExpired(System.currentTimeMillis())) {
+                // TODO row below could be replaced with logger
+                System.out.printf("MainController: AccessToken \"" + accessToken + "\" is expired!");
+                return false;
+            }
+
             return true;
         } catch (DAOException e) {
             e.printStackTrace();
@@ -198,31 +322,22 @@ public class MainControllerImpl implements MainController {
         }
 
         try {
-            Response<AccessToken> accessTokenDAOResponse = accessTokenDAO.read(accessToken);
-            if (accessTokenDAOResponse.getStatus().equals(ResponseStatus.KO)) {
-                // TODO row below could be replaced with logger
-                System.out.printf("MainController: AccessToken \"" + accessToken + "\" doesn't exists!");
-                // TODO row below could return FAIL token instead of Null
-                return null;
-            }
-
-            if (!accessTokenDAOResponse.getBody().getType().equals(UserType.ROOT)) {
-                // TODO row below could be replaced with logger
-                System.out.printf("MainController: AccessToken \"" + accessToken + "\" doesn't have enough roots!");
+            AccessToken rootAccessToken = readRootAccessToken(accessToken);
+            if (rootAccessToken == null) {
                 // TODO row below could return FAIL token instead of Null
                 return null;
             }
 
-            Response<User> userDAOResponse = userDAO.read(accessTokenDAOResponse.getBody().getUsername());
+            Response<User> userDAOResponse = userDAO.read(rootAccessToken.getUsername());
             if (userDAOResponse.getStatus().equals(ResponseStatus.KO)) {
                 // TODO row below could be replaced with logger
                 System.out.printf("MainController: User \"" +
-                        accessTokenDAOResponse.getBody().getUsername() + "\" doesn't exists!");
+                        rootAccessToken.getUsername() + "\" doesn't exists!");
                 // TODO row below could return FAIL token instead of Null
                 return null;
             }
 
-            return new Gson().toJson(userDAOResponse.getBody(), User.class);
+            return gson.toJson(userDAOResponse.getBody(), User.class);
         } catch (DAOException e) {
             e.printStackTrace();
             throw new AppException("can't work with DAO", e);
@@ -241,34 +356,257 @@ public class MainControllerImpl implements MainController {
      */
     @Override
     public String getAllUsersAsJSON(String accessToken) throws AppException {
+        StringWriter writer = new StringWriter();
+        // TODO row below could return FAIL token instead of Null
+        return writeAllUsersAsJSON(accessToken, writer) ? writer.toString() : null;
+    }
+
+    /**
+     * Writes JSON object of all user data records (accessed by unique ROOT access token)
+     * to writer. Records are streamed from DAO one by one, so memory usage doesn't depend
+     * on number of users. Writer is flushed, but not closed.
+     *
+     * @param accessToken unique access token, which gives access to all records
+     *                    of user data (gives root access).
+     * @param writer      destination of JSON object.
+     * @return true, if JSON object was written, or false, if access token is not valid.
+     * @throws AppException if params don't pass validation or service has some problems
+     *                      with execution of this part of logic (check cause of thrown AppException).
+     */
+    @Override
+    public boolean writeAllUsersAsJSON(String accessToken, Writer writer) throws AppException {
         try {
             validateId(accessToken);
+            validateNotNull(writer);
         } catch (ValidationException e) {
             e.printStackTrace();
             throw new AppException("arguments didn't pass validation", e);
         }
 
         try {
-            Response<AccessToken> accessTokenDAOResponse = accessTokenDAO.read(accessToken);
-            if (accessTokenDAOResponse.getStatus().equals(ResponseStatus.KO)) {
-                // TODO row below could be replaced with logger
-                System.out.printf("MainController: AccessToken \"" + accessToken + "\" doesn't exists!");
-                // TODO row below could return FAIL token instead of Null
-                return null;
+            if (readRootAccessToken(accessToken) == null) {
+                return false;
             }
 
-            if (!accessTokenDAOResponse.getBody().getType().equals(UserType.ROOT)) {
-                // TODO row below could be replaced with logger
-                System.out.printf("MainController: AccessToken \"" + accessToken + "\" doesn't have enough roots!");
+            JsonWriter jsonWriter = gson.newJsonWriter(writer);
+            jsonWriter.beginObject();
+            userDAO.forEach((username, user) -> {
+                try {
+                    jsonWriter.name(username);
+                    gson.toJson(user, User.class, jsonWriter);
+                } catch (IOException e) {
+                    throw new JsonIOException(e);
+                }
+            });
+            jsonWriter.endObject();
+            jsonWriter.flush();
+
+            return true;
+        } catch (DAOException e) {
+            e.printStackTrace();
+            throw new AppException("can't work with DAO", e);
+        } catch (IOException | JsonIOException e) {
+            e.printStackTrace();
+            throw new AppException("can't write JSON", e);
+        }
+    }
+
+    /**
+     * Returns JSON object of one page of user data records (accessed by unique ROOT access token),
+     * ordered by username: {"records": {username: user, ...}, "next": cursor}.
+     *
+     * @param accessToken unique access token, which gives access to all records
+     *                    of user data (gives root access).
+     * @param cursor      opaque cursor of requested page (taken from "next" of previous page),
+     *                    or Null for first page.
+     * @param pageSize    max number of records in page.
+     * @return JSON object, represented as String ("next" is absent on the last page).
+     * @throws AppException if params don't pass validation or service has some problems
+     *                      with execution of this part of logic (check cause of thrown AppException).
+     */
+    @Override
+    public String getUsersPageAsJSON(String accessToken, String cursor, int pageSize) throws AppException {
+        String afterUsername;
+        try {
+            validateId(accessToken);
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                throw new ValidationException("pageSize is out of range [1, " + MAX_PAGE_SIZE + "]: " + pageSize);
+            }
+            afterUsername = cursor == null ? null : PageCursor.decode(cursor);
+        } catch (ValidationException e) {
+            e.printStackTrace();
+            throw new AppException("arguments didn't pass validation", e);
+        }
+
+        try {
+            if (readRootAccessToken(accessToken) == null) {
                 // TODO row below could return FAIL token instead of Null
                 return null;
             }
 
-            Map<String, User> userDAOResponse = userDAO.getAll();
-            return new Gson().toJson(userDAOResponse, Map.class);
+            // one extra record tells, if there is next page
+            Map<String, User> records = userDAO.readPage(afterUsername, pageSize + 1);
+            String next = null;
+            if (records.size() > pageSize) {
+                Map<String, User> pageRecords = new LinkedHashMap<>();
+                String lastUsername = null;
+                for (Map.Entry<String, User> record : records.entrySet()) {
+                    if (pageRecords.size() == pageSize) {
+                        break;
+                    }
+                    pageRecords.put(record.getKey(), record.getValue());
+                    lastUsername = record.getKey();
+                }
+                records = pageRecords;
+                next = PageCursor.encode(lastUsername);
+            }
+
+            return gson.toJson(new Page<>(records, next), USER_PAGE_TYPE);
         } catch (DAOException e) {
             e.printStackTrace();
             throw new AppException("can't work with DAO", e);
         }
     }
+
+    /**
+     * Reads access token and checks if it gives root access. Signed access token
+     * is verified without access token DAO.
+     *
+     * @param accessToken unique access token.
+     * @return AccessToken with ROOT type, or Null, if access token doesn't exist, is expired,
+     * revoked or doesn't give root access.
+     * @throws DAOException if DAO has some problems.
+     */
+    private AccessToken readRootAccessToken(String accessToken) throws DAOException {
+        AccessToken rootAccessToken;
+        TokenSigner signer = tokenSigner;
+        if (signer != null && TokenSigner.isSigned(accessToken)) {
+            rootAccessToken = readSignedAccessToken(signer, accessToken);
+            if (rootAccessToken == null) {
+                return null;
+            }
+        } else {
+            TokenId tokenId = parseTokenId(accessToken);
+            if (tokenId == null) {
+                return null;
+            }
+
+            Response<AccessToken> accessTokenDAOResponse = accessTokenDAO.read(tokenId);
+            if (accessTokenDAOResponse.getStatus().equals(ResponseStatus.KO)) {
+                // TODO row below could be replaced with logger
+                System.out.printf("MainController: AccessToken \"" + accessToken + "\" doesn't exists!");
+                return null;
+            }
+            rootAccessToken = accessTokenDAOResponse.getBody();
+        }
+
+        if (rootAccessToken.isExpired(System.currentTimeMillis())) {
+            // TODO row below could be replaced with logger
+            System.out.printf("MainController: AccessToken \"" + accessToken + "\" is expired!");
+            return null;
+        }
+
+        if (!rootAccessToken.getType().equals(UserType.ROOT)) {
+            // TODO row below could be replaced with logger
+            System.out.printf("MainController: AccessToken \"" + accessToken + "\" doesn't have enough roots!");
+            return null;
+        }
+
+        return rootAccessToken;
+    }
+
+    /**
+     * Converts String access token (from API) to TokenId.
+     *
+     * @param accessToken String access token.
+     * @return TokenId, or Null, if access token has wrong format.
+     */
+    private TokenId parseTokenId(String accessToken) {
+        TokenId tokenId = TokenId.parse(accessToken);
+        if (tokenId == null) {
+            // TODO row below could be replaced with logger
+            System.out.printf("MainController: AccessToken \"" + accessToken + "\" has wrong format!");
+        }
+        return tokenId;
+    }
+
+    /**
+     * Verifies signed access token and checks that it is neither expired nor revoked.
+     *
+     * @param signer      signer of access tokens.
+     * @param accessToken signed access token.
+     * @return content of signed access token, or Null, if it is not valid.
+     */
+    private AccessToken readSignedAccessToken(TokenSigner signer, String accessToken) {
+        AccessToken signedAccessToken = signer.verify(accessToken);
+        if (signedAccessToken == null) {
+            // TODO row below could be replaced with logger
+            System.out.printf("MainController: AccessToken \"" + accessToken + "\" has wrong signature!");
+            return null;
+        }
+
+        if (signedAccessToken.isExpired(System.currentTimeMillis())) {
+            // TODO row below could be replaced with logger
+            System.out.printf("MainController: AccessToken \"" + accessToken + "\" is expired!");
+            return null;
+        }
+
+        if (revocationList.isRevoked(signedAccessToken)) {
+            // TODO row below could be replaced with logger
+            System.out.printf("MainController: AccessToken \"" + accessToken + "\" is revoked!");
+            return null;
+        }
+
+        return signedAccessToken;
+    }
+
+    /**
+     * Creates user and its access token.
+     *
+     * @param newUser new user.
+     * @return String value of created access token, or Null, if user already exists.
+     * @throws DAOException if DAO has some problems.
+     */
+    private String createUser(User newUser) throws DAOException {
+        Response response = userDAO.create(newUser.getUsername(), newUser);
+        if (response.getStatus().equals(ResponseStatus.KO)) {
+            // TODO row below could be replaced with logger
+            System.out.printf("MainController: User \"" + newUser.getUsername() + "\" already exists!");
+            return null;
+        }
+
+        return createAccessToken(newUser.getUsername(), newUser.getUserType());
+    }
+
+    /**
+     * Creates new access token for user, which expires after tokenTtlMillis. If token signer
+     * is set, signed token is returned. Otherwise token uniqueness is enforced by
+     * access token store (create() returns KO on existent key), so new random
+     * token is generated and inserted again on conflict.
+     *
+     * @param username owner of new access token.
+     * @param userType type of owner.
+     * @return String value of created access token.
+     * @throws DAOException if DAO has some problems or unique token wasn't
+     *                      created after MAX_TOKEN_ATTEMPTS attempts.
+     */
+    private String createAccessToken(String username, UserType userType) throws DAOException {
+        long ttlMillis = tokenTtlMillis;
+        long expiresAt = ttlMillis == 0 ? 0 : System.currentTimeMillis() + ttlMillis;
+
+        TokenSigner signer = tokenSigner;
+        if (signer != null) {
+            // signed token isn't stored: its random id only identifies it inside revocation list
+            return signer.sign(new AccessToken(generateTokenId(), username, userType, expiresAt));
+        }
+
+        for (int attempt = 0; attempt < MAX_TOKEN_ATTEMPTS; attempt++) {
+            AccessToken newAccessToken = new AccessToken(generateTokenId(), username, userType, expiresAt);
+            Response response = accessTokenDAO.create(newAccessToken.getToken(), newAccessToken);
+            if (response.getStatus().equals(ResponseStatus.OK)) {
+                return newAccessToken.getToken().toString();
+            }
+        }
+        throw new DAOException("can't create unique access token for User \"" + username + "\"");
+    }
 }
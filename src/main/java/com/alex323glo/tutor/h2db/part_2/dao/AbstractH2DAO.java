@@ -0,0 +1,827 @@
+package com.alex323glo.tutor.h2db.part_2.dao;
+
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.response.Response;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
+import com.alex323glo.tutor.h2db.part_2.pool.PooledConnection;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Base DAO implementation for H2 Data Base tables with single-column primary key.
+ * Table is created (or verified, if it already exists) by subclass with
+ * createTable() when table name is set. Table must have primary key on key column:
+ * create() relies on it to reject existent keys in single INSERT statement.
+ * update() and delete() lock the row (SELECT ... FOR UPDATE) and change it inside
+ * one transaction, so returned old value is exactly the value, which was replaced.
+ * All operations are executed as parameterized PreparedStatements, taken
+ * from per-connection StatementCache, so H2 parses and plans each query only once.
+ * Each operation borrows its own connection from ConnectionPool, so DAO instance
+ * can be used by many threads concurrently.
+ * <p>
+ * Subclasses describe table columns and mapping between table row and value.
+ *
+ * @param <K> type of key (content of key column).
+ * @param <V> type of stored value.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO
+ * @see ConnectionPool
+ */
+public abstract class AbstractH2DAO<K, V> implements DAO<K, V> {
+
+    private static final String DUPLICATE_KEY_SQL_STATE = "23505";    // unique constraint violation
+
+    private static final String SELECT_QUERY_TEMPLATE = "SELECT %s FROM %s WHERE %s=?";          // (columns, table, key)
+    private static final String INSERT_QUERY_TEMPLATE =                                          // (table, columns, params, table, key)
+            "INSERT INTO %s(%s) SELECT %s FROM DUAL WHERE NOT EXISTS(SELECT 1 FROM %s WHERE %s=?)";
+    private static final String UPDATE_QUERY_TEMPLATE = "UPDATE %s SET %s WHERE %s=?";           // (table, assignments, key)
+    private static final String DELETE_QUERY_TEMPLATE = "DELETE FROM %s WHERE %s=?";             // (table, key)
+    private static final String SELECT_ALL_QUERY_TEMPLATE = "SELECT %s FROM %s";                 // (columns, table)
+    private static final String COUNT_QUERY_TEMPLATE = "SELECT COUNT(*) FROM %s";                // (table)
+    private static final String SELECT_PAGE_QUERY_TEMPLATE = "SELECT %s FROM %s ORDER BY %s LIMIT ?";            // (columns, table, key)
+    private static final String SELECT_NEXT_PAGE_QUERY_TEMPLATE = "SELECT %s FROM %s WHERE %s>? ORDER BY %s LIMIT ?"; // (columns, table, key, key)
+    private static final String SELECT_IN_QUERY_TEMPLATE = "SELECT %s FROM %s WHERE %s IN(%s)";  // (columns, table, key, params)
+    private static final String DELETE_IN_QUERY_TEMPLATE = "DELETE FROM %s WHERE %s IN(%s)";     // (table, key, params)
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private ConnectionPool connectionPool;
+    private String tableName;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+
+    private String selectQuery;
+    private String selectForUpdateQuery;
+    private String insertQuery;
+    private String updateQuery;
+    private String deleteQuery;
+    private String selectKeysQuery;
+    private String selectAllQuery;
+    private String countQuery;
+    private String selectInQuery;
+    private String selectInForUpdateQuery;
+    private String deleteInQuery;
+    private String selectPageQuery;
+    private String selectNextPageQuery;
+
+    /**
+     * Unit of SQL work, executed on borrowed connection.
+     *
+     * @param <T> type of work result.
+     */
+    protected interface SQLWork<T> {
+        T execute(PooledConnection connection) throws SQLException;
+    }
+
+    /**
+     * Handler of single ResultSet row.
+     */
+    private interface RowHandler {
+        void handle(ResultSet resultSet) throws SQLException;
+    }
+
+    protected AbstractH2DAO(ConnectionPool connectionPool, String tableName) {
+        this.setConnectionPool(connectionPool);
+        this.setTableName(tableName);
+    }
+
+    /**
+     * Returns names of table columns. Key column must be the first one.
+     *
+     * @return not empty array of column names.
+     */
+    protected abstract String[] getColumns();
+
+    /**
+     * Returns key of value (content of key column).
+     *
+     * @param value stored value.
+     * @return key.
+     */
+    protected abstract K getKey(V value);
+
+    /**
+     * Reads value from current row of ResultSet.
+     *
+     * @param resultSet ResultSet, positioned on row with all columns from getColumns().
+     * @return value, read from row.
+     * @throws SQLException if row can't be read.
+     */
+    protected abstract V readRow(ResultSet resultSet) throws SQLException;
+
+    /**
+     * Binds all columns (in getColumns() order) of row as statement parameters.
+     *
+     * @param statement PreparedStatement.
+     * @param index     index of first parameter, bound to key column.
+     * @param key       content of key column.
+     * @param value     value, which will be stored inside row.
+     * @throws SQLException if parameters can't be bound.
+     */
+    protected abstract void writeRow(PreparedStatement statement, int index, K key, V value)
+            throws SQLException;
+
+    /**
+     * Binds key as statement parameter.
+     *
+     * @param statement PreparedStatement.
+     * @param index     index of parameter.
+     * @param key       content of key column.
+     * @throws SQLException if parameter can't be bound.
+     */
+    protected abstract void setKey(PreparedStatement statement, int index, K key) throws SQLException;
+
+    /**
+     * Reads key from column of current row of ResultSet.
+     *
+     * @param resultSet ResultSet, positioned on row.
+     * @param index     index of key column.
+     * @return key, read from row.
+     * @throws SQLException if key can't be read.
+     */
+    protected abstract K readKey(ResultSet resultSet, int index) throws SQLException;
+
+    /**
+     * Creates table (if it doesn't exist) and verifies its schema.
+     *
+     * @param connectionPool pool of connections to Data Base.
+     * @param tableName      name of table.
+     * @throws DAOException if table can't be created or existent table has incompatible schema.
+     * @see H2SchemaManager
+     */
+    protected abstract void createTable(ConnectionPool connectionPool, String tableName) throws DAOException;
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    public void setConnectionPool(ConnectionPool connectionPool) throws DAOException {
+        if (connectionPool == null) {
+            throw new DAOException("connectionPool is null");
+        }
+        this.connectionPool = connectionPool;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) throws DAOException {
+        if (tableName == null || tableName.length() < 1) {
+            throw new DAOException("wrong tableName: " + tableName);
+        }
+        createTable(connectionPool, tableName);
+        this.tableName = tableName;
+
+        String[] columns = getColumns();
+        String keyColumn = columns[0];
+        String columnList = join(columns, "%s", ", ");
+
+        selectQuery = String.format(SELECT_QUERY_TEMPLATE, columnList, tableName, keyColumn);
+        selectForUpdateQuery = selectQuery + " FOR UPDATE";
+        insertQuery = String.format(INSERT_QUERY_TEMPLATE,
+                tableName, columnList, join(columns, "?", ", "), tableName, keyColumn);
+        updateQuery = String.format(UPDATE_QUERY_TEMPLATE, tableName, join(columns, "%s=?", ", "), keyColumn);
+        deleteQuery = String.format(DELETE_QUERY_TEMPLATE, tableName, keyColumn);
+        selectKeysQuery = String.format(SELECT_ALL_QUERY_TEMPLATE, keyColumn, tableName);
+        selectAllQuery = String.format(SELECT_ALL_QUERY_TEMPLATE, columnList, tableName);
+        countQuery = String.format(COUNT_QUERY_TEMPLATE, tableName);
+        selectPageQuery = String.format(SELECT_PAGE_QUERY_TEMPLATE, columnList, tableName, keyColumn);
+        selectNextPageQuery = String.format(SELECT_NEXT_PAGE_QUERY_TEMPLATE, columnList, tableName, keyColumn, keyColumn);
+        buildBatchQueries();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets max number of records, which are sent to Data Base in single JDBC batch
+     * (or single IN(...) list) by createAll(), readAll(), updateAll() and deleteAll().
+     *
+     * @param batchSize positive batch size.
+     * @throws DAOException if batchSize is not positive.
+     */
+    public void setBatchSize(int batchSize) throws DAOException {
+        if (batchSize < 1) {
+            throw new DAOException("wrong batchSize: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        buildBatchQueries();
+    }
+
+    /**
+     * Creates new record.
+     *
+     * @param key   unique identifier of new record.
+     * @param value data, which will be stored inside new record.
+     * @return Response object with OK status (if operation was successful) and
+     * Null body.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see Response
+     * @see DAOException
+     */
+    @Override
+    public Response create(K key, V value) throws DAOException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            // single statement: existent key gives 0 inserted rows, while concurrent
+            // insert of the same key is rejected by primary key constraint
+            PreparedStatement statement = connection.prepare(insertQuery);
+            writeRow(statement, 1, key, value);
+            setKey(statement, getColumns().length + 1, key);
+
+            return new Response(statement.executeUpdate() == 1 ? ResponseStatus.OK : ResponseStatus.KO);
+        } catch (SQLException e) {
+            if (isDuplicateKey(e)) {
+                return new Response(ResponseStatus.KO);
+            }
+            e.printStackTrace();
+            throw new DAOException("can't execute SQL", e);
+        }
+    }
+
+    /**
+     * Reads existent record.
+     *
+     * @param key unique identifier of existent record.
+     * @return Response object with OK status and not Null body (data, stored inside this
+     * record), if operation was successful, or Response object with KO status and Null body,
+     * if record with such key doesn't exist.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see Response
+     * @see DAOException
+     */
+    @Override
+    public Response<V> read(K key) throws DAOException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            V value = selectByKey(connection, key);
+            if (value == null) {
+                return new Response<V>(ResponseStatus.KO);
+            }
+
+            return new Response<V>(ResponseStatus.OK, value);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't execute SQL", e);
+        }
+    }
+
+    /**
+     * Updates data of existent record.
+     *
+     * @param key   unique identifier of existent record.
+     * @param value new data, which will be stored inside existent record.
+     * @return Response object with OK status and not Null body (old data,
+     * stored inside existent record before this update() operation was carried out),
+     * if operation was successful, or Response object with KO status and Null body,
+     * if record with such key doesn't exist.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see Response
+     * @see DAOException
+     */
+    @Override
+    public Response<V> update(K key, V value) throws DAOException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            return executeAtomically(connection, lockedConnection -> {
+                V oldValue = selectByKeyForUpdate(lockedConnection, key);
+                if (oldValue == null) {
+                    return new Response<V>(ResponseStatus.KO);
+                }
+
+                PreparedStatement statement = lockedConnection.prepare(updateQuery);
+                writeRow(statement, 1, getKey(value), value);
+                setKey(statement, getColumns().length + 1, key);
+                statement.executeUpdate();
+
+                return new Response<V>(ResponseStatus.OK, oldValue);
+            });
+        } catch (SQLException e) {
+            if (isDuplicateKey(e)) {
+                // new key of record is already used by another record
+                return new Response<V>(ResponseStatus.KO);
+            }
+            e.printStackTrace();
+            throw new DAOException("can't execute SQL", e);
+        }
+    }
+
+    /**
+     * Deletes existent record.
+     *
+     * @param key unique identifier of existent record.
+     * @return Response object with OK status and not Null body (old data,
+     * stored inside existent record before this delete() operation was carried out),
+     * if operation was successful, or Response object with KO status and Null body,
+     * if record with such key doesn't exist.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see Response
+     * @see DAOException
+     */
+    @Override
+    public Response<V> delete(K key) throws DAOException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            return executeAtomically(connection, lockedConnection -> {
+                V removedValue = selectByKeyForUpdate(lockedConnection, key);
+                if (removedValue == null) {
+                    return new Response<V>(ResponseStatus.KO);
+                }
+
+                PreparedStatement statement = lockedConnection.prepare(deleteQuery);
+                setKey(statement, 1, key);
+                statement.executeUpdate();
+
+                return new Response<V>(ResponseStatus.OK, removedValue);
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't execute SQL", e);
+        }
+    }
+
+    /**
+     * Gets Set of keys of all existent records.
+     *
+     * @return not Null Set of unique records' identifiers.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see DAOException
+     */
+    @Override
+    public Set<K> getKeyset() throws DAOException {
+        Set<K> resultKeySet = new HashSet<>();
+        forEachKey(resultKeySet::add);
+        return resultKeySet;
+    }
+
+    /**
+     * Get all existent records as Map of K-V records.
+     *
+     * @return not Null Map, made of key-value records.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see DAOException
+     */
+    @Override
+    public Map<K, V> getAll() throws DAOException {
+        Map<K, V> resultMap = new HashMap<>();
+        forEach(resultMap::put);
+        return resultMap;
+    }
+
+    /**
+     * Streams keys of all existent records to action with forward-only ResultSet,
+     * fetched by fetchSize rows. Connection is held until scan is finished.
+     *
+     * @param action action, performed for each key.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see DAOException
+     */
+    @Override
+    public void forEachKey(Consumer<? super K> action) throws DAOException {
+        scan(selectKeysQuery, resultSet -> action.accept(readKey(resultSet, 1)));
+    }
+
+    /**
+     * Streams all existent records to action with forward-only ResultSet,
+     * fetched by fetchSize rows. Connection is held until scan is finished.
+     *
+     * @param action action, performed for each key-value record.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see DAOException
+     */
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) throws DAOException {
+        scan(selectAllQuery, resultSet -> {
+            V value = readRow(resultSet);
+            action.accept(getKey(value), value);
+        });
+    }
+
+    /**
+     * Counts existent records.
+     *
+     * @return number of records inside table.
+     * @throws DAOException if DAO has some problems with execution of this part of logic
+     *                      (check cause of thrown DAOException).
+     * @see DAOException
+     */
+    public long count() throws DAOException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            try (ResultSet resultSet = connection.prepare(countQuery).executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't execute SQL", e);
+        }
+    }
+
+    /**
+     * Checks if SQLException was caused by violation of primary key (or other unique) constraint.
+     *
+     * @param e thrown SQLException.
+     * @return true, if record with such key already exists.
+     */
+    protected static boolean isDuplicateKey(SQLException e) {
+        return DUPLICATE_KEY_SQL_STATE.equals(e.getSQLState());
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets number of rows, fetched from Data Base at once by forEach() and forEachKey() scans
+     * (matters for client/server connections). Embedded H2 materializes whole query result
+     * unless LAZY_QUERY_EXECUTION=1 is set in connection URL.
+     *
+     * @param fetchSize positive fetch size.
+     * @throws DAOException if fetchSize is not positive.
+     */
+    public void setFetchSize(int fetchSize) throws DAOException {
+        if (fetchSize < 1) {
+            throw new DAOException("wrong fetchSize: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Creates new records in batches of batchSize records. Each batch is executed
+     * as single JDBC batch inside one transaction.
+     *
+     * @param records key-value records, which will be created.
+     * @return not Null Map of create(K, V)-like Responses, in order of records.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see Response
+     * @see DAOException
+     */
+    @Override
+    public Map<K, Response> createAll(Map<K, V> records) throws DAOException {
+        List<Map.Entry<K, V>> entries = new ArrayList<>(records.entrySet());
+        Map<K, Response> responses = new LinkedHashMap<>();
+
+        try (PooledConnection connection = connectionPool.borrow()) {
+            for (List<Map.Entry<K, V>> chunk : split(entries, batchSize)) {
+                int[] updateCounts = executeAtomically(connection, batchConnection -> {
+                    PreparedStatement statement = batchConnection.prepare(insertQuery);
+                    for (Map.Entry<K, V> entry : chunk) {
+                        writeRow(statement, 1, entry.getKey(), entry.getValue());
+                        setKey(statement, getColumns().length + 1, entry.getKey());
+                        statement.addBatch();
+                    }
+                    return executeBatch(statement);
+                });
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    responses.put(chunk.get(i).getKey(),
+                            new Response(updateCounts[i] == 1 ? ResponseStatus.OK : ResponseStatus.KO));
+                }
+            }
+
+            return responses;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't execute SQL", e);
+        }
+    }
+
+    /**
+     * Reads existent records with one IN(...) query per batchSize keys.
+     *
+     * @param keys unique identifiers of existent records.
+     * @return not Null Map of read(K)-like Responses, in order of keys.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see Response
+     * @see DAOException
+     */
+    @Override
+    public Map<K, Response<V>> readAll(Collection<K> keys) throws DAOException {
+        List<K> keyList = new ArrayList<>(new LinkedHashSet<>(keys));
+        Map<K, Response<V>> responses = new LinkedHashMap<>();
+
+        try (PooledConnection connection = connectionPool.borrow()) {
+            for (List<K> chunk : split(keyList, batchSize)) {
+                Map<K, V> values = selectByKeys(connection, selectInQuery, chunk);
+                for (K key : chunk) {
+                    responses.put(key, toResponse(values.get(key)));
+                }
+            }
+
+            return responses;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't execute SQL", e);
+        }
+    }
+
+    /**
+     * Updates existent records in batches of batchSize records. Rows of each batch are
+     * locked with one IN(...) query and then updated with single JDBC batch inside
+     * one transaction.
+     *
+     * @param records key-value records, where key identifies existent record and value is its new data.
+     * @return not Null Map of update(K, V)-like Responses (with old data), in order of records.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see Response
+     * @see DAOException
+     */
+    @Override
+    public Map<K, Response<V>> updateAll(Map<K, V> records) throws DAOException {
+        List<Map.Entry<K, V>> entries = new ArrayList<>(records.entrySet());
+        Map<K, Response<V>> responses = new LinkedHashMap<>();
+
+        try (PooledConnection connection = connectionPool.borrow()) {
+            for (List<Map.Entry<K, V>> chunk : split(entries, batchSize)) {
+                responses.putAll(executeAtomically(connection, batchConnection -> {
+                    List<K> chunkKeys = new ArrayList<>();
+                    for (Map.Entry<K, V> entry : chunk) {
+                        chunkKeys.add(entry.getKey());
+                    }
+                    Map<K, V> oldValues = selectByKeys(batchConnection, selectInForUpdateQuery, chunkKeys);
+
+                    List<Map.Entry<K, V>> existentEntries = new ArrayList<>();
+                    PreparedStatement statement = batchConnection.prepare(updateQuery);
+                    for (Map.Entry<K, V> entry : chunk) {
+                        if (oldValues.containsKey(entry.getKey())) {
+                            writeRow(statement, 1, getKey(entry.getValue()), entry.getValue());
+                            setKey(statement, getColumns().length + 1, entry.getKey());
+                            statement.addBatch();
+                            existentEntries.add(entry);
+                        }
+                    }
+                    int[] updateCounts = existentEntries.isEmpty() ? new int[0] : executeBatch(statement);
+
+                    Map<K, Response<V>> chunkResponses = new LinkedHashMap<>();
+                    for (K key : chunkKeys) {
+                        chunkResponses.put(key, new Response<V>(ResponseStatus.KO));
+                    }
+                    for (int i = 0; i < existentEntries.size(); i++) {
+                        if (updateCounts[i] != Statement.EXECUTE_FAILED) {
+                            K key = existentEntries.get(i).getKey();
+                            chunkResponses.put(key, new Response<V>(ResponseStatus.OK, oldValues.get(key)));
+                        }
+                    }
+                    return chunkResponses;
+                }));
+            }
+
+            return responses;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't execute SQL", e);
+        }
+    }
+
+    /**
+     * Deletes existent records in batches of batchSize keys. Rows of each batch are
+     * locked and then deleted with two IN(...) statements inside one transaction.
+     *
+     * @param keys unique identifiers of existent records.
+     * @return not Null Map of delete(K)-like Responses (with removed data), in order of keys.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see Response
+     * @see DAOException
+     */
+    @Override
+    public Map<K, Response<V>> deleteAll(Collection<K> keys) throws DAOException {
+        List<K> keyList = new ArrayList<>(new LinkedHashSet<>(keys));
+        Map<K, Response<V>> responses = new LinkedHashMap<>();
+
+        try (PooledConnection connection = connectionPool.borrow()) {
+            for (List<K> chunk : split(keyList, batchSize)) {
+                Map<K, V> removedValues = executeAtomically(connection, batchConnection -> {
+                    Map<K, V> values = selectByKeys(batchConnection, selectInForUpdateQuery, chunk);
+                    if (!values.isEmpty()) {
+                        PreparedStatement statement = batchConnection.prepare(deleteInQuery);
+                        bindKeys(statement, 1, chunk);
+                        statement.executeUpdate();
+                    }
+                    return values;
+                });
+
+                for (K key : chunk) {
+                    responses.put(key, toResponse(removedValues.get(key)));
+                }
+            }
+
+            return responses;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't execute SQL", e);
+        }
+    }
+
+    /**
+     * Executes work as single transaction: commits it if work was successful, or rolls
+     * it back otherwise. If connection is already inside transaction (auto-commit mode is off),
+     * work just joins it.
+     *
+     * @param connection borrowed connection.
+     * @param work       SQL work, executed on connection.
+     * @param <T>        type of work result.
+     * @return result of work.
+     * @throws SQLException if work or transaction control failed.
+     */
+    protected static <T> T executeAtomically(PooledConnection connection, SQLWork<T> work) throws SQLException {
+        Connection sqlConnection = connection.getConnection();
+        if (!sqlConnection.getAutoCommit()) {
+            return work.execute(connection);
+        }
+
+        sqlConnection.setAutoCommit(false);
+        try {
+            T result = work.execute(connection);
+            sqlConnection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            sqlConnection.rollback();
+            throw e;
+        } finally {
+            sqlConnection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Reads page of records, ordered by key, with range scan of primary key index
+     * (WHERE key > afterKey ORDER BY key LIMIT pageSize), so cost of page doesn't
+     * depend on its depth.
+     *
+     * @param afterKey key of last record of previous page, or Null for first page.
+     * @param pageSize max number of records in page.
+     * @return not Null Map of records, ordered by key (empty, if there are no more records).
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     *                      with execution of this part of logic (check cause of thrown DAOException).
+     * @see DAOException
+     */
+    @Override
+    public Map<K, V> readPage(K afterKey, int pageSize) throws DAOException {
+        if (pageSize < 1) {
+            throw new DAOException("wrong pageSize: " + pageSize);
+        }
+
+        try (PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement;
+            if (afterKey == null) {
+                statement = connection.prepare(selectPageQuery);
+                statement.setInt(1, pageSize);
+            } else {
+                statement = connection.prepare(selectNextPageQuery);
+                setKey(statement, 1, afterKey);
+                statement.setInt(2, pageSize);
+            }
+
+            Map<K, V> page = new LinkedHashMap<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    V value = readRow(resultSet);
+                    page.put(getKey(value), value);
+                }
+            }
+            return page;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't execute SQL", e);
+        }
+    }
+
+    private void scan(String query, RowHandler rowHandler) throws DAOException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare(query);
+            statement.setFetchSize(fetchSize);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rowHandler.handle(resultSet);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't execute SQL", e);
+        }
+    }
+
+    private void buildBatchQueries() {
+        String[] columns = getColumns();
+        String keyColumn = columns[0];
+        String params = join(new String[batchSize], "?", ", ");
+
+        selectInQuery = String.format(SELECT_IN_QUERY_TEMPLATE, join(columns, "%s", ", "), tableName, keyColumn, params);
+        selectInForUpdateQuery = selectInQuery + " FOR UPDATE";
+        deleteInQuery = String.format(DELETE_IN_QUERY_TEMPLATE, tableName, keyColumn, params);
+    }
+
+    /**
+     * Selects records by IN(...) query, which has batchSize key params.
+     * If there are less keys than params, last key is repeated, so one
+     * cached statement serves all batches.
+     */
+    private Map<K, V> selectByKeys(PooledConnection connection, String query, List<K> keys)
+            throws SQLException {
+        PreparedStatement statement = connection.prepare(query);
+        bindKeys(statement, 1, keys);
+
+        Map<K, V> values = new HashMap<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                V value = readRow(resultSet);
+                values.put(getKey(value), value);
+            }
+        }
+        return values;
+    }
+
+    private void bindKeys(PreparedStatement statement, int index, List<K> keys) throws SQLException {
+        for (int i = 0; i < batchSize; i++) {
+            setKey(statement, index + i, keys.get(Math.min(i, keys.size() - 1)));
+        }
+    }
+
+    /**
+     * Executes JDBC batch. Entries, rejected by primary key (or other unique) constraint,
+     * get EXECUTE_FAILED update count, while other errors are thrown.
+     */
+    private static int[] executeBatch(PreparedStatement statement) throws SQLException {
+        try {
+            return statement.executeBatch();
+        } catch (BatchUpdateException e) {
+            for (SQLException next = e.getNextException(); next != null; next = next.getNextException()) {
+                if (!isDuplicateKey(next)) {
+                    throw e;
+                }
+            }
+            return e.getUpdateCounts();
+        }
+    }
+
+    private Response<V> toResponse(V value) {
+        return value == null ? new Response<V>(ResponseStatus.KO) : new Response<V>(ResponseStatus.OK, value);
+    }
+
+    private static <T> List<List<T>> split(List<T> list, int chunkSize) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += chunkSize) {
+            chunks.add(list.subList(from, Math.min(from + chunkSize, list.size())));
+        }
+        return chunks;
+    }
+
+    private V selectByKey(PooledConnection connection, K key) throws SQLException {
+        return selectSingle(connection, selectQuery, key);
+    }
+
+    private V selectByKeyForUpdate(PooledConnection connection, K key) throws SQLException {
+        return selectSingle(connection, selectForUpdateQuery, key);
+    }
+
+    private V selectSingle(PooledConnection connection, String query, K key) throws SQLException {
+        PreparedStatement statement = connection.prepare(query);
+        setKey(statement, 1, key);
+
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? readRow(resultSet) : null;
+        }
+    }
+
+    private static String join(String[] columns, String format, String delimiter) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                builder.append(delimiter);
+            }
+            builder.append(String.format(format, columns[i]));
+        }
+        return builder.toString();
+    }
+}
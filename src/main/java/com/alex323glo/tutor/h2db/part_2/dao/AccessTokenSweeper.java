@@ -0,0 +1,168 @@
+package com.alex323glo.tutor.h2db.part_2.dao;
+
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background sweeper of expired access tokens. Periodically deletes expired tokens
+ * in batches of batchSize rows (each batch is separate short statement), so sweeping
+ * never holds long locks on access tokens table. Sweep throughput and table size
+ * are collected as metrics.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see H2AccessTokenDAO#deleteExpired(long, int)
+ */
+public class AccessTokenSweeper implements AutoCloseable {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final H2AccessTokenDAO accessTokenDAO;
+    private final int batchSize;
+    private ScheduledExecutorService executor;
+
+    private final LongAdder sweepCount = new LongAdder();
+    private final LongAdder deletedCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder totalSweepNanos = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final AtomicLong lastSweepDeletedCount = new AtomicLong();
+    private final AtomicLong lastSweepNanos = new AtomicLong();
+    private final AtomicLong tableSize = new AtomicLong(-1);
+
+    public AccessTokenSweeper(H2AccessTokenDAO accessTokenDAO) {
+        this(accessTokenDAO, DEFAULT_BATCH_SIZE);
+    }
+
+    public AccessTokenSweeper(H2AccessTokenDAO accessTokenDAO, int batchSize) {
+        if (accessTokenDAO == null) {
+            throw new NullPointerException("accessTokenDAO is null");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("wrong batchSize: " + batchSize);
+        }
+        this.accessTokenDAO = accessTokenDAO;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Starts periodic sweeping in background (daemon) thread.
+     *
+     * @param periodMillis delay between end of one sweep and start of the next one.
+     */
+    public synchronized void start(long periodMillis) {
+        if (periodMillis < 1) {
+            throw new IllegalArgumentException("wrong periodMillis: " + periodMillis);
+        }
+        if (executor != null) {
+            throw new IllegalStateException("sweeper is already started");
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "access-token-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (RuntimeException e) {
+                // error must not cancel next sweeps
+                errorCount.increment();
+                e.printStackTrace();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deletes all tokens, expired by now, batch by batch.
+     *
+     * @return number of deleted tokens.
+     * @throws DAOException if DAO has some problems.
+     */
+    public long sweep() throws DAOException {
+        long now = System.currentTimeMillis();
+        long start = System.nanoTime();
+
+        long deleted = 0;
+        int batchDeleted;
+        do {
+            batchDeleted = accessTokenDAO.deleteExpired(now, batchSize);
+            deleted += batchDeleted;
+            batchCount.increment();
+        } while (batchDeleted == batchSize && !Thread.currentThread().isInterrupted());
+
+        long sweepNanos = System.nanoTime() - start;
+        sweepCount.increment();
+        deletedCount.add(deleted);
+        totalSweepNanos.add(sweepNanos);
+        lastSweepDeletedCount.set(deleted);
+        lastSweepNanos.set(sweepNanos);
+        tableSize.set(accessTokenDAO.count());
+        return deleted;
+    }
+
+    /**
+     * Stops background sweeping (sweep in progress is interrupted after current batch).
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getSweepCount() {
+        return sweepCount.sum();
+    }
+
+    public long getDeletedCount() {
+        return deletedCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getLastSweepDeletedCount() {
+        return lastSweepDeletedCount.get();
+    }
+
+    public long getLastSweepNanos() {
+        return lastSweepNanos.get();
+    }
+
+    /**
+     * Returns average sweep throughput.
+     *
+     * @return deleted tokens per second over all sweeps.
+     */
+    public double getDeletedPerSecond() {
+        long nanos = totalSweepNanos.sum();
+        return nanos == 0 ? 0 : deletedCount.sum() * 1e9 / nanos;
+    }
+
+    /**
+     * Returns size of access tokens table after last sweep.
+     *
+     * @return number of tokens, or -1, if there was no sweep yet.
+     */
+    public long getTableSize() {
+        return tableSize.get();
+    }
+}
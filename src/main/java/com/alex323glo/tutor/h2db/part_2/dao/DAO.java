@@ -3,8 +3,13 @@ package com.alex323glo.tutor.h2db.part_2.dao;
 import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
 import com.alex323glo.tutor.h2db.part_2.model.response.Response;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface DAO<K, V> {
 
@@ -94,4 +99,146 @@ public interface DAO<K, V> {
      */
     Map<K, V> getAll() throws DAOException;
 
+    /**
+     * Passes keys of all existent records to action, one by one. Unlike getKeyset(),
+     * implementations may stream keys without materializing them all in memory.
+     * Default implementation iterates over getKeyset().
+     *
+     * @param action action, performed for each key.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     * with execution of this part of logic (check cause of thrown DAOException).
+     *
+     * @see DAOException
+     */
+    default void forEachKey(Consumer<? super K> action) throws DAOException {
+        getKeyset().forEach(action);
+    }
+
+    /**
+     * Passes all existent records to action, one by one. Unlike getAll(),
+     * implementations may stream records without materializing them all in memory.
+     * Default implementation iterates over getAll().
+     *
+     * @param action action, performed for each key-value record.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     * with execution of this part of logic (check cause of thrown DAOException).
+     *
+     * @see DAOException
+     */
+    default void forEach(BiConsumer<? super K, ? super V> action) throws DAOException {
+        getAll().forEach(action);
+    }
+
+    /**
+     * Reads page of records, ordered by key (keyset pagination): up to pageSize records
+     * with keys, which are greater than afterKey. Next page is read by passing key of last
+     * record of previous page as afterKey, so cost of page doesn't depend on its depth.
+     * Default implementation sorts getAll() and requires Comparable keys.
+     *
+     * @param afterKey key of last record of previous page, or Null for first page.
+     * @param pageSize max number of records in page.
+     * @return not Null Map of records, ordered by key (empty, if there are no more records).
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     * with execution of this part of logic (check cause of thrown DAOException).
+     *
+     * @see DAOException
+     */
+    default Map<K, V> readPage(K afterKey, int pageSize) throws DAOException {
+        if (pageSize < 1) {
+            throw new DAOException("wrong pageSize: " + pageSize);
+        }
+
+        TreeMap<K, V> sortedRecords = new TreeMap<>(getAll());
+        Map<K, V> page = new LinkedHashMap<>();
+        Map<K, V> records = afterKey == null ? sortedRecords : sortedRecords.tailMap(afterKey, false);
+        for (Map.Entry<K, V> record : records.entrySet()) {
+            if (page.size() == pageSize) {
+                break;
+            }
+            page.put(record.getKey(), record.getValue());
+        }
+        return page;
+    }
+
+    /**
+     * Creates new records. Default implementation calls create(K, V) for each record;
+     * implementations may override it to execute all records in batches.
+     *
+     * @param records key-value records, which will be created.
+     * @return not Null Map of create(K, V)-like Responses (OK status, if record
+     * was created, or KO status, if record with such key already exists), in order of records.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     * with execution of this part of logic (check cause of thrown DAOException).
+     *
+     * @see Response
+     * @see DAOException
+     */
+    default Map<K, Response> createAll(Map<K, V> records) throws DAOException {
+        Map<K, Response> responses = new LinkedHashMap<>();
+        for (Map.Entry<K, V> record : records.entrySet()) {
+            responses.put(record.getKey(), create(record.getKey(), record.getValue()));
+        }
+        return responses;
+    }
+
+    /**
+     * Reads existent records. Default implementation calls read(K) for each key;
+     * implementations may override it to read all records in batches.
+     *
+     * @param keys unique identifiers of existent records.
+     * @return not Null Map of read(K)-like Responses, in order of keys.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     * with execution of this part of logic (check cause of thrown DAOException).
+     *
+     * @see Response
+     * @see DAOException
+     */
+    default Map<K, Response<V>> readAll(Collection<K> keys) throws DAOException {
+        Map<K, Response<V>> responses = new LinkedHashMap<>();
+        for (K key : keys) {
+            responses.put(key, read(key));
+        }
+        return responses;
+    }
+
+    /**
+     * Updates data of existent records. Default implementation calls update(K, V) for each
+     * record; implementations may override it to update all records in batches.
+     *
+     * @param records key-value records, where key identifies existent record and value is its new data.
+     * @return not Null Map of update(K, V)-like Responses (with old data), in order of records.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     * with execution of this part of logic (check cause of thrown DAOException).
+     *
+     * @see Response
+     * @see DAOException
+     */
+    default Map<K, Response<V>> updateAll(Map<K, V> records) throws DAOException {
+        Map<K, Response<V>> responses = new LinkedHashMap<>();
+        for (Map.Entry<K, V> record : records.entrySet()) {
+            responses.put(record.getKey(), update(record.getKey(), record.getValue()));
+        }
+        return responses;
+    }
+
+    /**
+     * Deletes existent records. Default implementation calls delete(K) for each key;
+     * implementations may override it to delete all records in batches.
+     *
+     * @param keys unique identifiers of existent records.
+     * @return not Null Map of delete(K)-like Responses (with removed data), in order of keys.
+     * @throws DAOException if params don't pass validation or DAO has some problems
+     * with execution of this part of logic (check cause of thrown DAOException).
+     *
+     * @see Response
+     * @see DAOException
+     */
+    default Map<K, Response<V>> deleteAll(Collection<K> keys) throws DAOException {
+        Map<K, Response<V>> responses = new LinkedHashMap<>();
+        for (K key : keys) {
+            responses.put(key, delete(key));
+        }
+        return responses;
+    }
+
 }
@@ -1,294 +1,118 @@
 package com.alex323glo.tutor.h2db.part_2.dao;
 
 import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
-import com.alex323glo.tutor.h2db.part_2.model.response.Response;
-import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
 import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
 import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
+import com.alex323glo.tutor.h2db.part_2.pool.PooledConnection;
 
-import static com.alex323glo.tutor.h2db.part_2.util.Validator.*;
-
-import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.sql.Types;
+import java.util.UUID;
 
 /**
- * Access Token DAO implementation for H2 Data Base.
+ * Access Token DAO implementation for H2 Data Base. Tokens are keyed by TokenId,
+ * stored in 16-byte UUID column.
  *
  * @author alex323glo
  * @version 1.0
  *
  * @see DAO
+ * @see AbstractH2DAO
  * @see AccessToken
  */
-public class H2AccessTokenDAO implements DAO<String, AccessToken> {
-
-    private Connection connection;
-    private String tableName;
-
-    public H2AccessTokenDAO(Connection connection, String tableName) {
-        this.setConnection(connection);
-        this.setTableName(tableName);
-    }
-
-    public Connection getConnection() {
-        return connection;
-    }
+public class H2AccessTokenDAO extends AbstractH2DAO<TokenId, AccessToken> {
 
-    public void setConnection(Connection connection) throws DAOException {
-        checkDAOConnection(connection);
-        this.connection = connection;
-    }
+    private static final String[] COLUMNS = {"token", "username", "type", "expires_at"};
 
-    public String getTableName() {
-        return tableName;
-    }
+    private static final String DELETE_EXPIRED_QUERY_TEMPLATE =              // (table)
+            "DELETE FROM %s WHERE expires_at<=? LIMIT ?";
 
-    public void setTableName(String tableName) throws DAOException {
-        if (tableName == null || tableName.length() < 1) {
-            throw new DAOException("wrong tableName: " + tableName);
-        }
-        this.tableName = tableName;
+    public H2AccessTokenDAO(ConnectionPool connectionPool, String tableName) {
+        super(connectionPool, tableName);
     }
 
     /**
-     * Creates new record.
+     * Deletes up to limit tokens, which expired not later than now. Rows are found
+     * with index on expiration time and deleted by single short statement, so
+     * expired tokens can be swept in small batches without long locks.
      *
-     * @param key   unique identifier of new record.
-     * @param value data, which will be stored inside new record.
-     * @return Response object with OK status (if operation was successful) and
-     * Null body.
+     * @param now   current time in epoch milliseconds.
+     * @param limit max number of deleted tokens.
+     * @return number of deleted tokens.
      * @throws DAOException if params don't pass validation or DAO has some problems
      *                      with execution of this part of logic (check cause of thrown DAOException).
-     * @see Response
      * @see DAOException
      */
-    @Override
-    public Response create(String key, AccessToken value) throws DAOException {
-        checkDAOConnection(connection);
-
-        try {
-            Statement statement = connection.createStatement();
-
-            statement.execute("SELECT * FROM " + tableName + " WHERE token='" + key + "';");
-            if (statement.getResultSet().first()) {
-                return new Response(ResponseStatus.KO);
-            }
-
-            connection.createStatement().execute("INSERT INTO " + tableName + " VALUES ('" +
-                    key + "', '" + value.getUsername() + "', '" + value.getType().toString() + "');");
-
-            return new Response(ResponseStatus.OK);
+    public int deleteExpired(long now, int limit) throws DAOException {
+        if (limit < 1) {
+            throw new DAOException("wrong limit: " + limit);
+        }
 
+        try (PooledConnection connection = getConnectionPool().borrow()) {
+            PreparedStatement statement =
+                    connection.prepare(String.format(DELETE_EXPIRED_QUERY_TEMPLATE, getTableName()));
+            statement.setLong(1, now);
+            statement.setInt(2, limit);
+            return statement.executeUpdate();
         } catch (SQLException e) {
             e.printStackTrace();
             throw new DAOException("can't execute SQL", e);
         }
     }
 
-    /**
-     * Reads existent record.
-     *
-     * @param key unique identifier of existent record.
-     * @return Response object with OK status and not Null body (data, stored inside this
-     * record), if operation was successful, or Response object with KO status and Null body,
-     * if record with such key doesn't exist.
-     * @throws DAOException if params don't pass validation or DAO has some problems
-     *                      with execution of this part of logic (check cause of thrown DAOException).
-     * @see Response
-     * @see DAOException
-     */
     @Override
-    public Response<AccessToken> read(String key) throws DAOException {
-        checkDAOConnection(connection);
-
-        try {
-            Statement statement = connection.createStatement();
-
-            statement.execute("SELECT * FROM " + tableName + " WHERE token='" + key + "';");
-            ResultSet resultSet = statement.getResultSet();
-            if (!resultSet.first()) {
-                return new Response(ResponseStatus.KO);
-            }
-
-            return new Response<AccessToken>(
-                    ResponseStatus.OK,
-                    new AccessToken(
-                            resultSet.getString("token"),
-                            resultSet.getString("username"),
-                            UserType.fromString(resultSet.getString("type"))
-                    )
-            );
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new DAOException("can't execute SQL", e);
-        }
+    protected void createTable(ConnectionPool connectionPool, String tableName) throws DAOException {
+        H2SchemaManager.createAccessTokenTable(connectionPool, tableName);
     }
 
-    /**
-     * Updates data of existent record.
-     *
-     * @param key   unique identifier of existent record.
-     * @param value new data, which will be stored inside existent record.
-     * @return Response object with OK status and not Null body (old data,
-     * stored inside existent record before this update() operation was carried out),
-     * if operation was successful, or Response object with KO status and Null body,
-     * if record with such key doesn't exist.
-     * @throws DAOException if params don't pass validation or DAO has some problems
-     *                      with execution of this part of logic (check cause of thrown DAOException).
-     * @see Response
-     * @see DAOException
-     */
     @Override
-    public Response<AccessToken> update(String key, AccessToken value) throws DAOException {
-        checkDAOConnection(connection);
-
-        try {
-            Statement statement = connection.createStatement();
-
-            statement.execute("SELECT * FROM " + tableName + " WHERE token='" + key + "';");
-            ResultSet resultSet = statement.getResultSet();
-            if (!resultSet.first()) {
-                return new Response(ResponseStatus.KO);
-            }
-
-            AccessToken oldAccessToken = new AccessToken(
-                    resultSet.getString("token"),
-                    resultSet.getString("username"),
-                    UserType.fromString(resultSet.getString("type"))
-            );
-
-            statement.execute("UPDATE " + tableName + " SET " +
-                    "token='" + value.getToken() + "', " +
-                    "username='" + value.getUsername() + "', " +
-                    "type='" + value.getType().toString() + "' " +
-                    "WHERE token='" + key + "';");
-
-            return new Response<AccessToken>(ResponseStatus.OK, oldAccessToken);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new DAOException("can't execute SQL", e);
-        }
+    protected String[] getColumns() {
+        return COLUMNS;
     }
 
-    /**
-     * Deletes existent record.
-     *
-     * @param key unique identifier of existent record.
-     * @return Response object with OK status and not Null body (old data,
-     * stored inside existent record before this delete() operation was carried out),
-     * if operation was successful, or Response object with KO status and Null body,
-     * if record with such key doesn't exist.
-     * @throws DAOException if params don't pass validation or DAO has some problems
-     *                      with execution of this part of logic (check cause of thrown DAOException).
-     * @see Response
-     * @see DAOException
-     */
     @Override
-    public Response<AccessToken> delete(String key) throws DAOException {
-        checkDAOConnection(connection);
-
-        try {
-            Statement statement = connection.createStatement();
-
-            statement.execute("SELECT * FROM " + tableName + " WHERE token='" + key + "';");
-            ResultSet resultSet = statement.getResultSet();
-            if (!resultSet.first()) {
-                return new Response(ResponseStatus.KO);
-            }
-
-            AccessToken removedAccessToken = new AccessToken(
-                    resultSet.getString("token"),
-                    resultSet.getString("username"),
-                    UserType.fromString(resultSet.getString("type"))
-            );
-
-            statement.execute("DELETE FROM " + tableName + " WHERE token='" + key + "';");
-
-            return new Response<AccessToken>(ResponseStatus.OK, removedAccessToken);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new DAOException("can't execute SQL", e);
-        }
+    protected TokenId getKey(AccessToken value) {
+        return value.getToken();
     }
 
-    /**
-     * Gets Set of keys of all existent records.
-     *
-     * @return not Null Set of unique records' identifiers.
-     * @throws DAOException if params don't pass validation or DAO has some problems
-     *                      with execution of this part of logic (check cause of thrown DAOException).
-     * @see DAOException
-     */
     @Override
-    public Set<String> getKeyset() throws DAOException {
-        checkDAOConnection(connection);
-
-        try {
-            Statement statement = connection.createStatement();
-
-            statement.execute("SELECT token FROM " + tableName + ";");
-            ResultSet resultSet = statement.getResultSet();
-            if (!resultSet.first()) {
-                return new HashSet<>();
-            }
-
-            Set<String> resultKeySet = new HashSet<>();
-            do {
-                resultKeySet.add(resultSet.getString(1));
-            } while (resultSet.next());
-
-            return resultKeySet;
+    protected AccessToken readRow(ResultSet resultSet) throws SQLException {
+        return new AccessToken(
+                readToken(resultSet.getObject("token")),
+                resultSet.getString("username"),
+                UserType.fromCode(resultSet.getInt("type")),
+                resultSet.getLong("expires_at")     // NULL (never expires) is read as 0
+        );
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new DAOException("can't execute SQL", e);
+    @Override
+    protected void writeRow(PreparedStatement statement, int index, TokenId key, AccessToken value)
+            throws SQLException {
+        setKey(statement, index, key);
+        statement.setString(index + 1, value.getUsername());
+        statement.setInt(index + 2, value.getType().getCode());
+        if (value.getExpiresAt() == 0) {
+            statement.setNull(index + 3, Types.BIGINT);
+        } else {
+            statement.setLong(index + 3, value.getExpiresAt());
         }
     }
 
-    /**
-     * Get all existent records as Map of K-V records.
-     *
-     * @return not Null Map, made of key-value records.
-     * @throws DAOException if params don't pass validation or DAO has some problems
-     *                      with execution of this part of logic (check cause of thrown DAOException).
-     * @see DAOException
-     */
     @Override
-    public Map<String, AccessToken> getAll() throws DAOException {
-        checkDAOConnection(connection);
-
-        try {
-            Statement statement = connection.createStatement();
-
-            statement.execute("SELECT * FROM " + tableName + ";");
-            ResultSet resultSet = statement.getResultSet();
-            if (!resultSet.first()) {
-                return new HashMap<>();
-            }
+    protected void setKey(PreparedStatement statement, int index, TokenId key) throws SQLException {
+        statement.setObject(index, key.toUUID());
+    }
 
-            HashMap<String, AccessToken> resultMap = new HashMap<>();
-            do {
-                resultMap.put(
-                        resultSet.getString("token"),
-                        new AccessToken(
-                                resultSet.getString("token"),
-                                resultSet.getString("username"),
-                                UserType.fromString(resultSet.getString("type"))
-                        )
-                );
-            } while (resultSet.next());
+    @Override
+    protected TokenId readKey(ResultSet resultSet, int index) throws SQLException {
+        return readToken(resultSet.getObject(index));
+    }
 
-            return resultMap;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            throw new DAOException("can't execute SQL", e);
-        }
+    private static TokenId readToken(Object uuid) {
+        return TokenId.fromUUID((UUID) uuid);
     }
 }
@@ -0,0 +1,155 @@
+package com.alex323glo.tutor.h2db.part_2.dao;
+
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
+import com.alex323glo.tutor.h2db.part_2.pool.PooledConnection;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Schema bootstrap for H2 DAO tables. Creates tables (with primary keys,
+ * secondary indexes and compact column types), if they don't exist, and
+ * verifies schema of existent tables, so DAO never works with full-scan-only
+ * or incompatible table.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see H2UserDAO
+ * @see H2AccessTokenDAO
+ */
+public class H2SchemaManager {
+
+    private static final String CREATE_USER_TABLE_TEMPLATE =                   // (table)
+            "CREATE TABLE IF NOT EXISTS %s(" +
+                    "username VARCHAR(45) NOT NULL PRIMARY KEY, " +
+                    "password VARCHAR(45), " +
+                    "type TINYINT NOT NULL)";
+    private static final String CREATE_ACCESS_TOKEN_TABLE_TEMPLATE =           // (table)
+            "CREATE TABLE IF NOT EXISTS %s(" +
+                    "token UUID NOT NULL PRIMARY KEY, " +
+                    "username VARCHAR(45) NOT NULL, " +
+                    "type TINYINT NOT NULL, " +
+                    "expires_at BIGINT)";
+    private static final String CREATE_INDEX_TEMPLATE =                        // (table, column, table, column)
+            "CREATE INDEX IF NOT EXISTS %s_%s_idx ON %s(%s)";
+
+    /**
+     * Creates (if it doesn't exist) and verifies table of users.
+     *
+     * @param connectionPool pool of connections to Data Base.
+     * @param tableName      name of users table.
+     * @throws DAOException if table can't be created or existent table has incompatible schema.
+     */
+    public static void createUserTable(ConnectionPool connectionPool, String tableName) throws DAOException {
+        Map<String, Integer> columnTypes = new LinkedHashMap<>();
+        columnTypes.put("username", Types.VARCHAR);
+        columnTypes.put("password", Types.VARCHAR);
+        columnTypes.put("type", Types.TINYINT);
+
+        createTable(connectionPool, tableName, String.format(CREATE_USER_TABLE_TEMPLATE, tableName),
+                columnTypes, "username");
+    }
+
+    /**
+     * Creates (if it doesn't exist) and verifies table of access tokens (keyed by
+     * 16-byte UUID column) with secondary indexes on username and expiration time (NULL means "never expires").
+     *
+     * @param connectionPool pool of connections to Data Base.
+     * @param tableName      name of access tokens table.
+     * @throws DAOException if table can't be created or existent table has incompatible schema.
+     */
+    public static void createAccessTokenTable(ConnectionPool connectionPool, String tableName) throws DAOException {
+        Map<String, Integer> columnTypes = new LinkedHashMap<>();
+        columnTypes.put("token", Types.BINARY);             // UUID (16 bytes)
+        columnTypes.put("username", Types.VARCHAR);
+        columnTypes.put("type", Types.TINYINT);
+        columnTypes.put("expires_at", Types.BIGINT);
+
+        createTable(connectionPool, tableName, String.format(CREATE_ACCESS_TOKEN_TABLE_TEMPLATE, tableName),
+                columnTypes, "token", "username", "expires_at");
+    }
+
+    /**
+     * Executes CREATE TABLE IF NOT EXISTS statement, creates secondary indexes and verifies
+     * column types, primary key and indexes of table.
+     */
+    private static void createTable(ConnectionPool connectionPool, String tableName, String createTableQuery,
+                                    Map<String, Integer> columnTypes, String keyColumn, String... indexedColumns)
+            throws DAOException {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            try (Statement statement = connection.getConnection().createStatement()) {
+                statement.execute(createTableQuery);
+                for (String indexedColumn : indexedColumns) {
+                    statement.execute(String.format(CREATE_INDEX_TEMPLATE,
+                            tableName, indexedColumn, tableName, indexedColumn));
+                }
+            }
+
+            verifyTable(connection.getConnection().getMetaData(), tableName, columnTypes, keyColumn, indexedColumns);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't create table " + tableName, e);
+        }
+    }
+
+    private static void verifyTable(DatabaseMetaData metaData, String tableName, Map<String, Integer> columnTypes,
+                                    String keyColumn, String... indexedColumns) throws SQLException, DAOException {
+        String metaTableName = tableName.toUpperCase();
+
+        Map<String, Integer> actualColumnTypes = new HashMap<>();
+        try (ResultSet resultSet = metaData.getColumns(null, null, metaTableName, null)) {
+            while (resultSet.next()) {
+                actualColumnTypes.put(resultSet.getString("COLUMN_NAME"), resultSet.getInt("DATA_TYPE"));
+            }
+        }
+        for (Map.Entry<String, Integer> columnType : columnTypes.entrySet()) {
+            Integer actualType = actualColumnTypes.get(columnType.getKey().toUpperCase());
+            if (!columnType.getValue().equals(actualType)) {
+                throw new DAOException("table " + tableName + " has wrong type of column " + columnType.getKey() +
+                        ": " + actualType + " (expected " + columnType.getValue() + ", see java.sql.Types)");
+            }
+        }
+
+        Set<String> primaryKeyColumns = new HashSet<>();
+        try (ResultSet resultSet = metaData.getPrimaryKeys(null, null, metaTableName)) {
+            while (resultSet.next()) {
+                primaryKeyColumns.add(resultSet.getString("COLUMN_NAME"));
+            }
+        }
+        if (!primaryKeyColumns.equals(singleton(keyColumn.toUpperCase()))) {
+            throw new DAOException("table " + tableName + " must have primary key (" + keyColumn + "), but has " +
+                    primaryKeyColumns);
+        }
+
+        Set<String> leadingIndexColumns = new HashSet<>();
+        try (ResultSet resultSet = metaData.getIndexInfo(null, null, metaTableName, false, false)) {
+            while (resultSet.next()) {
+                if (resultSet.getShort("ORDINAL_POSITION") == 1) {
+                    leadingIndexColumns.add(resultSet.getString("COLUMN_NAME"));
+                }
+            }
+        }
+        for (String indexedColumn : indexedColumns) {
+            if (!leadingIndexColumns.contains(indexedColumn.toUpperCase())) {
+                throw new DAOException("table " + tableName + " has no index on column " + indexedColumn);
+            }
+        }
+    }
+
+    private static Set<String> singleton(String value) {
+        Set<String> set = new HashSet<>();
+        set.add(value);
+        return set;
+    }
+
+}
@@ -0,0 +1,361 @@
+package com.alex323glo.tutor.h2db.part_2.dao.cache;
+
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.response.Response;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import com.alex323glo.tutor.h2db.part_2.util.BloomFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Negative caching decorator of DAO: keeps Bloom filter of all existent keys and
+ * answers read() of definitely unknown key with KO Response without calling wrapped DAO.
+ * <p>
+ * Filter is filled by streaming key scan (forEachKey()) on construction and on each
+ * rebuild(). Keys are added to filter before they are written to wrapped DAO, so filter
+ * never misses existent key (also while rebuild is running). Deleted keys stay inside
+ * filter (Bloom filter doesn't support removal) and only cost usual DAO read until next
+ * rebuild(). Keys are deleted all the time (logout, AccessTokenSweeper), so filter should
+ * be rebuilt periodically: by startRebuilds() (stopped by close()) or by explicit rebuild() calls.
+ * Rebuilds are serialized.
+ *
+ * @param <K> type of key.
+ * @param <V> type of value.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO
+ * @see BloomFilter
+ */
+public class BloomFilterDAO<K, V> implements DAO<K, V>, AutoCloseable {
+
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private final DAO<K, V> dao;
+    private final Function<? super V, ? extends K> keyExtractor;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    // writes hold read lock (they may run concurrently), rebuild() holds write lock
+    // only to install new filter after in-flight writes are finished
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    // held for whole rebuild: other rebuild must not reset rebuiltFilter, while this one scans keys
+    private final ReentrantLock rebuildRunLock = new ReentrantLock();
+    private volatile BloomFilter filter;
+    private volatile BloomFilter rebuiltFilter;
+    private ScheduledExecutorService executor;
+
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder passedCount = new LongAdder();
+    private final LongAdder falsePositiveCount = new LongAdder();
+    private final LongAdder rebuildCount = new LongAdder();
+    private final LongAdder rebuildErrorCount = new LongAdder();
+
+    /**
+     * Creates decorator and fills filter with keys of all existent records.
+     *
+     * @param dao                wrapped DAO.
+     * @param keyExtractor       function, which returns key of value (used by update(), which may change key).
+     * @param expectedInsertions expected number of records.
+     * @param falsePositiveRate  wanted probability of unneeded read of unknown key.
+     * @throws DAOException if keys can't be read from wrapped DAO.
+     */
+    public BloomFilterDAO(DAO<K, V> dao, Function<? super V, ? extends K> keyExtractor,
+                          long expectedInsertions, double falsePositiveRate) throws DAOException {
+        if (dao == null) {
+            throw new NullPointerException("dao is null");
+        }
+        if (keyExtractor == null) {
+            throw new NullPointerException("keyExtractor is null");
+        }
+        this.dao = dao;
+        this.keyExtractor = keyExtractor;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+        rebuild();
+    }
+
+    public BloomFilterDAO(DAO<K, V> dao, Function<? super V, ? extends K> keyExtractor,
+                          long expectedInsertions) throws DAOException {
+        this(dao, keyExtractor, expectedInsertions, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    public DAO<K, V> getDAO() {
+        return dao;
+    }
+
+    /**
+     * Rebuilds filter from streaming key scan of wrapped DAO (drops deleted keys).
+     * Filter keeps answering reads while it is rebuilt. Concurrent rebuild waits for this one.
+     *
+     * @throws DAOException if keys can't be read from wrapped DAO.
+     */
+    public void rebuild() throws DAOException {
+        rebuildRunLock.lock();
+        try {
+            BloomFilter newFilter = new BloomFilter(expectedInsertions, falsePositiveRate);
+            rebuildLock.writeLock().lock();
+            try {
+                rebuiltFilter = newFilter;
+            } finally {
+                rebuildLock.writeLock().unlock();
+            }
+
+            try {
+                dao.forEachKey(newFilter::put);
+                filter = newFilter;
+                rebuildCount.increment();
+            } finally {
+                rebuiltFilter = null;
+            }
+        } finally {
+            rebuildRunLock.unlock();
+        }
+    }
+
+    /**
+     * Starts periodic rebuilds in background (daemon) thread, so keys of deleted
+     * records don't stay in filter for good.
+     *
+     * @param periodMillis delay between end of one rebuild and start of the next one.
+     */
+    public synchronized void startRebuilds(long periodMillis) {
+        if (periodMillis < 1) {
+            throw new IllegalArgumentException("wrong periodMillis: " + periodMillis);
+        }
+        if (executor != null) {
+            throw new IllegalStateException("rebuilds are already started");
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bloom-filter-rebuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                // error must not cancel next rebuilds
+                rebuildErrorCount.increment();
+                e.printStackTrace();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops periodic rebuilds (rebuild in progress is interrupted).
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Checks, if record with such key might exist.
+     *
+     * @param key key of record.
+     * @return false, if record definitely doesn't exist.
+     */
+    public boolean mightContain(K key) {
+        return filter.mightContain(key);
+    }
+
+    @Override
+    public Response create(K key, V value) throws DAOException {
+        rebuildLock.readLock().lock();
+        try {
+            put(key);
+            return dao.create(key, value);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Response<V> read(K key) throws DAOException {
+        if (!filter.mightContain(key)) {
+            rejectedCount.increment();
+            return new Response<V>(ResponseStatus.KO);
+        }
+
+        passedCount.increment();
+        Response<V> response = dao.read(key);
+        if (response.getStatus() != ResponseStatus.OK) {
+            falsePositiveCount.increment();
+        }
+        return response;
+    }
+
+    @Override
+    public Response<V> update(K key, V value) throws DAOException {
+        rebuildLock.readLock().lock();
+        try {
+            put(keyExtractor.apply(value));
+            return dao.update(key, value);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Response<V> delete(K key) throws DAOException {
+        return dao.delete(key);
+    }
+
+    @Override
+    public Set<K> getKeyset() throws DAOException {
+        return dao.getKeyset();
+    }
+
+    @Override
+    public Map<K, V> getAll() throws DAOException {
+        return dao.getAll();
+    }
+
+    @Override
+    public void forEachKey(Consumer<? super K> action) throws DAOException {
+        dao.forEachKey(action);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) throws DAOException {
+        dao.forEach(action);
+    }
+
+    @Override
+    public Map<K, V> readPage(K afterKey, int pageSize) throws DAOException {
+        return dao.readPage(afterKey, pageSize);
+    }
+
+    @Override
+    public Map<K, Response> createAll(Map<K, V> records) throws DAOException {
+        rebuildLock.readLock().lock();
+        try {
+            for (K key : records.keySet()) {
+                put(key);
+            }
+            return dao.createAll(records);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads only keys, which pass filter, with single readAll() call of wrapped DAO.
+     */
+    @Override
+    public Map<K, Response<V>> readAll(Collection<K> keys) throws DAOException {
+        Map<K, Response<V>> responses = new LinkedHashMap<>();
+        List<K> passedKeys = new ArrayList<>();
+        BloomFilter currentFilter = filter;
+        for (K key : new LinkedHashSet<>(keys)) {
+            if (currentFilter.mightContain(key)) {
+                passedCount.increment();
+                responses.put(key, null);
+                passedKeys.add(key);
+            } else {
+                rejectedCount.increment();
+                responses.put(key, new Response<V>(ResponseStatus.KO));
+            }
+        }
+
+        if (!passedKeys.isEmpty()) {
+            for (Map.Entry<K, Response<V>> response : dao.readAll(passedKeys).entrySet()) {
+                if (response.getValue().getStatus() != ResponseStatus.OK) {
+                    falsePositiveCount.increment();
+                }
+                responses.put(response.getKey(), response.getValue());
+            }
+        }
+        return responses;
+    }
+
+    @Override
+    public Map<K, Response<V>> updateAll(Map<K, V> records) throws DAOException {
+        rebuildLock.readLock().lock();
+        try {
+            for (V value : records.values()) {
+                put(keyExtractor.apply(value));
+            }
+            return dao.updateAll(records);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<K, Response<V>> deleteAll(Collection<K> keys) throws DAOException {
+        return dao.deleteAll(keys);
+    }
+
+    /**
+     * Returns number of reads, answered by filter without calling wrapped DAO.
+     *
+     * @return number of rejected keys.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Returns number of reads, passed by filter to wrapped DAO.
+     *
+     * @return number of passed keys.
+     */
+    public long getPassedCount() {
+        return passedCount.sum();
+    }
+
+    /**
+     * Returns number of passed reads, which found no record (false positives
+     * of filter or keys, deleted since last rebuild()).
+     *
+     * @return number of unneeded reads.
+     */
+    public long getFalsePositiveCount() {
+        return falsePositiveCount.sum();
+    }
+
+    public long getRebuildCount() {
+        return rebuildCount.sum();
+    }
+
+    public long getRebuildErrorCount() {
+        return rebuildErrorCount.sum();
+    }
+
+    /**
+     * Adds key to filter (and to filter, which is being rebuilt). Must be called under
+     * read lock, so rebuild can't start meanwhile; rebuilt filter is read first, because
+     * rebuild() installs it as filter before it resets rebuiltFilter.
+     */
+    private void put(K key) {
+        BloomFilter newFilter = rebuiltFilter;
+        if (newFilter != null) {
+            newFilter.put(key);
+        }
+        filter.put(key);
+    }
+}
@@ -0,0 +1,467 @@
+package com.alex323glo.tutor.h2db.part_2.dao.cache;
+
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.response.Response;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Read-through caching decorator of any DAO.
+ * <p>
+ * read() and readAll() are served from memory, if record is cached, and fill
+ * cache from wrapped DAO otherwise. Only existent records are cached. Cache is bounded
+ * by total weight of records (by number of records, if Weigher is not set) and evicts
+ * records with chosen EvictionPolicy. update(), delete() and their batch variants
+ * write through to wrapped DAO and invalidate changed keys; read, which raced with such
+ * write, doesn't put its (possibly stale) result into cache.
+ * Scans (getKeyset(), getAll(), forEach(), readPage()) always go to wrapped DAO.
+ * <p>
+ * Cache hit doesn't take lock: records are looked up in ConcurrentHashMap and accesses
+ * are only queued to bounded read buffer (accesses, which don't fit, are dropped).
+ * Buffer is drained into eviction order (and TinyLFU sketch) by the thread, which
+ * finds it filled and gets lock without waiting, and before every admission, so
+ * recency and frequency are exact when reads don't overflow the buffer.
+ * <p>
+ * Cached values are shared between callers, so they must not be modified.
+ *
+ * @param <K> type of key.
+ * @param <V> type of value.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO
+ * @see EvictionPolicy
+ * @see Weigher
+ */
+public class CachingDAO<K, V> implements DAO<K, V> {
+
+    private final DAO<K, V> dao;
+    private final long maxWeight;
+    private final Weigher<? super K, ? super V> weigher;
+    private final EvictionPolicy evictionPolicy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<K, CachedValue<V>> cache = new ConcurrentHashMap<>();
+    // fields below are guarded by lock
+    private final LinkedHashMap<K, CachedValue<V>> evictionOrder = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long weight;
+    // changed only under lock, read without it
+    private volatile long writeEpoch;
+
+    private final ConcurrentLinkedQueue<K> readBuffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger readBufferSize = new AtomicInteger();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder rejectionCount = new LongAdder();
+
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = 32;
+
+    private static final class CachedValue<V> {
+        private final V value;
+        private final int weight;
+
+        private CachedValue(V value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Creates LRU cache of up to maxSize records.
+     *
+     * @param dao     wrapped DAO.
+     * @param maxSize max number of cached records.
+     */
+    public CachingDAO(DAO<K, V> dao, long maxSize) {
+        this(dao, maxSize, (key, value) -> 1, EvictionPolicy.LRU);
+    }
+
+    /**
+     * Creates cache of records with total weight up to maxWeight.
+     *
+     * @param dao            wrapped DAO.
+     * @param maxWeight      max total weight of cached records.
+     * @param weigher        weigher of records.
+     * @param evictionPolicy eviction policy.
+     */
+    public CachingDAO(DAO<K, V> dao, long maxWeight, Weigher<? super K, ? super V> weigher,
+                      EvictionPolicy evictionPolicy) {
+        if (dao == null) {
+            throw new NullPointerException("dao is null");
+        }
+        if (weigher == null) {
+            throw new NullPointerException("weigher is null");
+        }
+        if (evictionPolicy == null) {
+            throw new NullPointerException("evictionPolicy is null");
+        }
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("wrong maxWeight: " + maxWeight);
+        }
+        this.dao = dao;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.evictionPolicy = evictionPolicy;
+        this.sketch = evictionPolicy == EvictionPolicy.TINY_LFU ? new FrequencySketch(maxWeight) : null;
+    }
+
+    public DAO<K, V> getDAO() {
+        return dao;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    @Override
+    public Response create(K key, V value) throws DAOException {
+        // create() never changes existent record, so cached records stay valid
+        return dao.create(key, value);
+    }
+
+    @Override
+    public Response<V> read(K key) throws DAOException {
+        // epoch is read before lookup, so write, which started after miss, is noticed
+        long epoch = writeEpoch;
+        CachedValue<V> cachedValue = cache.get(key);
+        recordAccess(key);
+        if (cachedValue != null) {
+            hitCount.increment();
+            return new Response<V>(ResponseStatus.OK, cachedValue.value);
+        }
+        missCount.increment();
+
+        Response<V> response = dao.read(key);
+        if (response.getStatus() == ResponseStatus.OK) {
+            putIfNotChanged(key, response.getBody(), epoch);
+        }
+        return response;
+    }
+
+    @Override
+    public Response<V> update(K key, V value) throws DAOException {
+        beginWrite();
+        try {
+            return dao.update(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Response<V> delete(K key) throws DAOException {
+        beginWrite();
+        try {
+            return dao.delete(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public Set<K> getKeyset() throws DAOException {
+        return dao.getKeyset();
+    }
+
+    @Override
+    public Map<K, V> getAll() throws DAOException {
+        return dao.getAll();
+    }
+
+    @Override
+    public void forEachKey(Consumer<? super K> action) throws DAOException {
+        dao.forEachKey(action);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) throws DAOException {
+        dao.forEach(action);
+    }
+
+    @Override
+    public Map<K, V> readPage(K afterKey, int pageSize) throws DAOException {
+        return dao.readPage(afterKey, pageSize);
+    }
+
+    @Override
+    public Map<K, Response> createAll(Map<K, V> records) throws DAOException {
+        return dao.createAll(records);
+    }
+
+    /**
+     * Reads cached records from memory and all other records with single
+     * readAll() call of wrapped DAO.
+     */
+    @Override
+    public Map<K, Response<V>> readAll(Collection<K> keys) throws DAOException {
+        Map<K, Response<V>> responses = new LinkedHashMap<>();
+        List<K> missedKeys = new ArrayList<>();
+        long epoch = writeEpoch;
+        for (K key : new LinkedHashSet<>(keys)) {
+            CachedValue<V> cachedValue = cache.get(key);
+            recordAccess(key);
+            if (cachedValue != null) {
+                hitCount.increment();
+                responses.put(key, new Response<V>(ResponseStatus.OK, cachedValue.value));
+            } else {
+                missCount.increment();
+                responses.put(key, null);
+                missedKeys.add(key);
+            }
+        }
+
+        if (!missedKeys.isEmpty()) {
+            Map<K, Response<V>> missedResponses = dao.readAll(missedKeys);
+            for (Map.Entry<K, Response<V>> missedResponse : missedResponses.entrySet()) {
+                responses.put(missedResponse.getKey(), missedResponse.getValue());
+                if (missedResponse.getValue().getStatus() == ResponseStatus.OK) {
+                    putIfNotChanged(missedResponse.getKey(), missedResponse.getValue().getBody(), epoch);
+                }
+            }
+        }
+        return responses;
+    }
+
+    @Override
+    public Map<K, Response<V>> updateAll(Map<K, V> records) throws DAOException {
+        beginWrite();
+        try {
+            return dao.updateAll(records);
+        } finally {
+            invalidateAll(records.keySet());
+        }
+    }
+
+    @Override
+    public Map<K, Response<V>> deleteAll(Collection<K> keys) throws DAOException {
+        beginWrite();
+        try {
+            return dao.deleteAll(keys);
+        } finally {
+            invalidateAll(keys);
+        }
+    }
+
+    /**
+     * Removes record from cache (e.g. after it was changed bypassing this DAO).
+     *
+     * @param key key of record.
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            writeEpoch++;
+            remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes records from cache.
+     *
+     * @param keys keys of records.
+     */
+    public void invalidateAll(Collection<K> keys) {
+        lock.lock();
+        try {
+            writeEpoch++;
+            for (K key : keys) {
+                remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all records from cache.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            writeEpoch++;
+            evictionOrder.clear();
+            cache.clear();
+            weight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getWeight() {
+        lock.lock();
+        try {
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long requests = hits + missCount.sum();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Returns number of read records, which were not cached, because TinyLFU
+     * estimated them as less popular than eviction candidate.
+     *
+     * @return number of rejected records.
+     */
+    public long getRejectionCount() {
+        return rejectionCount.sum();
+    }
+
+    private void beginWrite() {
+        lock.lock();
+        try {
+            writeEpoch++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues access to read buffer and drains it, if it's filled and lock is free.
+     */
+    private void recordAccess(K key) {
+        if (readBufferSize.incrementAndGet() > READ_BUFFER_SIZE) {
+            readBufferSize.decrementAndGet();
+        } else {
+            readBuffer.offer(key);
+        }
+        if (readBufferSize.get() >= READ_BUFFER_DRAIN_THRESHOLD && lock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Replays queued accesses to eviction order and TinyLFU sketch. Must be called under lock.
+     */
+    private void drainReadBuffer() {
+        K key;
+        while ((key = readBuffer.poll()) != null) {
+            readBufferSize.decrementAndGet();
+            // get() of access-ordered map moves record to most recently used end
+            evictionOrder.get(key);
+            if (sketch != null) {
+                sketch.increment(key);
+            }
+        }
+    }
+
+    /**
+     * Caches value, read from wrapped DAO, only if there were no writes since read started.
+     */
+    private void putIfNotChanged(K key, V value, long epoch) {
+        int valueWeight = weigher.weigh(key, value);
+        if (valueWeight < 0) {
+            throw new IllegalStateException("negative weight of record " + key + ": " + valueWeight);
+        }
+
+        lock.lock();
+        try {
+            if (epoch != writeEpoch || valueWeight > maxWeight) {
+                return;
+            }
+            drainReadBuffer();
+            if (evictionOrder.containsKey(key)) {
+                // concurrent read has already cached the same (unchanged) value
+                return;
+            }
+
+            // victims are only chosen here: nothing is evicted, if candidate is rejected
+            List<K> victims = new ArrayList<>();
+            long freedWeight = 0;
+            Iterator<Map.Entry<K, CachedValue<V>>> iterator = evictionOrder.entrySet().iterator();
+            while (weight - freedWeight + valueWeight > maxWeight && iterator.hasNext()) {
+                Map.Entry<K, CachedValue<V>> victim = iterator.next();
+                victims.add(victim.getKey());
+                freedWeight += victim.getValue().weight;
+            }
+            if (sketch != null && !isAdmitted(key, victims)) {
+                rejectionCount.increment();
+                return;
+            }
+
+            for (K victim : victims) {
+                remove(victim);
+                evictionCount.increment();
+            }
+            CachedValue<V> cachedValue = new CachedValue<>(value, valueWeight);
+            evictionOrder.put(key, cachedValue);
+            cache.put(key, cachedValue);
+            weight += valueWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * TinyLFU admission: candidate must be more popular than each of records, it would evict.
+     */
+    private boolean isAdmitted(K key, List<K> victims) {
+        int frequency = sketch.frequency(key);
+        for (K victim : victims) {
+            if (frequency <= sketch.frequency(victim)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void remove(K key) {
+        CachedValue<V> removedValue = evictionOrder.remove(key);
+        if (removedValue != null) {
+            cache.remove(key);
+            weight -= removedValue.weight;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.alex323glo.tutor.h2db.part_2.dao.cache;
+
+/**
+ * Eviction policy of CachingDAO.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see CachingDAO
+ */
+public enum EvictionPolicy {
+
+    /**
+     * Least recently used record is evicted to make room for new one.
+     */
+    LRU,
+
+    /**
+     * Least recently used record is evicted only if new record was requested
+     * more often (estimated by FrequencySketch), otherwise new record is not cached.
+     * Protects hot records from being flushed by one-off reads and scans.
+     */
+    TINY_LFU
+}
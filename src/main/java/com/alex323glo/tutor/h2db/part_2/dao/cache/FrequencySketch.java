@@ -0,0 +1,101 @@
+package com.alex323glo.tutor.h2db.part_2.dao.cache;
+
+/**
+ * Count-Min sketch of access frequencies with 4-bit counters (TinyLFU).
+ * Each key is counted in 4 counters; estimated frequency is the smallest of them.
+ * When number of increments reaches sample size, all counters are halved,
+ * so old popularity fades out.
+ * <p>
+ * Sketch is not thread-safe: it is guarded by lock of CachingDAO.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see CachingDAO
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_FREQUENCY = 15;
+    private static final int MAX_TABLE_SIZE = 1 << 20;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    /**
+     * @param expectedSize expected number of cached records.
+     */
+    FrequencySketch(long expectedSize) {
+        int tableSize = 8;
+        while (tableSize < expectedSize && tableSize < MAX_TABLE_SIZE) {
+            tableSize <<= 1;
+        }
+        table = new long[tableSize];
+        tableMask = tableSize - 1;
+        sampleSize = 10 * tableSize;
+    }
+
+    /**
+     * Returns estimated frequency of key (from 0 to 15).
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long counters = table[indexOf(hash, i)];
+            frequency = Math.min(frequency, (int) ((counters >>> counterOffset(hash, i)) & 0xfL));
+        }
+        return frequency;
+    }
+
+    /**
+     * Increments frequency of key (unless it is already maximal).
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            int offset = counterOffset(hash, i);
+            if (((table[index] >>> offset) & 0xfL) != 0xfL) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+
+    private int indexOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    /**
+     * Each long holds 16 counters: key uses one of 4 groups (by low hash bits)
+     * and one counter of group per depth.
+     */
+    private static int counterOffset(int hash, int depth) {
+        return (((hash & 3) << 2) + depth) << 2;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,26 @@
+package com.alex323glo.tutor.h2db.part_2.dao.cache;
+
+/**
+ * Calculates weight of cached record, which is counted against
+ * max weight of CachingDAO.
+ *
+ * @param <K> type of key.
+ * @param <V> type of value.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see CachingDAO
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * Returns weight of record.
+     *
+     * @param key   key of record.
+     * @param value value of record.
+     * @return not negative weight.
+     */
+    int weigh(K key, V value);
+}
@@ -0,0 +1,441 @@
+package com.alex323glo.tutor.h2db.part_2.dao.cache;
+
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.response.Response;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind decorator of DAO (usually H2AccessTokenDAO): create() puts new record into
+ * in-memory index of pending records (read() sees it right away), and pending records are
+ * flushed to wrapped DAO with single createAll() call (grouped batch insert, one commit per
+ * batch) every flushIntervalMillis, or as soon as maxBatchSize records are pending.
+ * <p>
+ * Crash semantics are chosen by WriteBehindMode: ASYNC acknowledges create() before flush
+ * (unflushed records are lost on crash; if several full batches are pending, creator flushes
+ * them itself, and create() fails, if they can't be written), GROUP_COMMIT acknowledges it after commit of its batch (first waiting creator
+ * flushes right away, so creators, which come meanwhile, share next commit). All other writes
+ * and all scans flush pending records first, so they always see (and change) stored state.
+ *
+ * @param <K> type of key.
+ * @param <V> type of value.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see WriteBehindMode
+ * @see DAO#createAll(Map)
+ */
+public class WriteBehindDAO<K, V> implements DAO<K, V>, AutoCloseable {
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+
+    // in ASYNC mode creators flush themselves, if this number of full batches is pending
+    private static final int MAX_PENDING_BATCHES = 4;
+    // failures of background flush (e.g. while Data Base is down) are printed not more often
+    private static final long ERROR_REPORT_INTERVAL_MILLIS = 10_000;
+
+    private final DAO<K, V> dao;
+    private final WriteBehindMode mode;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService executor;
+
+    private final ConcurrentHashMap<K, V> pending = new ConcurrentHashMap<>();
+
+    // pendingLock pairs each pending record with future of batch, which will contain it;
+    // flushLock serializes flushes (also explicit ones), so batches are committed in order
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private CompletableFuture<Map<K, Response>> nextBatch = new CompletableFuture<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile boolean closed;
+    // used only by background thread (flushQuietly())
+    private long lastErrorReportMillis;
+    private long unreportedErrorCount;
+
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder flushedCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final AtomicInteger maxFlushedBatchSize = new AtomicInteger();
+
+    public WriteBehindDAO(DAO<K, V> dao, WriteBehindMode mode) {
+        this(dao, mode, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Creates decorator and starts periodic flushing in background (daemon) thread.
+     *
+     * @param dao                 wrapped DAO.
+     * @param mode                acknowledgement semantics of create().
+     * @param flushIntervalMillis delay between end of one flush and start of the next one.
+     * @param maxBatchSize        number of pending records, which triggers flush right away.
+     */
+    public WriteBehindDAO(DAO<K, V> dao, WriteBehindMode mode, long flushIntervalMillis, int maxBatchSize) {
+        if (dao == null) {
+            throw new NullPointerException("dao is null");
+        }
+        if (mode == null) {
+            throw new NullPointerException("mode is null");
+        }
+        if (flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("wrong flushIntervalMillis: " + flushIntervalMillis);
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("wrong maxBatchSize: " + maxBatchSize);
+        }
+        this.dao = dao;
+        this.mode = mode;
+        this.maxBatchSize = maxBatchSize;
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public DAO<K, V> getDAO() {
+        return dao;
+    }
+
+    public WriteBehindMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Puts new record into in-memory index. Record is written to wrapped DAO by next flush.
+     *
+     * @return Response with OK status, or with KO status, if record with such key is pending
+     * or already exists (in GROUP_COMMIT mode - also if wrapped DAO rejected it on flush).
+     * @throws DAOException if DAO is closed, params are Null, (in ASYNC mode) too many
+     *                      records are pending and they can't be written or (in GROUP_COMMIT
+     *                      mode) batch with this record wasn't written.
+     */
+    @Override
+    public Response create(K key, V value) throws DAOException {
+        if (closed) {
+            throw new DAOException("DAO is closed");
+        }
+        if (key == null || value == null) {
+            throw new DAOException("key or value is null");
+        }
+        // in GROUP_COMMIT mode existent key is reported by flush (as KO Response of its batch)
+        if (mode == WriteBehindMode.ASYNC && (pending.containsKey(key)
+                || dao.read(key).getStatus() == ResponseStatus.OK)) {
+            return new Response(ResponseStatus.KO);
+        }
+        if (mode == WriteBehindMode.ASYNC && pending.size() >= MAX_PENDING_BATCHES * maxBatchSize) {
+            // flusher falls behind: caller writes batch itself, so memory stays bounded, and
+            // record isn't acknowledged, if pending ones can't be written (e.g. Data Base is down)
+            flushLock.lock();
+            try {
+                if (pending.size() >= MAX_PENDING_BATCHES * maxBatchSize) {
+                    flush();
+                }
+            } catch (DAOException e) {
+                throw new DAOException("too many records are pending and they can't be written", e);
+            } finally {
+                flushLock.unlock();
+            }
+        }
+
+        CompletableFuture<Map<K, Response>> batch;
+        pendingLock.lock();
+        try {
+            if (pending.putIfAbsent(key, value) != null) {
+                return new Response(ResponseStatus.KO);
+            }
+            batch = nextBatch;
+        } finally {
+            pendingLock.unlock();
+        }
+
+        if (closed) {
+            // close() may have done its last flush already
+            flush();
+        }
+        if (mode == WriteBehindMode.ASYNC) {
+            if (pending.size() >= maxBatchSize) {
+                requestFlush();
+            }
+            return new Response(ResponseStatus.OK);
+        }
+
+        // group commit: first waiter flushes right away, records of creators, which come
+        // while it is flushing, are written together by next waiter
+        if (!batch.isDone()) {
+            flushLock.lock();
+            try {
+                if (!batch.isDone()) {
+                    flush();
+                }
+            } catch (RuntimeException e) {
+                // batch of this record is taken by this flush: its future gives error below
+            } finally {
+                flushLock.unlock();
+            }
+        }
+        try {
+            Response response = batch.get().get(key);
+            return response != null ? response : new Response(ResponseStatus.KO);
+        } catch (ExecutionException e) {
+            throw new DAOException("can't write batch of records", e.getCause());
+        } catch (InterruptedException e) {
+            // record is still written by flush, but caller doesn't wait for it
+            Thread.currentThread().interrupt();
+            throw new DAOException("interrupted while waiting for batch of records", e);
+        }
+    }
+
+    /**
+     * Reads pending record from in-memory index, or stored one from wrapped DAO.
+     */
+    @Override
+    public Response<V> read(K key) throws DAOException {
+        V value = key == null ? null : pending.get(key);
+        if (value != null) {
+            return new Response<>(ResponseStatus.OK, value);
+        }
+        return dao.read(key);
+    }
+
+    @Override
+    public Response<V> update(K key, V value) throws DAOException {
+        flushIfPending(key);
+        return dao.update(key, value);
+    }
+
+    @Override
+    public Response<V> delete(K key) throws DAOException {
+        flushIfPending(key);
+        return dao.delete(key);
+    }
+
+    @Override
+    public Set<K> getKeyset() throws DAOException {
+        flush();
+        return dao.getKeyset();
+    }
+
+    @Override
+    public Map<K, V> getAll() throws DAOException {
+        flush();
+        return dao.getAll();
+    }
+
+    @Override
+    public void forEachKey(Consumer<? super K> action) throws DAOException {
+        flush();
+        dao.forEachKey(action);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) throws DAOException {
+        flush();
+        dao.forEach(action);
+    }
+
+    @Override
+    public Map<K, V> readPage(K afterKey, int pageSize) throws DAOException {
+        flush();
+        return dao.readPage(afterKey, pageSize);
+    }
+
+    /**
+     * Writes records straight to wrapped DAO (after pending ones): they already are a batch.
+     */
+    @Override
+    public Map<K, Response> createAll(Map<K, V> records) throws DAOException {
+        flush();
+        return dao.createAll(records);
+    }
+
+    @Override
+    public Map<K, Response<V>> readAll(Collection<K> keys) throws DAOException {
+        flush();
+        return dao.readAll(keys);
+    }
+
+    @Override
+    public Map<K, Response<V>> updateAll(Map<K, V> records) throws DAOException {
+        flush();
+        return dao.updateAll(records);
+    }
+
+    @Override
+    public Map<K, Response<V>> deleteAll(Collection<K> keys) throws DAOException {
+        flush();
+        return dao.deleteAll(keys);
+    }
+
+    /**
+     * Writes all pending records to wrapped DAO with single createAll() call.
+     *
+     * @return number of written records.
+     * @throws DAOException if batch wasn't written (in ASYNC mode its records stay pending).
+     */
+    public int flush() throws DAOException {
+        flushLock.lock();
+        try {
+            Map<K, V> batch;
+            CompletableFuture<Map<K, Response>> batchFuture;
+            pendingLock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                batch = new LinkedHashMap<>(pending);
+                batchFuture = nextBatch;
+                nextBatch = new CompletableFuture<>();
+            } finally {
+                pendingLock.unlock();
+            }
+
+            Map<K, Response> responses;
+            try {
+                responses = dao.createAll(batch);
+            } catch (RuntimeException e) {
+                errorCount.increment();
+                if (mode == WriteBehindMode.GROUP_COMMIT) {
+                    // waiting creators get error, so their records must not be written later
+                    batch.forEach(pending::remove);
+                }
+                batchFuture.completeExceptionally(e);
+                throw e;
+            }
+
+            int written = 0;
+            for (Map.Entry<K, V> record : batch.entrySet()) {
+                pending.remove(record.getKey(), record.getValue());
+                Response response = responses.get(record.getKey());
+                if (response != null && response.getStatus() == ResponseStatus.OK) {
+                    written++;
+                } else if (mode == WriteBehindMode.ASYNC) {
+                    // TODO row below could be replaced with logger
+                    System.out.printf("WriteBehindDAO: acknowledged record \"%s\" was rejected on flush%n",
+                            record.getKey());
+                }
+            }
+            flushCount.increment();
+            flushedCount.add(written);
+            maxFlushedBatchSize.accumulateAndGet(batch.size(), Math::max);
+            batchFuture.complete(responses);
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stops background flushing and flushes all pending records.
+     *
+     * @throws DAOException if last batch wasn't written.
+     */
+    @Override
+    public void close() throws DAOException {
+        closed = true;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Returns number of records, which aren't written to wrapped DAO yet.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    public long getFlushedCount() {
+        return flushedCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public int getMaxFlushedBatchSize() {
+        return maxFlushedBatchSize.get();
+    }
+
+    /**
+     * Returns average number of records, written by one flush.
+     */
+    public double getAverageBatchSize() {
+        long count = flushCount.sum();
+        return count == 0 ? 0 : (double) flushedCount.sum() / count;
+    }
+
+    private void flushIfPending(K key) throws DAOException {
+        if (key != null && pending.containsKey(key)) {
+            flush();
+        }
+    }
+
+    /**
+     * Asks background thread to flush right away (at most one such request is queued).
+     */
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    flushRequested.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                // DAO is closed: close() flushes the rest
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Flush of background thread: error must not cancel next flushes, and isn't printed
+     * more often than once per ERROR_REPORT_INTERVAL_MILLIS (getErrorCount() counts all errors).
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            unreportedErrorCount++;
+            long now = System.currentTimeMillis();
+            if (now - lastErrorReportMillis >= ERROR_REPORT_INTERVAL_MILLIS) {
+                lastErrorReportMillis = now;
+                e.printStackTrace();
+                // TODO row below could be replaced with logger
+                System.out.printf("WriteBehindDAO: %d background flushes failed since last report%n",
+                        unreportedErrorCount);
+                unreportedErrorCount = 0;
+            }
+        }
+    }
+}
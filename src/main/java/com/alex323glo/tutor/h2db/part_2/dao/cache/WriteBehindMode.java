@@ -0,0 +1,24 @@
+package com.alex323glo.tutor.h2db.part_2.dao.cache;
+
+/**
+ * Acknowledgement (and crash) semantics of WriteBehindDAO.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see WriteBehindDAO
+ */
+public enum WriteBehindMode {
+
+    /**
+     * create() returns right after record is put into in-memory index. Records, which
+     * weren't flushed yet, are lost on crash; failed flush is retried by next flush.
+     */
+    ASYNC,
+
+    /**
+     * create() waits until batch with its record is committed by wrapped DAO, so no
+     * acknowledged record is lost on crash. Concurrent creates share one commit.
+     */
+    GROUP_COMMIT
+}
@@ -0,0 +1,418 @@
+package com.alex323glo.tutor.h2db.part_2.dao.memory;
+
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Durable storage of InMemoryDAO: snapshots of all records plus append-only logs
+ * of changes, made after each snapshot was started.
+ * <p>
+ * Files of one generation G are "snapshot-G.bin" (state, which includes all changes
+ * from logs of generations before G) and "changes-G.log". Snapshot is written while
+ * records keep changing, so it may already include some changes from "changes-G.log";
+ * that's fine, because each logged change sets absolute state of its key (put or remove)
+ * and changes of one key are logged in the order they were applied. Opposite case (change
+ * is logged to "changes-(G-1).log", but snapshot doesn't include it) must not happen, because
+ * that log is deleted after snapshot: so log must not be rotated, while some change is logged,
+ * but not yet applied to records (InMemoryDAO serializes writes with rotation by lock).
+ * <p>
+ * Changes are appended by caller threads to queue and written by single background
+ * writer thread, which flushes (and optionally forces to disk) file each time queue
+ * becomes empty (group commit). Each log record has CRC, so torn record at log tail
+ * (after crash) is detected and ignored on recovery.
+ *
+ * @param <K> type of key.
+ * @param <V> type of value.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see InMemoryDAO
+ */
+class ChangeLog<K, V> implements AutoCloseable {
+
+    private static final Pattern SNAPSHOT_FILE_PATTERN = Pattern.compile("snapshot-(\\d+)\\.bin");
+    private static final Pattern LOG_FILE_PATTERN = Pattern.compile("changes-(\\d+)\\.log");
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    private static final int SNAPSHOT_RESET_INTERVAL = 1000;
+    private static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+
+    private final File directory;
+    private final boolean forceToDisk;
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+
+    private volatile long generation;
+    private volatile IOException failure;
+
+    private static final class Change {
+        private final byte operation;
+        private final Object key;
+        private final Object value;
+
+        private Change(byte operation, Object key, Object value) {
+            this.operation = operation;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class Rotation {
+        private final long generation;
+
+        private Rotation(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Result of recovery.
+     */
+    static final class Recovery {
+        final long replayedCount;
+        final long lastGeneration;
+
+        private Recovery(long replayedCount, long lastGeneration) {
+            this.replayedCount = replayedCount;
+            this.lastGeneration = lastGeneration;
+        }
+    }
+
+    private static final class Barrier {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final boolean stop;
+
+        private Barrier(boolean stop) {
+            this.stop = stop;
+        }
+    }
+
+    /**
+     * Opens new log of generation, following all existent generations.
+     *
+     * @param directory   directory of snapshots and logs.
+     * @param generation  generation of new log (greater than generations of existent files).
+     * @param forceToDisk true, if log must be forced to disk on each group commit
+     *                    (otherwise it is only flushed to OS).
+     */
+    ChangeLog(File directory, long generation, boolean forceToDisk) throws DAOException {
+        this.directory = directory;
+        this.forceToDisk = forceToDisk;
+        this.generation = generation;
+
+        FileOutputStream fileOutputStream = openLog(generation);
+        writerThread = new Thread(() -> writeLoop(fileOutputStream), "in-memory-dao-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Recovers records from latest snapshot and all following logs.
+     *
+     * @param directory directory of snapshots and logs.
+     * @param put       action, which puts recovered record.
+     * @param remove    action, which removes recovered record.
+     * @param <K>       type of key.
+     * @param <V>       type of value.
+     * @return number of replayed log records and last existent generation (0, if directory is empty).
+     * @throws DAOException if snapshot or log can't be read.
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> Recovery recover(File directory, BiConsumer<K, V> put, Consumer<K> remove) throws DAOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new DAOException("can't create directory " + directory);
+        }
+
+        TreeMap<Long, File> snapshots = listFiles(directory, SNAPSHOT_FILE_PATTERN);
+        TreeMap<Long, File> logs = listFiles(directory, LOG_FILE_PATTERN);
+        long snapshotGeneration = snapshots.isEmpty() ? 0 : snapshots.lastKey();
+        long lastGeneration = Math.max(snapshotGeneration, logs.isEmpty() ? 0 : logs.lastKey());
+
+        try {
+            if (!snapshots.isEmpty()) {
+                try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(
+                        new FileInputStream(snapshots.lastEntry().getValue())))) {
+                    Object key;
+                    while ((key = input.readObject()) != null) {
+                        put.accept((K) key, (V) input.readObject());
+                    }
+                }
+            }
+
+            long replayedCount = 0;
+            for (File log : logs.tailMap(snapshotGeneration, true).values()) {
+                try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(log)))) {
+                    byte[] record;
+                    while ((record = readRecord(input)) != null) {
+                        try (ObjectInputStream recordInput = new ObjectInputStream(new ByteArrayInputStream(record))) {
+                            byte operation = recordInput.readByte();
+                            K key = (K) recordInput.readObject();
+                            if (operation == PUT) {
+                                put.accept(key, (V) recordInput.readObject());
+                            } else {
+                                remove.accept(key);
+                            }
+                        }
+                        replayedCount++;
+                    }
+                }
+            }
+            return new Recovery(replayedCount, lastGeneration);
+        } catch (IOException | ClassNotFoundException e) {
+            e.printStackTrace();
+            throw new DAOException("can't recover records from " + directory, e);
+        }
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Appends change "key has value" to log.
+     */
+    void put(K key, V value) {
+        queue.add(new Change(PUT, key, value));
+    }
+
+    /**
+     * Appends change "key is removed" to log.
+     */
+    void remove(K key) {
+        queue.add(new Change(REMOVE, key, null));
+    }
+
+    /**
+     * Switches log to next generation. Changes, appended after this call,
+     * are written to log of returned generation. All changes, appended before it,
+     * must be already applied to records, which will be written by writeSnapshot().
+     *
+     * @return new generation.
+     */
+    long rotate() {
+        long newGeneration = generation + 1;
+        queue.add(new Rotation(newGeneration));
+        generation = newGeneration;
+        return newGeneration;
+    }
+
+    /**
+     * Waits until all appended changes are written.
+     *
+     * @throws DAOException if log can't be written.
+     */
+    void flush() throws DAOException {
+        await(new Barrier(false));
+        checkFailure();
+    }
+
+    /**
+     * Writes snapshot of records and then deletes files of previous generations
+     * (flush() must be called after rotate(), so writer doesn't use deleted log any more).
+     */
+    void writeSnapshot(long snapshotGeneration, Map<K, V> records) throws DAOException {
+        File tempFile = new File(directory, "snapshot-" + snapshotGeneration + ".tmp");
+        try {
+            try (FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+                 ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(fileOutputStream))) {
+                int count = 0;
+                for (Map.Entry<K, V> record : records.entrySet()) {
+                    output.writeObject(record.getKey());
+                    output.writeObject(record.getValue());
+                    if (++count % SNAPSHOT_RESET_INTERVAL == 0) {
+                        output.reset();     // don't keep references to all written objects
+                    }
+                }
+                output.writeObject(null);
+                output.flush();
+                fileOutputStream.getFD().sync();
+            }
+            Files.move(tempFile.toPath(), new File(directory, "snapshot-" + snapshotGeneration + ".bin").toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DAOException("can't write snapshot to " + directory, e);
+        }
+
+        for (File file : listFiles(directory, SNAPSHOT_FILE_PATTERN).headMap(snapshotGeneration).values()) {
+            file.delete();
+        }
+        for (File file : listFiles(directory, LOG_FILE_PATTERN).headMap(snapshotGeneration).values()) {
+            file.delete();
+        }
+    }
+
+    void checkFailure() throws DAOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new DAOException("can't write change log", e);
+        }
+    }
+
+    /**
+     * Writes all appended changes and stops writer thread.
+     */
+    @Override
+    public void close() throws DAOException {
+        if (writerThread.isAlive()) {
+            await(new Barrier(true));
+        }
+        checkFailure();
+    }
+
+    private void await(Barrier barrier) throws DAOException {
+        queue.add(barrier);
+        try {
+            barrier.latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DAOException("interrupted while waiting for change log", e);
+        }
+    }
+
+    private void writeLoop(FileOutputStream fileOutputStream) {
+        FileOutputStream currentFile = fileOutputStream;
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(currentFile));
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        CRC32 crc = new CRC32();
+
+        while (true) {
+            Object item;
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                continue;   // writer is stopped only by stop barrier
+            }
+
+            try {
+                if (failure == null) {
+                    if (item instanceof Change) {
+                        Change change = (Change) item;
+                        recordBytes.reset();
+                        try (ObjectOutputStream recordOutput = new ObjectOutputStream(recordBytes)) {
+                            recordOutput.writeByte(change.operation);
+                            recordOutput.writeObject(change.key);
+                            if (change.operation == PUT) {
+                                recordOutput.writeObject(change.value);
+                            }
+                        }
+                        crc.reset();
+                        crc.update(recordBytes.toByteArray(), 0, recordBytes.size());
+                        output.writeInt(recordBytes.size());
+                        output.writeInt((int) crc.getValue());
+                        recordBytes.writeTo(output);
+                    } else if (item instanceof Rotation) {
+                        commit(output, currentFile);
+                        output.close();
+                        currentFile = openLog(((Rotation) item).generation);
+                        output = new DataOutputStream(new BufferedOutputStream(currentFile));
+                    }
+                }
+
+                if (queue.isEmpty() || item instanceof Barrier) {
+                    commit(output, currentFile);
+                }
+            } catch (IOException | DAOException e) {
+                e.printStackTrace();
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            }
+
+            if (item instanceof Barrier) {
+                Barrier barrier = (Barrier) item;
+                if (barrier.stop) {
+                    try {
+                        output.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+                barrier.latch.countDown();
+                if (barrier.stop) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void commit(DataOutputStream output, FileOutputStream file) throws IOException {
+        if (failure != null) {
+            return;
+        }
+        output.flush();
+        if (forceToDisk) {
+            file.getChannel().force(false);
+        }
+    }
+
+    private FileOutputStream openLog(long logGeneration) throws DAOException {
+        File logFile = new File(directory, "changes-" + logGeneration + ".log");
+        try {
+            return new FileOutputStream(logFile, true);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DAOException("can't open change log " + logFile, e);
+        }
+    }
+
+    /**
+     * Reads one record. Returns Null at end of log or at torn (incomplete or corrupted) record.
+     */
+    private static byte[] readRecord(DataInputStream input) throws IOException {
+        try {
+            int length = input.readInt();
+            int expectedCrc = input.readInt();
+            if (length < 0 || length > MAX_RECORD_LENGTH) {
+                return null;
+            }
+            byte[] record = new byte[length];
+            input.readFully(record);
+
+            CRC32 crc = new CRC32();
+            crc.update(record, 0, length);
+            return (int) crc.getValue() == expectedCrc ? record : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static TreeMap<Long, File> listFiles(File directory, Pattern pattern) {
+        TreeMap<Long, File> files = new TreeMap<>();
+        File[] directoryFiles = directory.listFiles();
+        if (directoryFiles != null) {
+            for (File file : directoryFiles) {
+                Matcher matcher = pattern.matcher(file.getName());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), file);
+                }
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,399 @@
+package com.alex323glo.tutor.h2db.part_2.dao.memory;
+
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.response.Response;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * DAO implementation, which keeps all records in ConcurrentHashMap (plus ConcurrentSkipListSet
+ * of keys for ordered pages). Reads never lock; writes of one key are serialized by the map.
+ * Can be used instead of H2 DAOs for data sets, which fit in memory.
+ * <p>
+ * If directory is set, DAO is durable: each change is appended to ChangeLog (asynchronously,
+ * by background writer), and snapshots of all records are written periodically (or on
+ * snapshot() call) without blocking reads and writes. On construction, records are
+ * recovered from latest snapshot and following logs; recovery time is kept as metric.
+ * Changes, which were not written by log writer before crash, are lost (call flush()
+ * to wait for them).
+ * <p>
+ * Stored values are shared with callers, so they must not be modified.
+ *
+ * @param <K> type of key (must be Serializable for durable DAO).
+ * @param <V> type of value (must be Serializable for durable DAO).
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO
+ * @see ChangeLog
+ */
+public class InMemoryDAO<K extends Comparable<? super K>, V> implements DAO<K, V>, AutoCloseable {
+
+    private final ConcurrentHashMap<K, V> records = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<K> keys = new ConcurrentSkipListSet<>();
+
+    private final ChangeLog<K, V> changeLog;
+    // writes of durable DAO hold read lock, while change is logged and applied to map, and
+    // snapshot() rotates log under write lock: so snapshot sees each change of previous log
+    private final ReentrantReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    // ReentrantLocks (not synchronized) around file I/O, so waiting virtual threads don't pin carriers
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final ReentrantLock lifecycleLock = new ReentrantLock();
+    private ScheduledExecutorService snapshotExecutor;
+
+    private final long recoveryNanos;
+    private final long recoveredCount;
+    private final long replayedCount;
+    private final LongAdder snapshotCount = new LongAdder();
+    private volatile long lastSnapshotNanos;
+
+    /**
+     * Creates not durable DAO.
+     */
+    public InMemoryDAO() {
+        changeLog = null;
+        recoveryNanos = 0;
+        recoveredCount = 0;
+        replayedCount = 0;
+    }
+
+    /**
+     * Creates durable DAO and recovers its records from directory.
+     *
+     * @param directory   directory of snapshots and change logs (created, if it doesn't exist).
+     * @param forceToDisk true, if change log must be forced to disk (fsync) on each group commit,
+     *                    or false, if it must be only flushed to OS.
+     * @throws DAOException if records can't be recovered.
+     */
+    public InMemoryDAO(File directory, boolean forceToDisk) throws DAOException {
+        if (directory == null) {
+            throw new NullPointerException("directory is null");
+        }
+
+        long start = System.nanoTime();
+        ChangeLog.Recovery recovery = ChangeLog.recover(directory,
+                (K key, V value) -> {
+                    records.put(key, value);
+                    keys.add(key);
+                },
+                key -> {
+                    records.remove(key);
+                    keys.remove(key);
+                });
+        recoveryNanos = System.nanoTime() - start;
+        recoveredCount = records.size();
+        replayedCount = recovery.replayedCount;
+
+        // new log generation: tail of previous log may be torn
+        changeLog = new ChangeLog<>(directory, recovery.lastGeneration + 1, forceToDisk);
+    }
+
+    @Override
+    public Response create(K key, V value) throws DAOException {
+        checkRecord(key, value);
+
+        boolean[] created = new boolean[1];
+        lockChange();
+        try {
+            records.compute(key, (existentKey, oldValue) -> {
+                if (oldValue != null) {
+                    return oldValue;
+                }
+                keys.add(existentKey);
+                logPut(existentKey, value);
+                created[0] = true;
+                return value;
+            });
+        } finally {
+            unlockChange();
+        }
+        return new Response(created[0] ? ResponseStatus.OK : ResponseStatus.KO);
+    }
+
+    @Override
+    public Response<V> read(K key) throws DAOException {
+        checkKey(key);
+        return toResponse(records.get(key));
+    }
+
+    @Override
+    public Response<V> update(K key, V value) throws DAOException {
+        checkRecord(key, value);
+
+        Object[] oldValues = new Object[1];
+        lockChange();
+        try {
+            records.computeIfPresent(key, (existentKey, oldValue) -> {
+                logPut(existentKey, value);
+                oldValues[0] = oldValue;
+                return value;
+            });
+        } finally {
+            unlockChange();
+        }
+        return toResponse(cast(oldValues[0]));
+    }
+
+    @Override
+    public Response<V> delete(K key) throws DAOException {
+        checkKey(key);
+
+        Object[] removedValues = new Object[1];
+        lockChange();
+        try {
+            records.computeIfPresent(key, (existentKey, oldValue) -> {
+                keys.remove(existentKey);
+                logRemove(existentKey);
+                removedValues[0] = oldValue;
+                return null;
+            });
+        } finally {
+            unlockChange();
+        }
+        return toResponse(cast(removedValues[0]));
+    }
+
+    @Override
+    public Set<K> getKeyset() throws DAOException {
+        return new HashSet<>(records.keySet());
+    }
+
+    @Override
+    public Map<K, V> getAll() throws DAOException {
+        return new HashMap<>(records);
+    }
+
+    @Override
+    public void forEachKey(Consumer<? super K> action) throws DAOException {
+        records.keySet().forEach(action);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) throws DAOException {
+        records.forEach(action);
+    }
+
+    /**
+     * Reads page of records from sorted set of keys, so cost of page doesn't depend on its depth.
+     */
+    @Override
+    public Map<K, V> readPage(K afterKey, int pageSize) throws DAOException {
+        if (pageSize < 1) {
+            throw new DAOException("wrong pageSize: " + pageSize);
+        }
+
+        Map<K, V> page = new LinkedHashMap<>();
+        for (K key : afterKey == null ? keys : keys.tailSet(afterKey, false)) {
+            if (page.size() == pageSize) {
+                break;
+            }
+            V value = records.get(key);
+            if (value != null) {
+                page.put(key, value);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Writes snapshot of all records and deletes older snapshots and logs.
+     * Reads and writes are not blocked meanwhile.
+     *
+     * @throws DAOException if DAO is not durable or snapshot can't be written.
+     */
+    public void snapshot() throws DAOException {
+        if (changeLog == null) {
+            throw new DAOException("DAO is not durable");
+        }
+
+        snapshotLock.lock();
+        try {
+            long start = System.nanoTime();
+            long snapshotGeneration;
+            // change, logged to previous log, but not yet applied, would be missed by snapshot
+            rotationLock.writeLock().lock();
+            try {
+                snapshotGeneration = changeLog.rotate();
+            } finally {
+                rotationLock.writeLock().unlock();
+            }
+            changeLog.flush();
+            changeLog.writeSnapshot(snapshotGeneration, records);
+            lastSnapshotNanos = System.nanoTime() - start;
+            snapshotCount.increment();
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Starts periodic snapshots in background (daemon) thread.
+     *
+     * @param periodMillis delay between end of one snapshot and start of the next one.
+     * @throws DAOException if DAO is not durable.
+     */
+    public void startSnapshots(long periodMillis) throws DAOException {
+        if (changeLog == null) {
+            throw new DAOException("DAO is not durable");
+        }
+        if (periodMillis < 1) {
+            throw new IllegalArgumentException("wrong periodMillis: " + periodMillis);
+        }
+
+        lifecycleLock.lock();
+        try {
+            if (snapshotExecutor != null) {
+                throw new IllegalStateException("snapshots are already started");
+            }
+
+            snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "in-memory-dao-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotExecutor.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshot();
+                } catch (RuntimeException e) {
+                    // error must not cancel next snapshots
+                    e.printStackTrace();
+                }
+            }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all changes are written to change log.
+     *
+     * @throws DAOException if change log can't be written.
+     */
+    public void flush() throws DAOException {
+        if (changeLog != null) {
+            changeLog.flush();
+        }
+    }
+
+    /**
+     * Stops periodic snapshots and writes all changes to change log.
+     *
+     * @throws DAOException if change log can't be written.
+     */
+    @Override
+    public void close() throws DAOException {
+        lifecycleLock.lock();
+        try {
+            if (snapshotExecutor != null) {
+                snapshotExecutor.shutdown();
+                try {
+                    snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                snapshotExecutor = null;
+            }
+            if (changeLog != null) {
+                changeLog.close();
+            }
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * Returns time of recovery of records on construction.
+     *
+     * @return recovery time in nanoseconds.
+     */
+    public long getRecoveryNanos() {
+        return recoveryNanos;
+    }
+
+    public long getRecoveredCount() {
+        return recoveredCount;
+    }
+
+    public long getReplayedCount() {
+        return replayedCount;
+    }
+
+    public long getSnapshotCount() {
+        return snapshotCount.sum();
+    }
+
+    public long getLastSnapshotNanos() {
+        return lastSnapshotNanos;
+    }
+
+    private void lockChange() {
+        if (changeLog != null) {
+            rotationLock.readLock().lock();
+        }
+    }
+
+    private void unlockChange() {
+        if (changeLog != null) {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    private void logPut(K key, V value) {
+        if (changeLog != null) {
+            changeLog.put(key, value);
+        }
+    }
+
+    private void logRemove(K key) {
+        if (changeLog != null) {
+            changeLog.remove(key);
+        }
+    }
+
+    private void checkKey(K key) throws DAOException {
+        if (key == null) {
+            throw new DAOException("key is null");
+        }
+    }
+
+    private void checkRecord(K key, V value) throws DAOException {
+        checkKey(key);
+        if (value == null) {
+            throw new DAOException("value is null");
+        }
+        if (changeLog != null) {
+            changeLog.checkFailure();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V cast(Object value) {
+        return (V) value;
+    }
+
+    private Response<V> toResponse(V value) {
+        return value == null ? new Response<V>(ResponseStatus.KO) : new Response<V>(ResponseStatus.OK, value);
+    }
+}
@@ -0,0 +1,555 @@
+package com.alex323glo.tutor.h2db.part_2.dao.memory;
+
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.response.Response;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Access Token DAO, which keeps tokens off heap: in fixed-width records of memory-mapped
+ * file, which is at the same time open addressing (linear probing) hash table of tokens
+ * and persistence format. There are no per-token Java objects: lookup compares 128-bit
+ * TokenId with record in place, and read() allocates only returned AccessToken (with its Strings).
+ * <p>
+ * Capacity is fixed on file creation (table is never resized): create() of new token fails
+ * with DAOException, when table is full. Deleted records become tombstones, which are reused
+ * by following inserts. Tombstones count as used slots in load factor: insert, which would
+ * take the last free slot of load factor, first rehashes table in place (tombstones become
+ * empty slots), so probe sequences of misses stay short after any number of login/logout
+ * cycles. Changes survive process crash (they are in OS page cache); flush() forces them
+ * to disk (crash in the middle of rehash may lose tokens, which were being moved).
+ * <p>
+ * Writes are serialized by one StampedLock; reads are optimistic and don't block.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO
+ * @see AccessToken
+ */
+public class MappedAccessTokenDAO implements DAO<TokenId, AccessToken>, AutoCloseable {
+
+    public static final int MAX_USERNAME_LENGTH = 64;
+
+    private static final int MAGIC = 0x41544b31;     // "ATK1"
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    // file header
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_RECORD_SIZE = 4;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_SIZE_COUNT = 12;
+    private static final int HEADER_TOMBSTONE_COUNT = 16;
+
+    // record (username is stored as UTF-16 chars)
+    private static final byte EMPTY = 0;
+    private static final byte USED = 1;
+    private static final byte DELETED = 2;
+    private static final int RECORD_STATE = 0;
+    private static final int RECORD_TYPE = 1;
+    private static final int RECORD_USERNAME_LENGTH = 2;
+    private static final int RECORD_HASH = 4;
+    private static final int RECORD_TOKEN_HIGH = 8;
+    private static final int RECORD_TOKEN_LOW = 16;
+    private static final int RECORD_EXPIRES_AT = 24;
+    private static final int RECORD_USERNAME = 32;
+    private static final int RECORD_SIZE = RECORD_USERNAME + 2 * MAX_USERNAME_LENGTH;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+    private final int recordsPerSegment;
+    private final int capacity;
+    private final int mask;
+    private final int maxSize;
+
+    private final StampedLock lock = new StampedLock();
+    private int size;
+    private int tombstoneCount;
+
+    /**
+     * Opens token file or creates new one.
+     *
+     * @param file     token file.
+     * @param maxSize  max number of tokens (used only when new file is created).
+     * @throws DAOException if file can't be mapped or has wrong format.
+     */
+    public MappedAccessTokenDAO(File file, int maxSize) throws DAOException {
+        if (file == null) {
+            throw new NullPointerException("file is null");
+        }
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("wrong maxSize: " + maxSize);
+        }
+        this.file = file;
+
+        try {
+            boolean newFile = !file.exists() || file.length() == 0;
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            FileChannel channel = randomAccessFile.getChannel();
+
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (newFile) {
+                int tableSize = 2;
+                while (tableSize < (1 << 30) && tableSize * MAX_LOAD_FACTOR < maxSize) {
+                    tableSize <<= 1;
+                }
+                header.putInt(HEADER_MAGIC, MAGIC);
+                header.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+                header.putInt(HEADER_CAPACITY, tableSize);
+                header.putInt(HEADER_SIZE_COUNT, 0);
+                header.putInt(HEADER_TOMBSTONE_COUNT, 0);
+            } else if (header.getInt(HEADER_MAGIC) != MAGIC || header.getInt(HEADER_RECORD_SIZE) != RECORD_SIZE) {
+                throw new DAOException("wrong format of token file " + file);
+            }
+
+            capacity = header.getInt(HEADER_CAPACITY);
+            mask = capacity - 1;
+            this.maxSize = (int) (capacity * MAX_LOAD_FACTOR);
+            size = header.getInt(HEADER_SIZE_COUNT);
+            tombstoneCount = header.getInt(HEADER_TOMBSTONE_COUNT);
+
+            recordsPerSegment = (int) Math.min(capacity, MAX_SEGMENT_BYTES / RECORD_SIZE);
+            segments = new MappedByteBuffer[(capacity + recordsPerSegment - 1) / recordsPerSegment];
+            for (int i = 0; i < segments.length; i++) {
+                long records = Math.min(recordsPerSegment, capacity - (long) i * recordsPerSegment);
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_SIZE + (long) i * recordsPerSegment * RECORD_SIZE, records * RECORD_SIZE);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DAOException("can't map token file " + file, e);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int getTombstoneCount() {
+        long stamp = lock.readLock();
+        try {
+            return tombstoneCount;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Response create(TokenId key, AccessToken value) throws DAOException {
+        checkRecord(key, value);
+
+        long stamp = lock.writeLock();
+        try {
+            int hash = hash(key);
+            int freeSlot = -1;
+            for (int probe = 0, slot = hash & mask; probe < capacity; probe++, slot = (slot + 1) & mask) {
+                byte state = segment(slot).get(offset(slot) + RECORD_STATE);
+                if (state == EMPTY) {
+                    if (freeSlot < 0) {
+                        freeSlot = slot;
+                    }
+                    break;
+                }
+                if (state == DELETED) {
+                    if (freeSlot < 0) {
+                        freeSlot = slot;
+                    }
+                } else if (keyEquals(slot, hash, key)) {
+                    return new Response(ResponseStatus.KO);
+                }
+            }
+
+            if (size >= maxSize || freeSlot < 0) {
+                throw new DAOException("token file " + file + " is full (" + size + " tokens)");
+            }
+            if (segment(freeSlot).get(offset(freeSlot) + RECORD_STATE) == EMPTY
+                    && size + tombstoneCount >= maxSize) {
+                rehash();
+                freeSlot = findFreeSlot(hash);
+            }
+
+            if (segment(freeSlot).get(offset(freeSlot) + RECORD_STATE) == DELETED) {
+                tombstoneCount--;
+            }
+            writeRecord(freeSlot, hash, key, value);
+            size++;
+            writeCounts();
+            return new Response(ResponseStatus.OK);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Response<AccessToken> read(TokenId key) throws DAOException {
+        checkKey(key);
+
+        long stamp = lock.tryOptimisticRead();
+        AccessToken accessToken = null;
+        if (stamp != 0) {
+            try {
+                accessToken = find(key);
+            } catch (RuntimeException e) {
+                // record was changed while it was read optimistically
+                stamp = 0;
+            }
+        }
+        if (stamp == 0 || !lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                accessToken = find(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return toResponse(accessToken);
+    }
+
+    @Override
+    public Response<AccessToken> update(TokenId key, AccessToken value) throws DAOException {
+        checkRecord(key, value);
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(key);
+            if (slot < 0) {
+                return new Response<AccessToken>(ResponseStatus.KO);
+            }
+            AccessToken oldValue = readRecord(slot);
+            writeRecord(slot, hash(key), key, value);
+            return new Response<AccessToken>(ResponseStatus.OK, oldValue);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Response<AccessToken> delete(TokenId key) throws DAOException {
+        checkKey(key);
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = findSlot(key);
+            if (slot < 0) {
+                return new Response<AccessToken>(ResponseStatus.KO);
+            }
+            AccessToken removedValue = readRecord(slot);
+            segment(slot).put(offset(slot) + RECORD_STATE, DELETED);
+            size--;
+            tombstoneCount++;
+            writeCounts();
+            return new Response<AccessToken>(ResponseStatus.OK, removedValue);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Set<TokenId> getKeyset() throws DAOException {
+        Set<TokenId> keys = new HashSet<>();
+        forEachKey(keys::add);
+        return keys;
+    }
+
+    @Override
+    public Map<TokenId, AccessToken> getAll() throws DAOException {
+        Map<TokenId, AccessToken> records = new HashMap<>();
+        forEach(records::put);
+        return records;
+    }
+
+    @Override
+    public void forEachKey(Consumer<? super TokenId> action) throws DAOException {
+        forEach((key, value) -> action.accept(key));
+    }
+
+    /**
+     * Passes all tokens to action, slot by slot (each slot is read under read lock,
+     * which is released before action is called, so action may change this DAO).
+     */
+    @Override
+    public void forEach(BiConsumer<? super TokenId, ? super AccessToken> action) throws DAOException {
+        for (int slot = 0; slot < capacity; slot++) {
+            AccessToken accessToken = null;
+            long stamp = lock.readLock();
+            try {
+                if (segment(slot).get(offset(slot) + RECORD_STATE) == USED) {
+                    accessToken = readRecord(slot);
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            if (accessToken != null) {
+                action.accept(accessToken.getToken(), accessToken);
+            }
+        }
+    }
+
+    /**
+     * Forces all changes to disk.
+     *
+     * @throws DAOException if file can't be written.
+     */
+    public void flush() throws DAOException {
+        long stamp = lock.readLock();
+        try {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            header.force();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Forces all changes to disk and closes file. Mapping itself is released by GC.
+     *
+     * @throws DAOException if file can't be written or closed.
+     */
+    @Override
+    public void close() throws DAOException {
+        flush();
+        try {
+            randomAccessFile.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DAOException("can't close token file " + file, e);
+        }
+    }
+
+    private AccessToken find(TokenId key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : readRecord(slot);
+    }
+
+    /**
+     * Returns number of slots, which lookup of key visits.
+     */
+    int getProbeLength(TokenId key) {
+        long stamp = lock.readLock();
+        try {
+            int hash = hash(key);
+            int probe = 0;
+            for (int slot = hash & mask; probe < capacity; slot = (slot + 1) & mask) {
+                probe++;
+                byte state = segment(slot).get(offset(slot) + RECORD_STATE);
+                if (state == EMPTY || (state == USED && keyEquals(slot, hash, key))) {
+                    break;
+                }
+            }
+            return probe;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Turns all tombstones into empty slots and moves records, which became unreachable
+     * from their home slots, back into their probe sequences (in place, under write lock).
+     */
+    private void rehash() {
+        for (int slot = 0; slot < capacity; slot++) {
+            if (segment(slot).get(offset(slot) + RECORD_STATE) == DELETED) {
+                segment(slot).put(offset(slot) + RECORD_STATE, EMPTY);
+            }
+        }
+        tombstoneCount = 0;
+        writeCounts();
+
+        // start right after empty slot (exists, because size < capacity), so every record
+        // is moved only after records, which precede it in its cluster
+        int start = 0;
+        while (segment(start).get(offset(start) + RECORD_STATE) != EMPTY) {
+            start++;
+        }
+        for (int i = 1; i <= capacity; i++) {
+            int slot = (start + i) & mask;
+            if (segment(slot).get(offset(slot) + RECORD_STATE) != USED) {
+                continue;
+            }
+            int target = findFreeSlotBefore(segment(slot).getInt(offset(slot) + RECORD_HASH), slot);
+            if (target != slot) {
+                copyRecord(slot, target);
+                segment(slot).put(offset(slot) + RECORD_STATE, EMPTY);
+            }
+        }
+    }
+
+    private int findFreeSlot(int hash) {
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            if (segment(slot).get(offset(slot) + RECORD_STATE) != USED) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Returns first empty slot of probe sequence of hash, or slot itself, if there is none before it.
+     */
+    private int findFreeSlotBefore(int hash, int slot) {
+        for (int candidate = hash & mask; candidate != slot; candidate = (candidate + 1) & mask) {
+            if (segment(candidate).get(offset(candidate) + RECORD_STATE) == EMPTY) {
+                return candidate;
+            }
+        }
+        return slot;
+    }
+
+    private void copyRecord(int fromSlot, int toSlot) {
+        MappedByteBuffer from = segment(fromSlot);
+        MappedByteBuffer to = segment(toSlot);
+        int fromOffset = offset(fromSlot);
+        int toOffset = offset(toSlot);
+        for (int i = RECORD_STATE + 1; i < RECORD_SIZE; i++) {
+            to.put(toOffset + i, from.get(fromOffset + i));
+        }
+        // state is written last, so record never looks used before it is complete
+        to.put(toOffset + RECORD_STATE, USED);
+    }
+
+    private int findSlot(TokenId key) {
+        int hash = hash(key);
+        for (int probe = 0, slot = hash & mask; probe < capacity; probe++, slot = (slot + 1) & mask) {
+            byte state = segment(slot).get(offset(slot) + RECORD_STATE);
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state == USED && keyEquals(slot, hash, key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(int slot, int hash, TokenId key) {
+        MappedByteBuffer segment = segment(slot);
+        int offset = offset(slot);
+        return segment.getInt(offset + RECORD_HASH) == hash
+                && segment.getLong(offset + RECORD_TOKEN_HIGH) == key.getMostSignificantBits()
+                && segment.getLong(offset + RECORD_TOKEN_LOW) == key.getLeastSignificantBits();
+    }
+
+    private AccessToken readRecord(int slot) {
+        MappedByteBuffer segment = segment(slot);
+        int offset = offset(slot);
+        byte typeCode = segment.get(offset + RECORD_TYPE);
+        return new AccessToken(
+                new TokenId(segment.getLong(offset + RECORD_TOKEN_HIGH), segment.getLong(offset + RECORD_TOKEN_LOW)),
+                readString(segment, offset + RECORD_USERNAME, segment.getShort(offset + RECORD_USERNAME_LENGTH)),
+                typeCode < 0 ? null : UserType.fromCode(typeCode),
+                segment.getLong(offset + RECORD_EXPIRES_AT)
+        );
+    }
+
+    private void writeRecord(int slot, int hash, TokenId key, AccessToken value) {
+        MappedByteBuffer segment = segment(slot);
+        int offset = offset(slot);
+        segment.put(offset + RECORD_TYPE, value.getType() == null ? -1 : (byte) value.getType().getCode());
+        segment.putInt(offset + RECORD_HASH, hash);
+        segment.putLong(offset + RECORD_EXPIRES_AT, value.getExpiresAt());
+        segment.putLong(offset + RECORD_TOKEN_HIGH, key.getMostSignificantBits());
+        segment.putLong(offset + RECORD_TOKEN_LOW, key.getLeastSignificantBits());
+        writeString(segment, offset + RECORD_USERNAME_LENGTH, offset + RECORD_USERNAME, value.getUsername());
+        // state is written last, so record never looks used before it is complete
+        segment.put(offset + RECORD_STATE, USED);
+    }
+
+    private static String readString(MappedByteBuffer segment, int offset, short length) {
+        if (length < 0) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = segment.getChar(offset + 2 * i);
+        }
+        return new String(chars);
+    }
+
+    private static void writeString(MappedByteBuffer segment, int lengthOffset, int offset, String value) {
+        if (value == null) {
+            segment.putShort(lengthOffset, (short) -1);
+            return;
+        }
+        segment.putShort(lengthOffset, (short) value.length());
+        for (int i = 0; i < value.length(); i++) {
+            segment.putChar(offset + 2 * i, value.charAt(i));
+        }
+    }
+
+    private void writeCounts() {
+        header.putInt(HEADER_SIZE_COUNT, size);
+        header.putInt(HEADER_TOMBSTONE_COUNT, tombstoneCount);
+    }
+
+    private MappedByteBuffer segment(int slot) {
+        return segments[slot / recordsPerSegment];
+    }
+
+    private int offset(int slot) {
+        return (slot % recordsPerSegment) * RECORD_SIZE;
+    }
+
+    private static int hash(TokenId key) {
+        int hash = key.hashCode() * 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static void checkKey(TokenId key) throws DAOException {
+        if (key == null) {
+            throw new DAOException("key is null");
+        }
+    }
+
+    private static void checkRecord(TokenId key, AccessToken value) throws DAOException {
+        checkKey(key);
+        if (value == null) {
+            throw new DAOException("value is null");
+        }
+        if (value.getUsername() != null && value.getUsername().length() > MAX_USERNAME_LENGTH) {
+            throw new DAOException("username is longer than " + MAX_USERNAME_LENGTH + " chars");
+        }
+    }
+
+    private static Response<AccessToken> toResponse(AccessToken value) {
+        return value == null ?
+                new Response<AccessToken>(ResponseStatus.KO) : new Response<AccessToken>(ResponseStatus.OK, value);
+    }
+}
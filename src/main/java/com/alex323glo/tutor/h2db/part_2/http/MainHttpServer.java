@@ -0,0 +1,373 @@
+package com.alex323glo.tutor.h2db.part_2.http;
+
+import com.alex323glo.tutor.h2db.part_2.controller.MainController;
+import com.alex323glo.tutor.h2db.part_2.exception.AppException;
+import com.alex323glo.tutor.h2db.part_2.exception.ValidationException;
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embedded HTTP/1.1 front end of MainController, built on JDK HttpServer
+ * (persistent keep-alive connections, one selector thread). Requests are handled
+ * on given executor (usually bounded DAOExecutor); request, which is rejected by
+ * executor, gets "503 Service Unavailable" right away.
+ * <p>
+ * Routes (parameters are form fields of POST body or query parameters;
+ * access token is sent as "Authorization: Bearer &lt;token&gt;" header):
+ * <ul>
+ * <li>POST /register (username, password) - 200 {"accessToken": ...} or 409;</li>
+ * <li>POST /login (username, password) - 200 {"accessToken": ...} or 401;</li>
+ * <li>POST /logout - 204 or 401;</li>
+ * <li>GET /user - 200 user JSON or 403;</li>
+ * <li>GET /users [cursor, pageSize] - 200 JSON of all users (streamed straight to socket)
+ * or of one page (if pageSize is set), or 403.</li>
+ * </ul>
+ * Responses are UTF-8 JSON; errors are {"error": message} with 400 (validation) or 500.
+ * If request fails after response was started (e.g. while all users are streamed),
+ * connection is closed without end of response, so client can't take truncated body
+ * for complete one.
+ * <p>
+ * Precondition: JDK HttpServer writes headers and body of response separately, so without
+ * TCP_NODELAY each keep-alive request waits for delayed ACK of client (about 40ms on loopback).
+ * Application should start with "-Dsun.net.httpserver.nodelay=true" (or set NO_DELAY_PROPERTY
+ * before first JDK HttpServer is created): property is global for all JDK HttpServers
+ * of process and is read once, so server doesn't set it itself.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see MainController
+ * @see com.alex323glo.tutor.h2db.part_2.controller.DAOExecutor
+ */
+public class MainHttpServer implements AutoCloseable {
+
+    public static final int MAX_BODY_SIZE = 8 * 1024;
+    public static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String GET = "GET";
+    private static final String POST = "POST";
+
+    // set (on server dispatcher thread) while rejected request is answered
+    private static final ThreadLocal<Boolean> OVERLOADED = ThreadLocal.withInitial(() -> false);
+
+    private final MainController mainController;
+    private final HttpServer server;
+    private final Gson gson = new Gson();
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+
+    /**
+     * Handler of one route.
+     */
+    private interface Route {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Creates (not started) server.
+     *
+     * @param mainController controller, which handles requests.
+     * @param address        address to bind (port 0 means any free port).
+     * @param executor       executor of request handlers.
+     * @throws AppException if server can't be bound to address.
+     */
+    public MainHttpServer(MainController mainController, InetSocketAddress address, Executor executor)
+            throws AppException {
+        if (mainController == null) {
+            throw new NullPointerException("mainController is null");
+        }
+        if (address == null) {
+            throw new NullPointerException("address is null");
+        }
+        if (executor == null) {
+            throw new NullPointerException("executor is null");
+        }
+        this.mainController = mainController;
+
+        try {
+            server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new AppException("can't bind HTTP server to " + address, e);
+        }
+        server.setExecutor(task -> {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                OVERLOADED.set(true);
+                try {
+                    task.run();
+                } finally {
+                    OVERLOADED.remove();
+                }
+            }
+        });
+
+        route("/register", POST, this::register);
+        route("/login", POST, this::login);
+        route("/logout", POST, this::logout);
+        route("/user", GET, this::getUser);
+        route("/users", GET, this::getUsers);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /**
+     * Stops server right away (exchanges in progress are closed).
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void register(HttpExchange exchange) throws IOException {
+        Map<String, String> params = readParams(exchange);
+        String accessToken = mainController.register(params.get("username"), params.get("password"));
+        if (accessToken == null) {
+            sendError(exchange, 409, "user already exists");
+            return;
+        }
+        sendJSON(exchange, 200, gson.toJson(Collections.singletonMap("accessToken", accessToken)));
+    }
+
+    private void login(HttpExchange exchange) throws IOException {
+        Map<String, String> params = readParams(exchange);
+        String accessToken = mainController.login(params.get("username"), params.get("password"));
+        if (accessToken == null) {
+            sendError(exchange, 401, "wrong username or password");
+            return;
+        }
+        sendJSON(exchange, 200, gson.toJson(Collections.singletonMap("accessToken", accessToken)));
+    }
+
+    private void logout(HttpExchange exchange) throws IOException {
+        readParams(exchange);
+        if (!mainController.logout(getAccessToken(exchange))) {
+            sendError(exchange, 401, "access token is not valid");
+            return;
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void getUser(HttpExchange exchange) throws IOException {
+        readParams(exchange);
+        String userJSON = mainController.getUserInfoAsJSON(getAccessToken(exchange));
+        if (userJSON == null) {
+            sendError(exchange, 403, "access denied");
+            return;
+        }
+        sendJSON(exchange, 200, userJSON);
+    }
+
+    private void getUsers(HttpExchange exchange) throws IOException {
+        Map<String, String> params = readParams(exchange);
+        String accessToken = getAccessToken(exchange);
+
+        if (params.containsKey("pageSize")) {
+            int pageSize;
+            try {
+                pageSize = Integer.parseInt(params.get("pageSize"));
+            } catch (NumberFormatException e) {
+                sendError(exchange, 400, "wrong pageSize: " + params.get("pageSize"));
+                return;
+            }
+            String pageJSON = mainController.getUsersPageAsJSON(accessToken, params.get("cursor"), pageSize);
+            if (pageJSON == null) {
+                sendError(exchange, 403, "access denied");
+                return;
+            }
+            sendJSON(exchange, 200, pageJSON);
+            return;
+        }
+
+        // headers (chunked 200) are sent only when controller starts writing JSON
+        Writer writer = new Writer() {
+            private Writer out;
+
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                if (out == null) {
+                    exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+                    exchange.sendResponseHeaders(200, 0);
+                    out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+                }
+                out.write(buffer, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (out != null) {
+                    out.flush();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        if (!mainController.writeAllUsersAsJSON(accessToken, writer)) {
+            sendError(exchange, 403, "access denied");
+        }
+    }
+
+    private void route(String path, String method, Route route) {
+        server.createContext(path, exchange -> {
+            requestCount.increment();
+            boolean aborted = false;
+            try {
+                if (OVERLOADED.get()) {
+                    rejectedCount.increment();
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    sendError(exchange, 503, "server is overloaded");
+                } else if (!path.equals(exchange.getRequestURI().getPath())) {
+                    sendError(exchange, 404, "not found");
+                } else if (!method.equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    sendError(exchange, 405, "method not allowed");
+                } else {
+                    route.handle(exchange);
+                }
+            } catch (AppException e) {
+                boolean badRequest = e.getCause() instanceof ValidationException;
+                if (!badRequest) {
+                    errorCount.increment();
+                }
+                // response can't be changed, if it is already started
+                if (exchange.getResponseCode() == -1) {
+                    sendError(exchange, badRequest ? 400 : 500, e.getMessage());
+                } else {
+                    aborted = true;
+                    throw abort(e);
+                }
+            } catch (BodyTooLargeException e) {
+                sendError(exchange, 413, "request body is larger than " + MAX_BODY_SIZE + " bytes");
+            } catch (RuntimeException e) {
+                errorCount.increment();
+                e.printStackTrace();
+                if (exchange.getResponseCode() == -1) {
+                    sendError(exchange, 500, "internal error");
+                } else {
+                    aborted = true;
+                    throw abort(e);
+                }
+            } finally {
+                if (!aborted) {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Gives exception for started response, which can't be completed. Exchange must not be
+     * closed (it would end chunked body normally): JDK HttpServer closes connection, when
+     * handler throws.
+     */
+    private static IOException abort(RuntimeException cause) {
+        return new IOException("response is aborted after it was started", cause);
+    }
+
+    private void sendJSON(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJSON(exchange, status, gson.toJson(Collections.singletonMap("error", message)));
+    }
+
+    private static String getAccessToken(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return null;
+        }
+        return authorization.substring(BEARER_PREFIX.length()).trim();
+    }
+
+    /**
+     * Reads query parameters and (whole, so connection can be reused) form body.
+     */
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseParams(exchange.getRequestURI().getRawQuery(), params);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        try (InputStream in = exchange.getRequestBody()) {
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                if (body.size() + length > MAX_BODY_SIZE) {
+                    throw new BodyTooLargeException();
+                }
+                body.write(buffer, 0, length);
+            }
+        }
+        parseParams(new String(body.toByteArray(), StandardCharsets.UTF_8), params);
+        return params;
+    }
+
+    private static void parseParams(String encodedParams, Map<String, String> params) {
+        if (encodedParams == null || encodedParams.isEmpty()) {
+            return;
+        }
+
+        try {
+            for (String param : encodedParams.split("&")) {
+                int separatorIndex = param.indexOf('=');
+                if (separatorIndex > 0) {
+                    params.put(URLDecoder.decode(param.substring(0, separatorIndex), "UTF-8"),
+                            URLDecoder.decode(param.substring(separatorIndex + 1), "UTF-8"));
+                }
+            }
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            throw new AppException("arguments didn't pass validation",
+                    new ValidationException("malformed parameters: " + encodedParams));
+        }
+    }
+
+    private static class BodyTooLargeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,170 @@
+package com.alex323glo.tutor.h2db.part_2.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Metrics of one method: latency histogram, number of calls (throughput), number of failed
+ * calls (which threw exception) and number of SQL round trips.
+ * <p>
+ * Counters are exact. Latency of each call costs two System.nanoTime() calls (tens of
+ * nanoseconds on some machines), so it can be sampled: with sampleInterval N only random
+ * 1/N of calls are timed, and histogram (mean, percentiles, max) is built from them.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see MetricsRegistry
+ * @see LatencyHistogram
+ */
+public class MethodMetrics implements MethodMetricsMBean {
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final String name;
+    private final int sampleInterval;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder roundTripCount = new LongAdder();
+
+    public MethodMetrics(String name) {
+        this(name, 1);
+    }
+
+    /**
+     * @param name           name of method.
+     * @param sampleInterval latency of 1 of sampleInterval calls (on average) is measured.
+     */
+    public MethodMetrics(String name, int sampleInterval) {
+        if (name == null) {
+            throw new NullPointerException("name is null");
+        }
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("wrong sampleInterval: " + sampleInterval);
+        }
+        this.name = name;
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Executes call and records its latency, round trips (counted by RoundTripCounter
+     * on current thread) and failure (if call throws exception).
+     *
+     * @param call measured call.
+     * @param <T>  type of result.
+     * @return result of call.
+     */
+    public <T> T measure(Supplier<T> call) {
+        long roundTrips = RoundTripCounter.get();
+        boolean sampled = sampleInterval == 1 || ThreadLocalRandom.current().nextInt(sampleInterval) == 0;
+        long startedAt = sampled ? System.nanoTime() : 0;
+        boolean failed = true;
+        try {
+            T result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            long nanos = sampled ? System.nanoTime() - startedAt : -1;
+            record(nanos, RoundTripCounter.get() - roundTrips, failed);
+        }
+    }
+
+    /**
+     * Records one call.
+     *
+     * @param nanos      latency of call, or -1, if latency wasn't measured.
+     * @param roundTrips number of SQL round trips, made by call.
+     * @param failed     true, if call threw exception.
+     */
+    public void record(long nanos, long roundTrips, boolean failed) {
+        count.increment();
+        if (nanos >= 0) {
+            latency.record(nanos);
+        }
+        if (roundTrips != 0) {
+            roundTripCount.add(roundTrips);
+        }
+        if (failed) {
+            errorCount.increment();
+        }
+    }
+
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Returns histogram of measured (sampled) latencies.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public long getRoundTripCount() {
+        return roundTripCount.sum();
+    }
+
+    @Override
+    public double getMeanRoundTrips() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getRoundTripCount() / count;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.getMeanNanos() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.getMaxNanos() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMedianMicros() {
+        return latency.getPercentile(50) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double get90thPercentileMicros() {
+        return latency.getPercentile(90) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double get99thPercentileMicros() {
+        return latency.getPercentile(99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double get999thPercentileMicros() {
+        return latency.getPercentile(99.9) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public String toString() {
+        return "MethodMetrics{" +
+                "name='" + name + '\'' +
+                ", count=" + getCount() +
+                ", errorCount=" + getErrorCount() +
+                ", meanMicros=" + getMeanMicros() +
+                '}';
+    }
+}
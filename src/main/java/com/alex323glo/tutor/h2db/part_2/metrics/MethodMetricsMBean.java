@@ -0,0 +1,35 @@
+package com.alex323glo.tutor.h2db.part_2.metrics;
+
+/**
+ * JMX view of MethodMetrics (latencies in microseconds).
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see MethodMetrics
+ * @see MetricsRegistry#registerMBeans()
+ */
+public interface MethodMetricsMBean {
+
+    String getName();
+
+    long getCount();
+
+    long getErrorCount();
+
+    long getRoundTripCount();
+
+    double getMeanRoundTrips();
+
+    double getMeanMicros();
+
+    double getMaxMicros();
+
+    double getMedianMicros();
+
+    double get90thPercentileMicros();
+
+    double get99thPercentileMicros();
+
+    double get999thPercentileMicros();
+}
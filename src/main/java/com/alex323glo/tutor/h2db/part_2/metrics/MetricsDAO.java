@@ -0,0 +1,151 @@
+package com.alex323glo.tutor.h2db.part_2.metrics;
+
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.response.Response;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Decorator of any DAO, which records metrics of each DAO method as "&lt;name&gt;.&lt;method&gt;"
+ * in MetricsRegistry. Batch methods and scans are delegated as is, so wrapped DAO
+ * keeps its own (e.g. single-statement) implementations.
+ *
+ * @param <K> type of key.
+ * @param <V> type of value.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO
+ * @see MetricsRegistry
+ */
+public class MetricsDAO<K, V> implements DAO<K, V> {
+
+    private final DAO<K, V> dao;
+
+    private final MethodMetrics createMetrics;
+    private final MethodMetrics readMetrics;
+    private final MethodMetrics updateMetrics;
+    private final MethodMetrics deleteMetrics;
+    private final MethodMetrics getKeysetMetrics;
+    private final MethodMetrics getAllMetrics;
+    private final MethodMetrics forEachKeyMetrics;
+    private final MethodMetrics forEachMetrics;
+    private final MethodMetrics readPageMetrics;
+    private final MethodMetrics createAllMetrics;
+    private final MethodMetrics readAllMetrics;
+    private final MethodMetrics updateAllMetrics;
+    private final MethodMetrics deleteAllMetrics;
+
+    /**
+     * @param dao      wrapped DAO.
+     * @param registry registry of metrics.
+     * @param name     prefix of metric names (e.g. "UserDAO").
+     */
+    public MetricsDAO(DAO<K, V> dao, MetricsRegistry registry, String name) {
+        if (dao == null) {
+            throw new NullPointerException("dao is null");
+        }
+        if (registry == null) {
+            throw new NullPointerException("registry is null");
+        }
+        if (name == null) {
+            throw new NullPointerException("name is null");
+        }
+        this.dao = dao;
+
+        createMetrics = registry.get(name + ".create");
+        readMetrics = registry.get(name + ".read");
+        updateMetrics = registry.get(name + ".update");
+        deleteMetrics = registry.get(name + ".delete");
+        getKeysetMetrics = registry.get(name + ".getKeyset");
+        getAllMetrics = registry.get(name + ".getAll");
+        forEachKeyMetrics = registry.get(name + ".forEachKey");
+        forEachMetrics = registry.get(name + ".forEach");
+        readPageMetrics = registry.get(name + ".readPage");
+        createAllMetrics = registry.get(name + ".createAll");
+        readAllMetrics = registry.get(name + ".readAll");
+        updateAllMetrics = registry.get(name + ".updateAll");
+        deleteAllMetrics = registry.get(name + ".deleteAll");
+    }
+
+    public DAO<K, V> getDAO() {
+        return dao;
+    }
+
+    @Override
+    public Response create(K key, V value) throws DAOException {
+        return createMetrics.measure(() -> dao.create(key, value));
+    }
+
+    @Override
+    public Response<V> read(K key) throws DAOException {
+        return readMetrics.measure(() -> dao.read(key));
+    }
+
+    @Override
+    public Response<V> update(K key, V value) throws DAOException {
+        return updateMetrics.measure(() -> dao.update(key, value));
+    }
+
+    @Override
+    public Response<V> delete(K key) throws DAOException {
+        return deleteMetrics.measure(() -> dao.delete(key));
+    }
+
+    @Override
+    public Set<K> getKeyset() throws DAOException {
+        return getKeysetMetrics.measure(dao::getKeyset);
+    }
+
+    @Override
+    public Map<K, V> getAll() throws DAOException {
+        return getAllMetrics.measure(dao::getAll);
+    }
+
+    @Override
+    public void forEachKey(Consumer<? super K> action) throws DAOException {
+        forEachKeyMetrics.measure(() -> {
+            dao.forEachKey(action);
+            return null;
+        });
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) throws DAOException {
+        forEachMetrics.measure(() -> {
+            dao.forEach(action);
+            return null;
+        });
+    }
+
+    @Override
+    public Map<K, V> readPage(K afterKey, int pageSize) throws DAOException {
+        return readPageMetrics.measure(() -> dao.readPage(afterKey, pageSize));
+    }
+
+    @Override
+    public Map<K, Response> createAll(Map<K, V> records) throws DAOException {
+        return createAllMetrics.measure(() -> dao.createAll(records));
+    }
+
+    @Override
+    public Map<K, Response<V>> readAll(Collection<K> keys) throws DAOException {
+        return readAllMetrics.measure(() -> dao.readAll(keys));
+    }
+
+    @Override
+    public Map<K, Response<V>> updateAll(Map<K, V> records) throws DAOException {
+        return updateAllMetrics.measure(() -> dao.updateAll(records));
+    }
+
+    @Override
+    public Map<K, Response<V>> deleteAll(Collection<K> keys) throws DAOException {
+        return deleteAllMetrics.measure(() -> dao.deleteAll(keys));
+    }
+}
@@ -0,0 +1,94 @@
+package com.alex323glo.tutor.h2db.part_2.metrics;
+
+import com.alex323glo.tutor.h2db.part_2.controller.MainController;
+import com.alex323glo.tutor.h2db.part_2.exception.AppException;
+
+import java.io.Writer;
+
+/**
+ * Decorator of MainController, which records metrics of each method as
+ * "MainController.&lt;method&gt;" in MetricsRegistry. Number of SQL round trips per
+ * request is number of round trips, made by all DAO calls of this request.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see MainController
+ * @see MetricsRegistry
+ */
+public class MetricsMainController implements MainController {
+
+    public static final String NAME = "MainController";
+
+    private final MainController mainController;
+
+    private final MethodMetrics registerMetrics;
+    private final MethodMetrics loginMetrics;
+    private final MethodMetrics logoutMetrics;
+    private final MethodMetrics getUserInfoAsJSONMetrics;
+    private final MethodMetrics getAllUsersAsJSONMetrics;
+    private final MethodMetrics writeAllUsersAsJSONMetrics;
+    private final MethodMetrics getUsersPageAsJSONMetrics;
+
+    /**
+     * @param mainController wrapped controller.
+     * @param registry       registry of metrics.
+     */
+    public MetricsMainController(MainController mainController, MetricsRegistry registry) {
+        if (mainController == null) {
+            throw new NullPointerException("mainController is null");
+        }
+        if (registry == null) {
+            throw new NullPointerException("registry is null");
+        }
+        this.mainController = mainController;
+
+        registerMetrics = registry.get(NAME + ".register");
+        loginMetrics = registry.get(NAME + ".login");
+        logoutMetrics = registry.get(NAME + ".logout");
+        getUserInfoAsJSONMetrics = registry.get(NAME + ".getUserInfoAsJSON");
+        getAllUsersAsJSONMetrics = registry.get(NAME + ".getAllUsersAsJSON");
+        writeAllUsersAsJSONMetrics = registry.get(NAME + ".writeAllUsersAsJSON");
+        getUsersPageAsJSONMetrics = registry.get(NAME + ".getUsersPageAsJSON");
+    }
+
+    public MainController getMainController() {
+        return mainController;
+    }
+
+    @Override
+    public String register(String username, String password) throws AppException {
+        return registerMetrics.measure(() -> mainController.register(username, password));
+    }
+
+    @Override
+    public String login(String username, String password) throws AppException {
+        return loginMetrics.measure(() -> mainController.login(username, password));
+    }
+
+    @Override
+    public boolean logout(String accessToken) throws AppException {
+        return logoutMetrics.measure(() -> mainController.logout(accessToken));
+    }
+
+    @Override
+    public String getUserInfoAsJSON(String accessToken) throws AppException {
+        return getUserInfoAsJSONMetrics.measure(() -> mainController.getUserInfoAsJSON(accessToken));
+    }
+
+    @Override
+    public String getAllUsersAsJSON(String accessToken) throws AppException {
+        return getAllUsersAsJSONMetrics.measure(() -> mainController.getAllUsersAsJSON(accessToken));
+    }
+
+    @Override
+    public boolean writeAllUsersAsJSON(String accessToken, Writer writer) throws AppException {
+        return writeAllUsersAsJSONMetrics.measure(() -> mainController.writeAllUsersAsJSON(accessToken, writer));
+    }
+
+    @Override
+    public String getUsersPageAsJSON(String accessToken, String cursor, int pageSize) throws AppException {
+        return getUsersPageAsJSONMetrics.measure(() ->
+                mainController.getUsersPageAsJSON(accessToken, cursor, pageSize));
+    }
+}
@@ -0,0 +1,235 @@
+package com.alex323glo.tutor.h2db.part_2.metrics;
+
+import com.alex323glo.tutor.h2db.part_2.exception.AppException;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registry of MethodMetrics by name (e.g. "UserDAO.read", "MainController.login").
+ * Metrics can be exposed as JMX MBeans (one MBean per method, also for methods,
+ * which get metrics after registration) and dumped as text table.
+ * <p>
+ * Decorator costs about 120 ns per call, if each call is timed, and about 30 ns with
+ * sampleInterval 16 (see MetricsOverheadBenchmark), so overhead stays below 1% only for
+ * H2 paths: with timing of each call - for calls of more than ~12 us (e.g. login),
+ * with sampled registry (e.g. new MetricsRegistry(16)) - also for single H2 reads (~6 us).
+ * For sub-microsecond DAOs (e.g. InMemoryDAO, MappedAccessTokenDAO) overhead is well
+ * above 1% in both modes.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see MethodMetrics
+ * @see MetricsDAO
+ * @see MetricsMainController
+ */
+public class MetricsRegistry {
+
+    public static final String DEFAULT_JMX_DOMAIN = "com.alex323glo.tutor.h2db";
+
+    private static final String DUMP_HEADER_FORMAT = "%-36s %10s %8s %10s %10s %10s %10s %10s %10s %8s%n";
+    private static final String DUMP_ROW_FORMAT = "%-36s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %8.2f%n";
+
+    private final ConcurrentHashMap<String, MethodMetrics> metrics = new ConcurrentHashMap<>();
+    private final int sampleInterval;
+
+    private final ReentrantLock jmxLock = new ReentrantLock();
+    private MBeanServer mBeanServer;
+    private String jmxDomain;
+
+    /**
+     * Creates registry, which measures latency of each call
+     * (use it only for calls, which take more than ~12 us).
+     */
+    public MetricsRegistry() {
+        this(1);
+    }
+
+    /**
+     * Creates registry, which measures latency of 1 of sampleInterval calls (on average);
+     * counters are always exact.
+     *
+     * @param sampleInterval sample interval of latencies.
+     * @see MethodMetrics#MethodMetrics(String, int)
+     */
+    public MetricsRegistry(int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("wrong sampleInterval: " + sampleInterval);
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Returns metrics of method (creates them on first call).
+     *
+     * @param name name of method.
+     * @return not Null MethodMetrics.
+     */
+    public MethodMetrics get(String name) {
+        MethodMetrics methodMetrics = metrics.get(name);
+        if (methodMetrics != null) {
+            return methodMetrics;
+        }
+
+        jmxLock.lock();
+        try {
+            methodMetrics = metrics.computeIfAbsent(name, key -> new MethodMetrics(key, sampleInterval));
+            if (mBeanServer != null) {
+                registerMBean(methodMetrics);
+            }
+            return methodMetrics;
+        } finally {
+            jmxLock.unlock();
+        }
+    }
+
+    /**
+     * Returns all metrics, sorted by name.
+     */
+    public Map<String, MethodMetrics> getAll() {
+        return new TreeMap<>(metrics);
+    }
+
+    /**
+     * Registers metrics in platform MBeanServer with default domain.
+     *
+     * @throws AppException if MBean can't be registered.
+     */
+    public void registerMBeans() throws AppException {
+        registerMBeans(ManagementFactory.getPlatformMBeanServer(), DEFAULT_JMX_DOMAIN);
+    }
+
+    /**
+     * Registers each MethodMetrics as MBean "&lt;domain&gt;:type=MethodMetrics,name=&lt;name&gt;".
+     * Metrics, created later, are registered too.
+     *
+     * @param mBeanServer MBeanServer.
+     * @param jmxDomain   domain of ObjectNames.
+     * @throws AppException if MBean can't be registered.
+     */
+    public void registerMBeans(MBeanServer mBeanServer, String jmxDomain) throws AppException {
+        if (mBeanServer == null) {
+            throw new NullPointerException("mBeanServer is null");
+        }
+        if (jmxDomain == null) {
+            throw new NullPointerException("jmxDomain is null");
+        }
+
+        jmxLock.lock();
+        try {
+            unregisterMBeans();
+            this.mBeanServer = mBeanServer;
+            this.jmxDomain = jmxDomain;
+            for (MethodMetrics methodMetrics : metrics.values()) {
+                registerMBean(methodMetrics);
+            }
+        } finally {
+            jmxLock.unlock();
+        }
+    }
+
+    /**
+     * Unregisters MBeans (if they were registered).
+     *
+     * @throws AppException if MBean can't be unregistered.
+     */
+    public void unregisterMBeans() throws AppException {
+        jmxLock.lock();
+        try {
+            if (mBeanServer == null) {
+                return;
+            }
+            for (MethodMetrics methodMetrics : metrics.values()) {
+                try {
+                    mBeanServer.unregisterMBean(getObjectName(methodMetrics));
+                } catch (InstanceNotFoundException e) {
+                    // already unregistered
+                } catch (JMException e) {
+                    e.printStackTrace();
+                    throw new AppException("can't unregister MBean of " + methodMetrics.getName(), e);
+                }
+            }
+            mBeanServer = null;
+            jmxDomain = null;
+        } finally {
+            jmxLock.unlock();
+        }
+    }
+
+    /**
+     * Returns ObjectName of MBean of metrics (in domain of last registerMBeans() call).
+     */
+    public ObjectName getObjectName(MethodMetrics methodMetrics) throws AppException {
+        try {
+            return new ObjectName((jmxDomain == null ? DEFAULT_JMX_DOMAIN : jmxDomain) +
+                    ":type=MethodMetrics,name=" + ObjectName.quote(methodMetrics.getName()));
+        } catch (JMException e) {
+            e.printStackTrace();
+            throw new AppException("wrong MBean name: " + methodMetrics.getName(), e);
+        }
+    }
+
+    /**
+     * Writes text table of all metrics (latencies in microseconds).
+     *
+     * @param writer destination of table.
+     * @throws IOException if writer fails.
+     */
+    public void dump(Writer writer) throws IOException {
+        writer.write(String.format(DUMP_HEADER_FORMAT,
+                "method", "count", "errors", "mean,us", "p50,us", "p90,us", "p99,us", "p99.9,us", "max,us", "SQL/call"));
+        for (MethodMetrics methodMetrics : getAll().values()) {
+            writer.write(String.format(DUMP_ROW_FORMAT,
+                    methodMetrics.getName(), methodMetrics.getCount(), methodMetrics.getErrorCount(),
+                    methodMetrics.getMeanMicros(), methodMetrics.getMedianMicros(),
+                    methodMetrics.get90thPercentileMicros(), methodMetrics.get99thPercentileMicros(),
+                    methodMetrics.get999thPercentileMicros(), methodMetrics.getMaxMicros(),
+                    methodMetrics.getMeanRoundTrips()));
+        }
+        writer.flush();
+    }
+
+    /**
+     * Returns text table of all metrics.
+     *
+     * @see #dump(Writer)
+     */
+    public String dump() {
+        StringWriter writer = new StringWriter();
+        try {
+            dump(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private void registerMBean(MethodMetrics methodMetrics) throws AppException {
+        try {
+            mBeanServer.registerMBean(methodMetrics, getObjectName(methodMetrics));
+        } catch (InstanceAlreadyExistsException e) {
+            // TODO row below could be replaced with logger
+            System.out.printf("MetricsRegistry: MBean of \"%s\" is already registered%n", methodMetrics.getName());
+        } catch (JMException e) {
+            e.printStackTrace();
+            throw new AppException("can't register MBean of " + methodMetrics.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.alex323glo.tutor.h2db.part_2.metrics;
+
+/**
+ * Per-thread counter of SQL round trips (statements, executed through PooledConnection).
+ * Metrics decorators read it before and after call, so each DAO or controller method
+ * gets number of round trips, which it caused on its thread.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see com.alex323glo.tutor.h2db.part_2.pool.PooledConnection
+ */
+public class RoundTripCounter {
+
+    // long[1] instead of Long, so increment doesn't allocate
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    public static void increment() {
+        COUNT.get()[0]++;
+    }
+
+    /**
+     * Returns number of round trips, made by current thread so far.
+     */
+    public static long get() {
+        return COUNT.get()[0];
+    }
+}
@@ -0,0 +1,73 @@
+package com.alex323glo.tutor.h2db.part_2.model.page;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Page model: part of ordered records and opaque cursor of next page.
+ *
+ * @see T type of page records.
+ *
+ * @author alex323glo
+ * @version 1.0
+ */
+public class Page<T> {
+
+    private Map<String, T> records;
+    private String next;
+
+    public Page(Map<String, T> records, String next) {
+        setRecords(records);
+        this.next = next;
+    }
+
+    public Map<String, T> getRecords() {
+        return records;
+    }
+
+    public void setRecords(Map<String, T> records) {
+        if (records == null) {
+            throw new NullPointerException("records is null");
+        }
+        this.records = new LinkedHashMap<>(records);
+    }
+
+    /**
+     * Returns cursor of next page.
+     *
+     * @return opaque cursor, or Null, if this page is the last one.
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Page<?> page = (Page<?>) o;
+
+        if (!records.equals(page.records)) return false;
+        return next != null ? next.equals(page.next) : page.next == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = records.hashCode();
+        result = 31 * result + (next != null ? next.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "records=" + records +
+                ", next='" + next + '\'' +
+                '}';
+    }
+}
@@ -5,35 +5,42 @@ import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
 import java.io.Serializable;
 
 /**
- * Access Token model.
+ * Access Token model. Token is identified by binary TokenId (its String form
+ * is used only by API of MainController).
  *
  * @author alex323glo
  * @version 1.0
  */
 public class AccessToken implements Serializable {
 
-    private String token;
+    private TokenId token;
     private String username;
     private UserType type;
+    private long expiresAt;
 
-    public AccessToken(String token, String username) {
+    public AccessToken(TokenId token, String username) {
         setToken(token);
 
         this.username = username;
         type = UserType.USER;
     }
 
-    public AccessToken(String token, String username, UserType type) {
+    public AccessToken(TokenId token, String username, UserType type) {
         this.token = token;
         this.username = username;
         this.type = type;
     }
 
-    public String getToken() {
+    public AccessToken(TokenId token, String username, UserType type, long expiresAt) {
+        this(token, username, type);
+        this.expiresAt = expiresAt;
+    }
+
+    public TokenId getToken() {
         return token;
     }
 
-    public void setToken(String token) {
+    public void setToken(TokenId token) {
         if (token == null) {
             throw new NullPointerException("token is null");
         }
@@ -56,6 +63,29 @@ public class AccessToken implements Serializable {
         this.type = type;
     }
 
+    /**
+     * Returns expiration time of token.
+     *
+     * @return epoch milliseconds, after which token is not valid, or 0, if token never expires.
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Checks if token is expired.
+     *
+     * @param now current time in epoch milliseconds.
+     * @return true, if token has expiration time and it is not after now.
+     */
+    public boolean isExpired(long now) {
+        return expiresAt != 0 && expiresAt <= now;
+    }
+
     @Override
     public boolean equals(Object object) {
         if (this == object) return true;
@@ -65,6 +95,7 @@ public class AccessToken implements Serializable {
 
         if (token != null ? !token.equals(that.token) : that.token != null) return false;
         if (username != null ? !username.equals(that.username) : that.username != null) return false;
+        if (expiresAt != that.expiresAt) return false;
         return type == that.type;
     }
 
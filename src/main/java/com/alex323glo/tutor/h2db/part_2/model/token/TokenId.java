@@ -0,0 +1,129 @@
+package com.alex323glo.tutor.h2db.part_2.model.token;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * 128-bit access token identifier, kept as two longs. Used inside application (DAOs,
+ * caches, Data Base column) instead of 36-char UUID String, which is used only
+ * by API of MainController.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see AccessToken
+ */
+public final class TokenId implements Comparable<TokenId>, Serializable {
+
+    private static final int STRING_LENGTH = 36;
+
+    private final long mostSignificantBits;
+    private final long leastSignificantBits;
+
+    public TokenId(long mostSignificantBits, long leastSignificantBits) {
+        this.mostSignificantBits = mostSignificantBits;
+        this.leastSignificantBits = leastSignificantBits;
+    }
+
+    public static TokenId fromUUID(UUID uuid) {
+        return new TokenId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Parses canonical UUID String ("xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx", hex digits).
+     *
+     * @param token String token.
+     * @return parsed TokenId, or Null, if token has other format.
+     */
+    public static TokenId parse(String token) {
+        if (token == null || token.length() != STRING_LENGTH) {
+            return null;
+        }
+
+        long mostSignificantBits = 0;
+        long leastSignificantBits = 0;
+        int digits = 0;
+        for (int i = 0; i < STRING_LENGTH; i++) {
+            char c = token.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return null;
+                }
+                continue;
+            }
+
+            int digit = hexDigit(c);
+            if (digit < 0) {
+                return null;
+            }
+            if (digits++ < 16) {
+                mostSignificantBits = mostSignificantBits << 4 | digit;
+            } else {
+                leastSignificantBits = leastSignificantBits << 4 | digit;
+            }
+        }
+        return new TokenId(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * Unlike Character.digit(), accepts only ASCII hex digits (not e.g. full-width ones).
+     */
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    public long getMostSignificantBits() {
+        return mostSignificantBits;
+    }
+
+    public long getLeastSignificantBits() {
+        return leastSignificantBits;
+    }
+
+    public UUID toUUID() {
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * Orders token ids by signed halves, like UUID column of H2 does, so pages
+     * of in-memory and H2 DAOs have the same order.
+     */
+    @Override
+    public int compareTo(TokenId that) {
+        int result = Long.compare(mostSignificantBits, that.mostSignificantBits);
+        return result != 0 ? result : Long.compare(leastSignificantBits, that.leastSignificantBits);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (object == null || getClass() != object.getClass()) return false;
+
+        TokenId that = (TokenId) object;
+
+        return mostSignificantBits == that.mostSignificantBits && leastSignificantBits == that.leastSignificantBits;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = mostSignificantBits * 0x9e3779b97f4a7c15L ^ leastSignificantBits;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Returns canonical UUID String (lower case).
+     */
+    @Override
+    public String toString() {
+        return toUUID().toString();
+    }
+}
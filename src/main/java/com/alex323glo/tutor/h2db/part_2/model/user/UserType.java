@@ -4,7 +4,38 @@ package com.alex323glo.tutor.h2db.part_2.model.user;
  * Created by alex323glo on 11.01.18.
  */
 public enum UserType {
-    USER, ROOT;
+    USER(0), ROOT(1);
+
+    private final int code;
+
+    UserType(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Returns compact numeric code of UserType (e.g. for TINYINT column).
+     *
+     * @return numeric code.
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Converts numeric code to UserType enum instance.
+     *
+     * @param code numeric code, returned by getCode().
+     * @return UserType instance, or Null, if code
+     * doesn't represent any variant of UserType enum.
+     */
+    public static UserType fromCode(int code) {
+        for (UserType userType : values()) {
+            if (userType.code == code) {
+                return userType;
+            }
+        }
+        return null;
+    }
 
     /**
      * Converts String to UserType enum instance.
@@ -0,0 +1,392 @@
+package com.alex323glo.tutor.h2db.part_2.pool;
+
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of SQL connections to one Data Base.
+ * <p>
+ * Connections are created lazily (up to maxSize) and reused in LIFO order.
+ * Each borrow gets its own PooledConnection handle, so stale close() of handle
+ * (after connection was returned and borrowed again) can't return connection of other caller.
+ * Idle connection is validated on borrow only if it stayed idle longer than
+ * validationIdleMillis, so hot connections are handed out without extra round trip.
+ * Connections held longer than leakThresholdMillis are reported as leaks (with stack trace
+ * of borrow() call only if recordBorrowStacks is on: capture of stack trace on each borrow
+ * is too expensive for hot path).
+ * Borrow wait times are collected as pool metrics. Optional SQLTracer traces
+ * statements of connections and keeps log of slow queries.
+ * <p>
+ * While TransactionManager runs unit of work on some thread, its connection is bound
+ * to this thread: borrow() on the same thread returns (nested handle of) bound connection
+ * (with disabled auto-commit), so all DAOs of pool take part in one transaction. Bound
+ * connection is returned to pool only by close() of handle of TransactionManager.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see PooledConnection
+ * @see SQLTracer
+ * @see TransactionManager
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 30_000;
+    public static final long DEFAULT_VALIDATION_IDLE_MILLIS = 5_000;
+    public static final long DEFAULT_LEAK_THRESHOLD_MILLIS = 60_000;
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+
+    private volatile long borrowTimeoutMillis = DEFAULT_BORROW_TIMEOUT_MILLIS;
+    private volatile long validationIdleMillis = DEFAULT_VALIDATION_IDLE_MILLIS;
+    private volatile long leakThresholdMillis = DEFAULT_LEAK_THRESHOLD_MILLIS;
+    private volatile boolean recordBorrowStacks;
+    private volatile SQLTracer sqlTracer;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PhysicalConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<PooledConnection> boundConnection = new ThreadLocal<>();
+    private volatile boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder discardedCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+
+    public ConnectionPool(String url, String user, String password, int maxSize) {
+        if (url == null) {
+            throw new NullPointerException("url is null");
+        }
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("wrong maxSize: " + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getBorrowTimeoutMillis() {
+        return borrowTimeoutMillis;
+    }
+
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        if (borrowTimeoutMillis < 0) {
+            throw new IllegalArgumentException("wrong borrowTimeoutMillis: " + borrowTimeoutMillis);
+        }
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    public long getValidationIdleMillis() {
+        return validationIdleMillis;
+    }
+
+    public void setValidationIdleMillis(long validationIdleMillis) {
+        if (validationIdleMillis < 0) {
+            throw new IllegalArgumentException("wrong validationIdleMillis: " + validationIdleMillis);
+        }
+        this.validationIdleMillis = validationIdleMillis;
+    }
+
+    public long getLeakThresholdMillis() {
+        return leakThresholdMillis;
+    }
+
+    /**
+     * Sets leak detection threshold.
+     *
+     * @param leakThresholdMillis max time of holding borrowed connection,
+     *                            or 0 to turn leak detection off.
+     */
+    public void setLeakThresholdMillis(long leakThresholdMillis) {
+        if (leakThresholdMillis < 0) {
+            throw new IllegalArgumentException("wrong leakThresholdMillis: " + leakThresholdMillis);
+        }
+        this.leakThresholdMillis = leakThresholdMillis;
+    }
+
+    public boolean isRecordBorrowStacks() {
+        return recordBorrowStacks;
+    }
+
+    /**
+     * Turns on/off recording of stack trace of each borrow() call, which is printed,
+     * if connection is reported as leak (e.g. to find leak in tests).
+     *
+     * @param recordBorrowStacks true, if stack traces must be recorded.
+     */
+    public void setRecordBorrowStacks(boolean recordBorrowStacks) {
+        this.recordBorrowStacks = recordBorrowStacks;
+    }
+
+    public SQLTracer getSQLTracer() {
+        return sqlTracer;
+    }
+
+    /**
+     * Sets SQL tracer. Connections, opened after this call, are wrapped by tracer
+     * (already opened connections stay as they are).
+     *
+     * @param sqlTracer tracer, or Null to turn tracing off.
+     */
+    public void setSQLTracer(SQLTracer sqlTracer) {
+        this.sqlTracer = sqlTracer;
+    }
+
+    /**
+     * Borrows connection from pool. Blocks up to borrowTimeoutMillis, if all
+     * maxSize connections are in use. Inside unit of work returns connection,
+     * bound to current thread.
+     *
+     * @return borrowed connection, which must be returned by its close() method.
+     * @throws DAOException if pool is closed or exhausted, or new connection can't be opened.
+     */
+    public PooledConnection borrow() throws DAOException {
+        if (closed) {
+            throw new DAOException("connection pool is closed");
+        }
+
+        PooledConnection bound = boundConnection.get();
+        if (bound != null) {
+            return new PooledConnection(this, bound.getPhysicalConnection(), true, false);
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                detectLeaks();
+                throw new DAOException("can't borrow connection in " + borrowTimeoutMillis +
+                        " ms (pool of " + maxSize + " connections is exhausted)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DAOException("interrupted while waiting for connection", e);
+        }
+        recordWait(System.nanoTime() - waitStart);
+
+        try {
+            PooledConnection connection = new PooledConnection(this, takeIdleOrCreate(), false,
+                    recordBorrowStacks);
+            borrowed.add(connection);
+            return connection;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns list of connections, held longer than leakThresholdMillis.
+     * Each leak is reported (with stack trace of borrow() call, if it was recorded) only once.
+     *
+     * @return not Null list of leaked connections.
+     */
+    public List<PooledConnection> detectLeaks() {
+        List<PooledConnection> leaks = new ArrayList<>();
+        long threshold = leakThresholdMillis;
+        if (threshold == 0) {
+            return leaks;
+        }
+
+        long now = System.currentTimeMillis();
+        for (PooledConnection connection : borrowed) {
+            if (now - connection.getBorrowedAt() > threshold) {
+                leaks.add(connection);
+                if (!connection.isLeakReported()) {
+                    connection.markLeakReported();
+                    leakCount.increment();
+                    // TODO row below could be replaced with logger
+                    System.out.printf("ConnectionPool: connection is held for %d ms (possible leak)%n",
+                            now - connection.getBorrowedAt());
+                    Throwable borrowStack = connection.getBorrowStack();
+                    if (borrowStack != null) {
+                        borrowStack.printStackTrace();
+                    }
+                }
+            }
+        }
+        return leaks;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    public double getAverageWaitNanos() {
+        long count = borrowCount.sum();
+        return count == 0 ? 0 : (double) totalWaitNanos.sum() / count;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getDiscardedCount() {
+        return discardedCount.sum();
+    }
+
+    public long getLeakCount() {
+        return leakCount.sum();
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Checks, if current thread runs unit of work of TransactionManager of this pool.
+     *
+     * @return true, if connection is bound to current thread.
+     */
+    public boolean isInTransaction() {
+        return boundConnection.get() != null;
+    }
+
+    /**
+     * Closes all idle connections. Borrowed connections are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PhysicalConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    void bind(PooledConnection connection) {
+        boundConnection.set(connection);
+    }
+
+    void unbind() {
+        boundConnection.remove();
+    }
+
+    /**
+     * Returns connection of handle to pool. Called once per handle (by its first close()).
+     */
+    void release(PooledConnection connection) {
+        if (connection.isNested()) {
+            return;     // bound connection is returned by handle of outer borrow
+        }
+        borrowed.remove(connection);
+
+        PhysicalConnection physicalConnection = connection.getPhysicalConnection();
+        physicalConnection.onRelease();
+        try {
+            if (closed || !reset(physicalConnection.getConnection())) {
+                discard(physicalConnection);
+            } else {
+                idle.offerFirst(physicalConnection);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PhysicalConnection takeIdleOrCreate() throws DAOException {
+        PhysicalConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            long idleMillis = System.currentTimeMillis() - connection.getLastReleasedAt();
+            if (idleMillis <= validationIdleMillis || isValid(connection.getConnection())) {
+                return connection;
+            }
+            discard(connection);
+        }
+
+        try {
+            Connection physicalConnection = DriverManager.getConnection(url, user, password);
+            createdCount.increment();
+            SQLTracer tracer = sqlTracer;
+            if (tracer != null) {
+                physicalConnection = tracer.wrap(physicalConnection);
+            }
+            return new PhysicalConnection(physicalConnection);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't open connection to " + url, e);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void discard(PhysicalConnection connection) {
+        discardedCount.increment();
+        connection.close();
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static boolean reset(Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
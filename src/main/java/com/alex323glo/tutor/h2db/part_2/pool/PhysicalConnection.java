@@ -0,0 +1,53 @@
+package com.alex323glo.tutor.h2db.part_2.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Physical SQL Connection, owned by ConnectionPool, together with its StatementCache.
+ * It lives in pool for many borrows, each of which gets its own PooledConnection handle.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see ConnectionPool
+ * @see PooledConnection
+ */
+class PhysicalConnection {
+
+    private final Connection connection;
+    private final StatementCache statementCache;
+
+    private volatile long lastReleasedAt;
+
+    PhysicalConnection(Connection connection) {
+        this.connection = connection;
+        this.statementCache = new StatementCache(connection);
+        this.lastReleasedAt = System.currentTimeMillis();
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    long getLastReleasedAt() {
+        return lastReleasedAt;
+    }
+
+    void onRelease() {
+        lastReleasedAt = System.currentTimeMillis();
+    }
+
+    void close() {
+        statementCache.close();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
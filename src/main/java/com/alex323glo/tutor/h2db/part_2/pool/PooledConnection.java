@@ -0,0 +1,101 @@
+package com.alex323glo.tutor.h2db.part_2.pool;
+
+import com.alex323glo.tutor.h2db.part_2.metrics.RoundTripCounter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handle of one borrow of pooled physical SQL Connection (with its StatementCache).
+ * Borrowed instance must be used by one thread at a time and returned to pool
+ * by close() (e.g. with try-with-resources). Each borrow gets new handle, so only
+ * first close() of handle returns connection: repeated (stale) close() does nothing,
+ * even if connection is already borrowed by other caller.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see ConnectionPool
+ * @see StatementCache
+ */
+public class PooledConnection implements AutoCloseable {
+
+    private final ConnectionPool pool;
+    private final PhysicalConnection physicalConnection;
+    // nested borrow of connection, bound to thread by TransactionManager
+    private final boolean nested;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private final long borrowedAt;
+    private final Throwable borrowStack;
+    private volatile boolean leakReported;
+
+    PooledConnection(ConnectionPool pool, PhysicalConnection physicalConnection, boolean nested,
+                     boolean recordStack) {
+        this.pool = pool;
+        this.physicalConnection = physicalConnection;
+        this.nested = nested;
+        this.borrowedAt = System.currentTimeMillis();
+        this.borrowStack = recordStack ? new Throwable("connection borrowed here") : null;
+    }
+
+    /**
+     * Returns underlying physical connection. It must not be closed by caller.
+     *
+     * @return SQL connection.
+     */
+    public Connection getConnection() {
+        return physicalConnection.getConnection();
+    }
+
+    /**
+     * Returns cached (or newly prepared) PreparedStatement of this connection.
+     * DAOs execute each prepared statement once, so call is counted as one SQL round trip.
+     *
+     * @param sql parameterized SQL text.
+     * @return ready to use PreparedStatement.
+     * @throws SQLException if statement can't be prepared.
+     *
+     * @see StatementCache#prepare(String)
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        RoundTripCounter.increment();
+        return physicalConnection.getStatementCache().prepare(sql);
+    }
+
+    /**
+     * Returns this connection to its pool (only first call of this handle has effect).
+     */
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(this);
+        }
+    }
+
+    PhysicalConnection getPhysicalConnection() {
+        return physicalConnection;
+    }
+
+    boolean isNested() {
+        return nested;
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Throwable getBorrowStack() {
+        return borrowStack;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void markLeakReported() {
+        leakReported = true;
+    }
+}
@@ -0,0 +1,349 @@
+package com.alex323glo.tutor.h2db.part_2.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional SQL tracer of ConnectionPool. Physical connections are wrapped (by dynamic
+ * proxies) into Connection, Statement/PreparedStatement and ResultSet, which measure each
+ * statement execution: SQL text, number of bound parameters, execution time, fetch time
+ * (time spent in ResultSet.next()) and number of rows (fetched rows or update count).
+ * Execution of query is finished, when its ResultSet is read to the end or closed.
+ * <p>
+ * Executions, which took at least slowThresholdMillis (may be changed at runtime),
+ * are kept in ring buffer of last capacity slow queries. Buffer is lock-free: under
+ * concurrent writes getSlowQueries() is approximate.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see ConnectionPool#setSQLTracer(SQLTracer)
+ * @see SlowQuery
+ */
+public class SQLTracer {
+
+    public static final int DEFAULT_CAPACITY = 100;
+    public static final long DEFAULT_SLOW_THRESHOLD_MILLIS = 100;
+
+    private static final String DUMP_HEADER_FORMAT = "%-24s %10s %10s %8s %6s  %s%n";
+    private static final String DUMP_ROW_FORMAT = "%-24s %10.3f %10.3f %8d %6d  %s%s%n";
+
+    private final int capacity;
+    private final AtomicReferenceArray<SlowQuery> slowQueries;
+    private final AtomicLong slowQueryPosition = new AtomicLong();
+    private volatile long slowThresholdNanos;
+
+    private final LongAdder statementCount = new LongAdder();
+    private final LongAdder slowQueryCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    public SQLTracer() {
+        this(DEFAULT_SLOW_THRESHOLD_MILLIS, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param slowThresholdMillis min time of slow statement (0 means "keep every statement").
+     * @param capacity            max number of kept slow queries.
+     */
+    public SQLTracer(long slowThresholdMillis, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("wrong capacity: " + capacity);
+        }
+        setSlowThresholdMillis(slowThresholdMillis);
+        this.capacity = capacity;
+        this.slowQueries = new AtomicReferenceArray<>(capacity);
+    }
+
+    public long getSlowThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+    }
+
+    public void setSlowThresholdMillis(long slowThresholdMillis) {
+        if (slowThresholdMillis < 0) {
+            throw new IllegalArgumentException("wrong slowThresholdMillis: " + slowThresholdMillis);
+        }
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Wraps physical connection into tracing one.
+     *
+     * @param connection physical connection.
+     * @return tracing connection, which delegates to given one.
+     */
+    public Connection wrap(Connection connection) {
+        if (connection == null) {
+            throw new NullPointerException("connection is null");
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    /**
+     * Returns kept slow queries, oldest first.
+     */
+    public List<SlowQuery> getSlowQueries() {
+        long end = slowQueryPosition.get();
+        List<SlowQuery> result = new ArrayList<>();
+        for (long position = Math.max(0, end - capacity); position < end; position++) {
+            SlowQuery slowQuery = slowQueries.get((int) (position % capacity));
+            if (slowQuery != null) {
+                result.add(slowQuery);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets kept slow queries (counters are not reset).
+     */
+    public void clearSlowQueries() {
+        for (int i = 0; i < capacity; i++) {
+            slowQueries.set(i, null);
+        }
+    }
+
+    public long getStatementCount() {
+        return statementCount.sum();
+    }
+
+    public long getSlowQueryCount() {
+        return slowQueryCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Returns text table of kept slow queries (times in milliseconds), oldest first.
+     */
+    public String dump() {
+        StringBuilder dump = new StringBuilder(String.format(DUMP_HEADER_FORMAT,
+                "thread", "exec,ms", "fetch,ms", "rows", "binds", "sql"));
+        for (SlowQuery slowQuery : getSlowQueries()) {
+            dump.append(String.format(DUMP_ROW_FORMAT, slowQuery.getThreadName(),
+                    slowQuery.getExecuteNanos() / 1e6, slowQuery.getFetchNanos() / 1e6,
+                    slowQuery.getRows(), slowQuery.getBindCount(),
+                    slowQuery.isFailed() ? "FAILED " : "", slowQuery.getSql()));
+        }
+        return dump.toString();
+    }
+
+    void record(String sql, int bindCount, long executeNanos, long fetchNanos, long rows, boolean failed) {
+        long nanos = executeNanos + fetchNanos;
+        statementCount.increment();
+        totalNanos.add(nanos);
+        if (failed) {
+            failedCount.increment();
+        }
+        if (nanos >= slowThresholdNanos) {
+            slowQueryCount.increment();
+            SlowQuery slowQuery = new SlowQuery(sql, bindCount, executeNanos, fetchNanos, rows, failed,
+                    Thread.currentThread().getName(), System.currentTimeMillis());
+            slowQueries.set((int) (slowQueryPosition.getAndIncrement() % capacity), slowQuery);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Handles equals() and hashCode() of proxy (by identity), or returns null.
+     */
+    private static Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return method.getParameterCount() == 1 ? proxy == args[0] : null;
+            case "hashCode":
+                return method.getParameterCount() == 0 ? System.identityHashCode(proxy) : null;
+            default:
+                return null;
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection connection;
+
+        private ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object objectMethodResult = invokeObjectMethod(proxy, method, args);
+            if (objectMethodResult != null) {
+                return objectMethodResult;
+            }
+
+            Object result = SQLTracer.invoke(connection, method, args);
+            switch (method.getName()) {
+                case "createStatement":
+                    return wrapStatement(Statement.class, (Statement) result, null);
+                case "prepareStatement":
+                    return wrapStatement(PreparedStatement.class, (Statement) result, (String) args[0]);
+                case "prepareCall":
+                    return wrapStatement(CallableStatement.class, (Statement) result, (String) args[0]);
+                default:
+                    return result;
+            }
+        }
+
+        private Object wrapStatement(Class<?> type, Statement statement, String sql) {
+            return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(statement, sql));
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+        private final String preparedSql;
+        private int bindCount;
+
+        private StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object objectMethodResult = invokeObjectMethod(proxy, method, args);
+            if (objectMethodResult != null) {
+                return objectMethodResult;
+            }
+
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                if (name.equals("clearParameters")) {
+                    bindCount = 0;
+                } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    bindCount++;            // setXXX(parameterIndex, value...)
+                }
+                return SQLTracer.invoke(statement, method, args);
+            }
+
+            // execute(), executeQuery(), executeUpdate(), executeBatch() etc.
+            String sql = preparedSql != null ? preparedSql :
+                    args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : "<batch>";
+            int binds = bindCount;
+            bindCount = 0;
+
+            long startedAt = System.nanoTime();
+            Object result;
+            try {
+                result = SQLTracer.invoke(statement, method, args);
+            } catch (Throwable e) {
+                record(sql, binds, System.nanoTime() - startedAt, 0, -1, true);
+                throw e;
+            }
+            long executeNanos = System.nanoTime() - startedAt;
+
+            if (result instanceof ResultSet) {
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                        new ResultSetHandler((ResultSet) result, sql, binds, executeNanos));
+            }
+            record(sql, binds, executeNanos, 0, rowsOf(result), false);
+            return result;
+        }
+
+        private long rowsOf(Object result) {
+            if (result instanceof Number) {
+                return ((Number) result).longValue();
+            }
+            long rows = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows += Math.max(count, 0);
+                }
+                return rows;
+            }
+            if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += Math.max(count, 0);
+                }
+                return rows;
+            }
+            return -1;              // execute() - result is not known
+        }
+    }
+
+    private final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet resultSet;
+        private final String sql;
+        private final int bindCount;
+        private final long executeNanos;
+        private long fetchNanos;
+        private long rows;
+        private boolean finished;
+
+        private ResultSetHandler(ResultSet resultSet, String sql, int bindCount, long executeNanos) {
+            this.resultSet = resultSet;
+            this.sql = sql;
+            this.bindCount = bindCount;
+            this.executeNanos = executeNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object objectMethodResult = invokeObjectMethod(proxy, method, args);
+            if (objectMethodResult != null) {
+                return objectMethodResult;
+            }
+
+            switch (method.getName()) {
+                case "next":
+                    long startedAt = System.nanoTime();
+                    boolean hasRow = (Boolean) SQLTracer.invoke(resultSet, method, args);
+                    fetchNanos += System.nanoTime() - startedAt;
+                    if (hasRow) {
+                        rows++;
+                    } else {
+                        finish();
+                    }
+                    return hasRow;
+                case "close":
+                    finish();
+                    return SQLTracer.invoke(resultSet, method, args);
+                default:
+                    return SQLTracer.invoke(resultSet, method, args);
+            }
+        }
+
+        private void finish() {
+            if (!finished) {
+                finished = true;
+                record(sql, bindCount, executeNanos, fetchNanos, rows, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.alex323glo.tutor.h2db.part_2.pool;
+
+/**
+ * Record of one traced SQL statement execution (immutable).
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see SQLTracer
+ */
+public class SlowQuery {
+
+    private final String sql;
+    private final int bindCount;
+    private final long executeNanos;
+    private final long fetchNanos;
+    private final long rows;
+    private final boolean failed;
+    private final String threadName;
+    private final long finishedAt;
+
+    /**
+     * @param sql          SQL text of statement.
+     * @param bindCount    number of bound parameters (of all batched parameter sets).
+     * @param executeNanos time of execute*() call.
+     * @param fetchNanos   time of fetching rows of ResultSet (0 for updates).
+     * @param rows         number of fetched rows or update count, or -1, if it is unknown.
+     * @param failed       true, if execution threw SQLException.
+     * @param threadName   name of thread, which executed statement.
+     * @param finishedAt   time of end of execution (and fetching) in epoch milliseconds.
+     */
+    public SlowQuery(String sql, int bindCount, long executeNanos, long fetchNanos, long rows, boolean failed,
+                     String threadName, long finishedAt) {
+        this.sql = sql;
+        this.bindCount = bindCount;
+        this.executeNanos = executeNanos;
+        this.fetchNanos = fetchNanos;
+        this.rows = rows;
+        this.failed = failed;
+        this.threadName = threadName;
+        this.finishedAt = finishedAt;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public int getBindCount() {
+        return bindCount;
+    }
+
+    public long getExecuteNanos() {
+        return executeNanos;
+    }
+
+    public long getFetchNanos() {
+        return fetchNanos;
+    }
+
+    public long getTotalNanos() {
+        return executeNanos + fetchNanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "SlowQuery{" +
+                "sql='" + sql + '\'' +
+                ", bindCount=" + bindCount +
+                ", executeNanos=" + executeNanos +
+                ", fetchNanos=" + fetchNanos +
+                ", rows=" + rows +
+                ", failed=" + failed +
+                ", threadName='" + threadName + '\'' +
+                ", finishedAt=" + finishedAt +
+                '}';
+    }
+}
@@ -0,0 +1,103 @@
+package com.alex323glo.tutor.h2db.part_2.pool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-connection cache of parameterized PreparedStatements. Each distinct
+ * SQL text is prepared (parsed and planned by H2) only once per connection
+ * and reused by all following calls.
+ * <p>
+ * Cache is not thread-safe: as PreparedStatement itself, it must be used
+ * by one thread at a time (like the Connection it belongs to).
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see PreparedStatement
+ */
+public class StatementCache implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_SIZE = 32;
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+
+    public StatementCache(Connection connection) {
+        this(connection, DEFAULT_MAX_SIZE);
+    }
+
+    public StatementCache(Connection connection, final int maxSize) {
+        if (connection == null) {
+            throw new NullPointerException("connection is null");
+        }
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("wrong maxSize: " + maxSize);
+        }
+        this.connection = connection;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Returns cached PreparedStatement for SQL text, or prepares (and caches)
+     * new one. Parameters of returned statement are cleared.
+     *
+     * @param sql parameterized SQL text.
+     * @return ready to use PreparedStatement.
+     * @throws SQLException if statement can't be prepared.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    /**
+     * Returns number of cached statements.
+     *
+     * @return cache size.
+     */
+    public int size() {
+        return statements.size();
+    }
+
+    /**
+     * Closes all cached statements. Connection itself stays open.
+     */
+    @Override
+    public void close() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.alex323glo.tutor.h2db.part_2.pool;
+
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs units of work as single transactions of one ConnectionPool. Connection is
+ * borrowed once, auto-commit is disabled and connection is bound to current thread,
+ * so all H2 DAOs of this pool (also several DAOs of different tables) borrow it and
+ * write inside one transaction, which is committed by single commit at the end.
+ * <p>
+ * Unit of work, started inside another one, joins outer transaction. Only DAOs of
+ * the same pool take part in transaction: DAOs of other Data Bases still auto-commit.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see UnitOfWork
+ * @see ConnectionPool
+ */
+public class TransactionManager {
+
+    private final ConnectionPool connectionPool;
+
+    private final LongAdder commitCount = new LongAdder();
+    private final LongAdder rollbackCount = new LongAdder();
+
+    public TransactionManager(ConnectionPool connectionPool) {
+        if (connectionPool == null) {
+            throw new NullPointerException("connectionPool is null");
+        }
+        this.connectionPool = connectionPool;
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    /**
+     * Executes unit of work inside transaction. Transaction is committed, if unit of work
+     * returns normally, or rolled back, if it throws exception.
+     *
+     * @param unitOfWork DAO calls.
+     * @param <T>        type of result.
+     * @return result of unit of work.
+     * @throws DAOException if unit of work throws it, or transaction can't be committed.
+     */
+    public <T> T execute(UnitOfWork<T> unitOfWork) throws DAOException {
+        if (unitOfWork == null) {
+            throw new NullPointerException("unitOfWork is null");
+        }
+        if (connectionPool.isInTransaction()) {
+            return unitOfWork.execute();
+        }
+
+        // pool rolls back unfinished transaction and restores auto-commit on release
+        try (PooledConnection connection = connectionPool.borrow()) {
+            Connection sqlConnection = connection.getConnection();
+            sqlConnection.setAutoCommit(false);
+            connectionPool.bind(connection);
+            try {
+                T result = unitOfWork.execute();
+                sqlConnection.commit();
+                commitCount.increment();
+                return result;
+            } catch (RuntimeException e) {
+                rollbackCount.increment();
+                throw e;
+            } finally {
+                connectionPool.unbind();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new DAOException("can't execute transaction", e);
+        }
+    }
+
+    public long getCommitCount() {
+        return commitCount.sum();
+    }
+
+    public long getRollbackCount() {
+        return rollbackCount.sum();
+    }
+}
@@ -0,0 +1,24 @@
+package com.alex323glo.tutor.h2db.part_2.pool;
+
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+
+/**
+ * Group of DAO calls, which is executed by TransactionManager as one transaction.
+ *
+ * @param <T> type of result.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see TransactionManager
+ */
+public interface UnitOfWork<T> {
+
+    /**
+     * Executes DAO calls (on current thread).
+     *
+     * @return result of unit of work.
+     * @throws DAOException if DAO has some problems (transaction is rolled back).
+     */
+    T execute() throws DAOException;
+}
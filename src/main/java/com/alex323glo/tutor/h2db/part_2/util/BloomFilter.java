@@ -0,0 +1,100 @@
+package com.alex323glo.tutor.h2db.part_2.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter: compact probabilistic set, which answers
+ * "definitely not present" or "maybe present". Elements can't be removed.
+ * Bits are set with CAS, so put() and mightContain() can be called
+ * concurrently without locking.
+ *
+ * @author alex323glo
+ * @version 1.0
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Creates filter, sized for expected number of elements.
+     *
+     * @param expectedInsertions    expected number of elements.
+     * @param falsePositiveRate     wanted probability of false "maybe present" answer (0 &lt; rate &lt; 1).
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("wrong expectedInsertions: " + expectedInsertions);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("wrong falsePositiveRate: " + falsePositiveRate);
+        }
+
+        long optimalBitCount = (long) Math.ceil(
+                -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBitCount + 63) / 64));
+        this.bits = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * Adds element to filter.
+     *
+     * @param element not Null element.
+     */
+    public void put(Object element) {
+        long hash1 = mix(element.hashCode());
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            setBit(Math.floorMod(hash1 + i * hash2, bitCount));
+        }
+    }
+
+    /**
+     * Checks if element might be inside filter.
+     *
+     * @param element not Null element.
+     * @return false, if element was definitely never added, or true, if it was probably added.
+     */
+    public boolean mightContain(Object element) {
+        long hash1 = mix(element.hashCode());
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    private void setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long value;
+        while (((value = bits.get(word)) & mask) == 0) {
+            if (bits.compareAndSet(word, value, value | mask)) {
+                return;
+            }
+        }
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
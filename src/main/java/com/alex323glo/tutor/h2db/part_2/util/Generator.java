@@ -1,5 +1,7 @@
 package com.alex323glo.tutor.h2db.part_2.util;
 
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+
 import java.util.Set;
 import java.util.UUID;
 
@@ -28,10 +30,35 @@ public class Generator {
 
         String token = null;
         do {
-            token = UUID.randomUUID().toString();
+            token = generateToken();
         } while (tokenSet.contains(token));
 
         return token;
     }
 
+    /**
+     * Generates random token. Uses UUID to generate token, so
+     * uniqueness is not checked here: it must be enforced by the
+     * store (unique key), and caller should retry on conflict.
+     *
+     * @return random String token.
+     *
+     * @see UUID
+     */
+    public static String generateToken() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Generates random binary token id. Uses UUID (SecureRandom) to generate it,
+     * so uniqueness must be enforced by the store, like for generateToken().
+     *
+     * @return random TokenId.
+     *
+     * @see TokenId
+     */
+    public static TokenId generateTokenId() {
+        return TokenId.fromUUID(UUID.randomUUID());
+    }
+
 }
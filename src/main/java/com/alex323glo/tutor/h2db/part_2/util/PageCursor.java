@@ -0,0 +1,57 @@
+package com.alex323glo.tutor.h2db.part_2.util;
+
+import com.alex323glo.tutor.h2db.part_2.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Container for static methods, which convert last key of page
+ * to opaque page cursor and back.
+ *
+ * @author alex323glo
+ * @version 1.0
+ */
+public class PageCursor {
+
+    private static final String PREFIX = "k:";
+
+    /**
+     * Encodes key of last record of page as opaque (URL-safe) cursor of next page.
+     *
+     * @param lastKey key of last record of page.
+     * @return String cursor.
+     */
+    public static String encode(String lastKey) {
+        if (lastKey == null) {
+            throw new NullPointerException("lastKey is null");
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastKey).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes cursor, created by encode(String).
+     *
+     * @param cursor String cursor.
+     * @return key of last record of previous page.
+     * @throws ValidationException if cursor is Null or malformed.
+     */
+    public static String decode(String cursor) throws ValidationException {
+        if (cursor == null) {
+            throw new ValidationException("cursor is null");
+        }
+
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("malformed cursor: " + cursor, e);
+        }
+        if (!decoded.startsWith(PREFIX)) {
+            throw new ValidationException("malformed cursor: " + cursor);
+        }
+        return decoded.substring(PREFIX.length());
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.alex323glo.tutor.h2db.part_2.util;
+
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * List of revoked (logged out) signed access tokens. Revocations are stored
+ * by DAO (keyed by token id, with expiration time of token) and mirrored in memory,
+ * so check of token doesn't need Data Base.
+ * <p>
+ * Expired token is rejected before revocation check, so its revocation isn't needed
+ * any more: prune() drops expired revocations from memory and deletes them from DAO.
+ * It is called by reload() and (at most once per pruneIntervalMillis) by revoke(), so
+ * list doesn't grow beyond revocations of not yet expired tokens. Signed tokens must
+ * expire (see MainControllerImpl#setTokenSigner), otherwise they are never pruned.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see TokenSigner
+ */
+public class RevocationList {
+
+    public static final long DEFAULT_PRUNE_INTERVAL_MILLIS = 60_000;
+
+    private final DAO<TokenId, AccessToken> revokedTokenDAO;
+    private final long pruneIntervalMillis;
+    private final Map<TokenId, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final AtomicLong lastPruneMillis = new AtomicLong(System.currentTimeMillis());
+
+    public RevocationList(DAO<TokenId, AccessToken> revokedTokenDAO) throws DAOException {
+        this(revokedTokenDAO, DEFAULT_PRUNE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Creates revocation list and loads stored revocations.
+     *
+     * @param revokedTokenDAO     DAO of revoked tokens.
+     * @param pruneIntervalMillis min time between prunes, started by revoke().
+     * @throws DAOException if revocations can't be read.
+     */
+    public RevocationList(DAO<TokenId, AccessToken> revokedTokenDAO, long pruneIntervalMillis)
+            throws DAOException {
+        if (revokedTokenDAO == null) {
+            throw new NullPointerException("revokedTokenDAO is null");
+        }
+        if (pruneIntervalMillis < 0) {
+            throw new IllegalArgumentException("wrong pruneIntervalMillis: " + pruneIntervalMillis);
+        }
+        this.revokedTokenDAO = revokedTokenDAO;
+        this.pruneIntervalMillis = pruneIntervalMillis;
+        reload();
+    }
+
+    /**
+     * Reloads revocations from DAO (e.g. to see revocations, made by other application
+     * instances) and prunes expired ones.
+     *
+     * @throws DAOException if revocations can't be read or pruned.
+     */
+    public void reload() throws DAOException {
+        // revocations are never undone, so loaded ones are just merged in
+        revokedTokenDAO.forEach((tokenId, accessToken) -> revokedTokens.put(tokenId, accessToken.getExpiresAt()));
+        prune();
+    }
+
+    /**
+     * Revokes token.
+     *
+     * @param accessToken verified content of signed token.
+     * @return true, if token was revoked, or false, if it was already revoked.
+     * @throws DAOException if revocation can't be stored.
+     */
+    public boolean revoke(AccessToken accessToken) throws DAOException {
+        boolean revoked = revokedTokenDAO.create(accessToken.getToken(), accessToken).getStatus()
+                .equals(ResponseStatus.OK);
+        revokedTokens.put(accessToken.getToken(), accessToken.getExpiresAt());
+
+        long now = System.currentTimeMillis();
+        long lastPrune = lastPruneMillis.get();
+        if (now - lastPrune >= pruneIntervalMillis && lastPruneMillis.compareAndSet(lastPrune, now)) {
+            prune();
+        }
+        return revoked;
+    }
+
+    /**
+     * Checks if token is revoked.
+     *
+     * @param accessToken verified content of signed token.
+     * @return true, if token is revoked.
+     */
+    public boolean isRevoked(AccessToken accessToken) {
+        return revokedTokens.containsKey(accessToken.getToken());
+    }
+
+    /**
+     * Drops revocations of expired tokens from memory and deletes them from DAO.
+     *
+     * @return number of pruned revocations.
+     * @throws DAOException if revocations can't be deleted.
+     */
+    public int prune() throws DAOException {
+        long now = System.currentTimeMillis();
+        List<TokenId> expiredTokens = new ArrayList<>();
+        for (Map.Entry<TokenId, Long> revokedToken : revokedTokens.entrySet()) {
+            long expiresAt = revokedToken.getValue();
+            if (expiresAt != 0 && expiresAt <= now) {
+                expiredTokens.add(revokedToken.getKey());
+            }
+        }
+        if (expiredTokens.isEmpty()) {
+            return 0;
+        }
+
+        revokedTokenDAO.deleteAll(expiredTokens);
+        for (TokenId expiredToken : expiredTokens) {
+            revokedTokens.remove(expiredToken);
+        }
+        return expiredTokens.size();
+    }
+
+    public int size() {
+        return revokedTokens.size();
+    }
+}
@@ -0,0 +1,143 @@
+package com.alex323glo.tutor.h2db.part_2.util;
+
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Creates and verifies self-validating access tokens: "payload.signature", where
+ * payload (token id, UserType, expiration time and username) and its HMAC-SHA256
+ * signature are URL-safe Base64 strings. Verification needs only CPU, no Data Base.
+ * <p>
+ * Signer is thread-safe: Mac instances are pooled (not thread-local), so short-lived
+ * threads (e.g. virtual thread per request) reuse them too.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see AccessToken
+ */
+public class TokenSigner {
+
+    public static final int MIN_SECRET_LENGTH = 32;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final char SEPARATOR = '.';
+    private static final String FIELD_SEPARATOR = "\n";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec secretKey;
+    private final Queue<Mac> macs = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param secret secret key of HMAC (at least MIN_SECRET_LENGTH bytes).
+     */
+    public TokenSigner(byte[] secret) {
+        if (secret == null) {
+            throw new NullPointerException("secret is null");
+        }
+        if (secret.length < MIN_SECRET_LENGTH) {
+            throw new IllegalArgumentException("secret is shorter than " + MIN_SECRET_LENGTH + " bytes");
+        }
+        this.secretKey = new SecretKeySpec(secret.clone(), ALGORITHM);
+    }
+
+    /**
+     * Checks if String looks like signed token (opaque tokens don't contain separator).
+     *
+     * @param token String token.
+     * @return true, if token has signed token format.
+     */
+    public static boolean isSigned(String token) {
+        return token != null && token.indexOf(SEPARATOR) >= 0;
+    }
+
+    /**
+     * Creates signed token.
+     *
+     * @param accessToken access token, whose token field is used as unique token id.
+     * @return String signed token.
+     */
+    public String sign(AccessToken accessToken) {
+        if (accessToken == null) {
+            throw new NullPointerException("accessToken is null");
+        }
+
+        String payload = accessToken.getToken() + FIELD_SEPARATOR +
+                accessToken.getType().getCode() + FIELD_SEPARATOR +
+                accessToken.getExpiresAt() + FIELD_SEPARATOR +
+                accessToken.getUsername();
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return encodedPayload + SEPARATOR + ENCODER.encodeToString(signature(encodedPayload));
+    }
+
+    /**
+     * Verifies signature of token and reads its content. Expiration time is not checked.
+     *
+     * @param signedToken String signed token.
+     * @return AccessToken with token id, username, type and expiration time,
+     * or Null, if token is malformed or its signature is wrong.
+     */
+    public AccessToken verify(String signedToken) {
+        if (signedToken == null) {
+            return null;
+        }
+        int separatorIndex = signedToken.indexOf(SEPARATOR);
+        if (separatorIndex < 0) {
+            return null;
+        }
+        String encodedPayload = signedToken.substring(0, separatorIndex);
+
+        try {
+            byte[] actualSignature = DECODER.decode(signedToken.substring(separatorIndex + 1));
+            if (!MessageDigest.isEqual(signature(encodedPayload), actualSignature)) {
+                return null;
+            }
+
+            String[] fields = new String(DECODER.decode(encodedPayload), StandardCharsets.UTF_8)
+                    .split(FIELD_SEPARATOR, 4);
+            UserType type = fields.length == 4 ? UserType.fromCode(Integer.parseInt(fields[1])) : null;
+            TokenId tokenId = fields.length == 4 ? TokenId.parse(fields[0]) : null;
+            if (type == null || tokenId == null) {
+                return null;
+            }
+            return new AccessToken(tokenId, fields[3], type, Long.parseLong(fields[2]));
+        } catch (IllegalArgumentException e) {
+            // malformed Base64 or number
+            return null;
+        }
+    }
+
+    private byte[] signature(String encodedPayload) {
+        Mac mac = macs.poll();
+        if (mac == null) {
+            mac = createMac();
+        }
+        try {
+            return mac.doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            macs.offer(mac);
+        }
+    }
+
+    private Mac createMac() {
+        try {
+            Mac newMac = Mac.getInstance(ALGORITHM);
+            newMac.init(secretKey);
+            return newMac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("can't create " + ALGORITHM + " Mac", e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.alex323glo.tutor.h2db.part_2.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads (JDK 21+) from code, compiled for Java 8. Factory method
+ * of JDK is looked up once, so on older JDKs virtual thread mode is just not supported.
+ * <p>
+ * Virtual-thread-per-request mode: AsyncMainControllerImpl with executor from
+ * newVirtualThreadPerTaskExecutor(). Concurrency of DAO calls is then bounded only by
+ * ConnectionPool (borrow waits on Semaphore, which doesn't pin virtual thread).
+ * <p>
+ * Only code of this project avoids pinning (it uses ReentrantLocks, not synchronized).
+ * H2 1.4.196 synchronizes internally (e.g. on session of connection), so JDBC calls
+ * on virtual threads still pin their carriers (before JDK 24), and "-Djdk.tracePinnedThreads"
+ * doesn't report threads, blocked on entry of such monitor. So this mode isn't expected
+ * to serve more concurrent DAO calls than DAOExecutor with pool-sized number of threads.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see com.alex323glo.tutor.h2db.part_2.controller.AsyncMainControllerImpl
+ */
+public class VirtualThreads {
+
+    private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactory();
+
+    /**
+     * Checks if JDK supports virtual threads.
+     *
+     * @return true, if virtual thread mode can be used.
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates executor, which starts new virtual thread for each task.
+     *
+     * @return new ExecutorService.
+     * @throws UnsupportedOperationException if JDK doesn't support virtual threads.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+            throw new UnsupportedOperationException("virtual threads are not supported by JDK " +
+                    System.getProperty("java.version"));
+        }
+
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("can't create virtual thread executor", e);
+        }
+    }
+
+    private static MethodHandle findFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.alex323glo.tutor.h2db.part_2.controller;
+
+import com.alex323glo.tutor.h2db.part_2.dao.H2AccessTokenDAO;
+import com.alex323glo.tutor.h2db.part_2.dao.H2UserDAO;
+import com.alex323glo.tutor.h2db.part_2.dao.memory.InMemoryDAO;
+import com.alex323glo.tutor.h2db.part_2.exception.AppException;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
+import com.alex323glo.tutor.h2db.part_2.util.VirtualThreads;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class AsyncMainControllerTest {
+
+    private DAOExecutor executor;
+    private AsyncMainController asyncMainController;
+
+    private static final String TEST_USERNAME = "test_username";
+    private static final String TEST_PASSWORD = "test_password";
+
+    @Before
+    public void setUp() throws Exception {
+        executor = new DAOExecutor(2, 100);
+        asyncMainController = new AsyncMainControllerImpl(
+                new MainControllerImpl(new InMemoryDAO<>(), new InMemoryDAO<>()), executor);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.close();
+    }
+
+    @Test
+    public void registerLoginLogout() throws Exception {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(asyncMainController.register(TEST_USERNAME + i, TEST_PASSWORD));
+        }
+        for (CompletableFuture<String> future : futures) {
+            assertNotNull(future.get(10, TimeUnit.SECONDS));
+        }
+
+        String accessToken = asyncMainController.login(TEST_USERNAME + 0, TEST_PASSWORD).get(10, TimeUnit.SECONDS);
+        assertTrue(asyncMainController.logout(accessToken).get(10, TimeUnit.SECONDS));
+        assertFalse(asyncMainController.logout(accessToken).get(10, TimeUnit.SECONDS));
+
+        assertEquals(53, executor.getSubmittedCount());
+        assertEquals(0, executor.getRejectedCount());
+    }
+
+    @Test
+    public void rejectWhenQueueIsFull() throws Exception {
+        executor.close();
+        executor = new DAOExecutor(1, 1);
+        AsyncMainControllerImpl asyncMainControllerImpl = new AsyncMainControllerImpl(
+                new MainControllerImpl(new InMemoryDAO<>(), new InMemoryDAO<>()), executor);
+        asyncMainController = asyncMainControllerImpl;
+
+        CountDownLatch blockLatch = new CountDownLatch(1);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        executor.execute(() -> {
+            startLatch.countDown();
+            try {
+                blockLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        startLatch.await();
+
+        CompletableFuture<String> queued = asyncMainController.register(TEST_USERNAME, TEST_PASSWORD);
+        CompletableFuture<String> rejected = asyncMainController.register(TEST_USERNAME + 1, TEST_PASSWORD);
+        assertEquals(1, executor.getQueueDepth());
+
+        try {
+            rejected.get(10, TimeUnit.SECONDS);
+            fail("request must be rejected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AppException);
+        }
+
+        blockLatch.countDown();
+        assertNotNull(queued.get(10, TimeUnit.SECONDS));
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(1, asyncMainControllerImpl.getRejectedCount());
+        assertEquals(1, executor.getMaxQueueDepth());
+        assertTrue(executor.getMaxWaitNanos() > 0);
+    }
+
+    @Test
+    public void virtualThreadPerRequestMode() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            try {
+                VirtualThreads.newVirtualThreadPerTaskExecutor();
+                fail("virtual threads must not be supported by JDK " + System.getProperty("java.version"));
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        }
+        assumeTrue(VirtualThreads.isSupported());
+
+        try (ConnectionPool connectionPool = new ConnectionPool("jdbc:h2:mem:virtual_threads", "user", "pass", 4)) {
+            ExecutorService virtualThreadExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            AsyncMainController virtualThreadController = new AsyncMainControllerImpl(new MainControllerImpl(
+                    new H2UserDAO(connectionPool, "users"), new H2AccessTokenDAO(connectionPool, "access_tokens")),
+                    virtualThreadExecutor);
+
+            virtualThreadController.register(TEST_USERNAME, TEST_PASSWORD).get(10, TimeUnit.SECONDS);
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                futures.add(virtualThreadController.login(TEST_USERNAME, TEST_PASSWORD));
+            }
+            for (CompletableFuture<String> future : futures) {
+                assertNotNull(future.get(30, TimeUnit.SECONDS));
+            }
+
+            virtualThreadExecutor.shutdown();
+            assertTrue(connectionPool.getCreatedCount() <= 4);
+        }
+    }
+}
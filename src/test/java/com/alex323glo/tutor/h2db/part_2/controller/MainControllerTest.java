@@ -2,18 +2,36 @@ package com.alex323glo.tutor.h2db.part_2.controller;
 
 import com.alex323glo.tutor.h2db.part_2.dao.DAO;
 import com.alex323glo.tutor.h2db.part_2.dao.H2AccessTokenDAO;
+import com.alex323glo.tutor.h2db.part_2.dao.H2SchemaManager;
 import com.alex323glo.tutor.h2db.part_2.dao.H2UserDAO;
 import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
 import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
 import com.alex323glo.tutor.h2db.part_2.model.user.User;
 import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
+import com.alex323glo.tutor.h2db.part_2.util.RevocationList;
+import com.alex323glo.tutor.h2db.part_2.util.TokenSigner;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.junit.*;
 
+import java.io.StringWriter;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -21,9 +39,11 @@ public class MainControllerTest {
 
     private MainController mainController;
     private DAO<String, User> userDAO;
-    private DAO<String, AccessToken> accessTokenDAO;
+    private DAO<TokenId, AccessToken> accessTokenDAO;
     private Connection userDBConnection;
     private Connection accessTokenDBConnection;
+    private ConnectionPool userDBConnectionPool;
+    private ConnectionPool accessTokenDBConnectionPool;
 
 
     private static final String USER_DB_URL =
@@ -34,23 +54,23 @@ public class MainControllerTest {
     private static final String ACCESS_TOKEN_DB_TABLE_NAME = "access_tokens";
     private static final String DB_USER = "user";
     private static final String DB_PASS = "pass";
+    private static final int POOL_SIZE = 4;
 
     private static final String TEST_USERNAME = "test_username";
     private static final String TEST_PASSWORD = "test_password";
     private static final UserType TEST_USERTYPE = UserType.ROOT;
-    private static final String TEST_ACCESS_TOKEN = "test_access_token";
+    private static final String TEST_ACCESS_TOKEN = "0b9ef2c4-5c1a-4c55-9a43-1f0a7b3e2d61";
 
     @BeforeClass
     public static void createTestTable() throws Exception {
-        Connection tempUserDBConnection = DriverManager.getConnection(USER_DB_URL, DB_USER, DB_PASS);
-        tempUserDBConnection.createStatement().execute(
-                "CREATE TABLE users(username VARCHAR(45), password VARCHAR(45), TYPE VARCHAR(45));"
-        );
-
-        Connection tempAccessTokenDBConnection = DriverManager.getConnection(ACCESS_TOKEN_DB_URL, DB_USER, DB_PASS);
-        tempAccessTokenDBConnection.createStatement().execute(
-                "CREATE TABLE access_tokens(token VARCHAR(45), username VARCHAR(45), type VARCHAR (45));"
-        );
+        try (ConnectionPool tempUserDBConnectionPool = new ConnectionPool(USER_DB_URL, DB_USER, DB_PASS, 1)) {
+            H2SchemaManager.createUserTable(tempUserDBConnectionPool, USER_DB_TABLE_NAME);
+        }
+
+        try (ConnectionPool tempAccessTokenDBConnectionPool =
+                     new ConnectionPool(ACCESS_TOKEN_DB_URL, DB_USER, DB_PASS, 1)) {
+            H2SchemaManager.createAccessTokenTable(tempAccessTokenDBConnectionPool, ACCESS_TOKEN_DB_TABLE_NAME);
+        }
     }
 
     @AfterClass
@@ -66,17 +86,21 @@ public class MainControllerTest {
     public void setUp() throws Exception {
         userDBConnection = DriverManager.getConnection(USER_DB_URL, DB_USER, DB_PASS);
         userDBConnection.createStatement().execute("DELETE FROM " + USER_DB_TABLE_NAME + ";");
-        userDAO = new H2UserDAO(userDBConnection, USER_DB_TABLE_NAME);
+        userDBConnectionPool = new ConnectionPool(USER_DB_URL, DB_USER, DB_PASS, POOL_SIZE);
+        userDAO = new H2UserDAO(userDBConnectionPool, USER_DB_TABLE_NAME);
 
         accessTokenDBConnection = DriverManager.getConnection(ACCESS_TOKEN_DB_URL, DB_USER, DB_PASS);
         accessTokenDBConnection.createStatement().execute("DELETE FROM " + ACCESS_TOKEN_DB_TABLE_NAME + ";");
-        accessTokenDAO = new H2AccessTokenDAO(accessTokenDBConnection, ACCESS_TOKEN_DB_TABLE_NAME);
+        accessTokenDBConnectionPool = new ConnectionPool(ACCESS_TOKEN_DB_URL, DB_USER, DB_PASS, POOL_SIZE);
+        accessTokenDAO = new H2AccessTokenDAO(accessTokenDBConnectionPool, ACCESS_TOKEN_DB_TABLE_NAME);
 
         mainController = new MainControllerImpl(userDAO, accessTokenDAO);
     }
 
     @After
     public void tearDown() throws Exception {
+        userDBConnectionPool.close();
+        accessTokenDBConnectionPool.close();
         userDBConnection.close();
         accessTokenDBConnection.close();
     }
@@ -87,11 +111,44 @@ public class MainControllerTest {
 
         String accessTokenStr = mainController.register(user.getUsername(), user.getPassword());
 
-        AccessToken accessToken = new AccessToken(accessTokenStr, TEST_USERNAME);
+        AccessToken accessToken = new AccessToken(TokenId.parse(accessTokenStr), TEST_USERNAME);
 
         assertNotNull(accessTokenStr);
         assertEquals(user, userDAO.read(TEST_USERNAME).getBody());
-        assertEquals(accessToken, accessTokenDAO.read(accessTokenStr).getBody());
+        assertEquals(accessToken, accessTokenDAO.read(TokenId.parse(accessTokenStr)).getBody());
+    }
+
+    @Test
+    public void registerConcurrentlyWithoutDuplicates() throws Exception {
+        final int threadCount = 8;
+        final int usernameCount = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+
+        for (int i = 0; i < threadCount; i++) {
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                int registered = 0;
+                for (int j = 0; j < usernameCount; j++) {
+                    if (mainController.register(TEST_USERNAME + j, TEST_PASSWORD) != null) {
+                        registered++;
+                    }
+                }
+                return registered;
+            }));
+        }
+        startLatch.countDown();
+
+        int totalRegistered = 0;
+        for (Future<Integer> future : futures) {
+            totalRegistered += future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(usernameCount, totalRegistered);
+        assertEquals(usernameCount, userDAO.getKeyset().size());
+        assertEquals(usernameCount, accessTokenDAO.getKeyset().size());
     }
 
     // TODO add test for unsuccessful registration
@@ -102,10 +159,30 @@ public class MainControllerTest {
 
         String accessTokenStr = mainController.login(TEST_USERNAME, TEST_PASSWORD);
 
-        AccessToken accessToken = new AccessToken(accessTokenStr, TEST_USERNAME);
+        AccessToken accessToken = new AccessToken(TokenId.parse(accessTokenStr), TEST_USERNAME);
 
         assertNotNull(accessTokenStr);
-        assertEquals(accessToken, accessTokenDAO.read(accessTokenStr).getBody());
+        assertEquals(accessToken, accessTokenDAO.read(TokenId.parse(accessTokenStr)).getBody());
+    }
+
+    @Test
+    public void loginWithoutLoadingTokenKeyset() throws Exception {
+        DAO<TokenId, AccessToken> keysetlessAccessTokenDAO =
+                new H2AccessTokenDAO(accessTokenDBConnectionPool, ACCESS_TOKEN_DB_TABLE_NAME) {
+                    @Override
+                    public Set<TokenId> getKeyset() {
+                        throw new AssertionError("getKeyset() must not be called on login path");
+                    }
+                };
+        mainController = new MainControllerImpl(userDAO, keysetlessAccessTokenDAO);
+
+        String registerTokenStr = mainController.register(TEST_USERNAME, TEST_PASSWORD);
+        String loginTokenStr = mainController.login(TEST_USERNAME, TEST_PASSWORD);
+
+        assertNotNull(registerTokenStr);
+        assertNotNull(loginTokenStr);
+        assertNotEquals(registerTokenStr, loginTokenStr);
+        assertEquals(2, accessTokenDAO.getKeyset().size());
     }
 
     // TODO add test for unsuccessful login
@@ -118,7 +195,17 @@ public class MainControllerTest {
         boolean logoutResult = mainController.logout(accessTokenStr);
 
         assertTrue(logoutResult);
-        assertEquals(ResponseStatus.KO, accessTokenDAO.read(accessTokenStr).getStatus());
+        assertEquals(ResponseStatus.KO, accessTokenDAO.read(TokenId.parse(accessTokenStr)).getStatus());
+    }
+
+    @Test
+    public void logoutWithMalformedToken() throws Exception {
+        String accessTokenStr = mainController.register(TEST_USERNAME, TEST_PASSWORD);
+
+        assertEquals(accessTokenStr, TokenId.parse(accessTokenStr).toString());
+        assertFalse(mainController.logout("test_access_token"));
+        assertNull(mainController.getUserInfoAsJSON(accessTokenStr.replace('-', '_')));
+        assertTrue(mainController.logout(accessTokenStr));
     }
 
     // TODO add test for unsuccessful logout
@@ -126,25 +213,83 @@ public class MainControllerTest {
     @Test
     public void getUserInfoAsJSON() throws Exception {
         User user = new User(TEST_USERNAME, TEST_PASSWORD, TEST_USERTYPE);
-        AccessToken accessToken = new AccessToken(TEST_ACCESS_TOKEN, TEST_USERNAME, TEST_USERTYPE);
+        AccessToken accessToken = new AccessToken(TokenId.parse(TEST_ACCESS_TOKEN), TEST_USERNAME, TEST_USERTYPE);
         userDAO.create(user.getUsername(), user);
         accessTokenDAO.create(accessToken.getToken(), accessToken);
 
         String expectedUserInfoJSON = new Gson().toJson(user, User.class);
 
-        String actualUserInfoJSON = mainController.getUserInfoAsJSON(accessToken.getToken());
+        String actualUserInfoJSON = mainController.getUserInfoAsJSON(accessToken.getToken().toString());
 
         assertEquals(expectedUserInfoJSON, actualUserInfoJSON);
     }
 
     // TODO add test for unsuccessful getUserInfoAsJSON
 
+    @Test
+    public void getUserInfoAsJSONWithExpiredToken() throws Exception {
+        User user = new User(TEST_USERNAME, TEST_PASSWORD, TEST_USERTYPE);
+        AccessToken accessToken = new AccessToken(TokenId.parse(TEST_ACCESS_TOKEN), TEST_USERNAME, TEST_USERTYPE,
+                System.currentTimeMillis() - 1);
+        userDAO.create(user.getUsername(), user);
+        accessTokenDAO.create(accessToken.getToken(), accessToken);
+
+        assertNull(mainController.getUserInfoAsJSON(accessToken.getToken().toString()));
+    }
+
+    @Test
+    public void signedTokenWithoutAccessTokenDAO() throws Exception {
+        User user = new User(TEST_USERNAME, TEST_PASSWORD, TEST_USERTYPE);
+        userDAO.create(user.getUsername(), user);
+
+        try (ConnectionPool revokedTokenDBConnectionPool =
+                     new ConnectionPool("jdbc:h2:mem:revoked_tokens", DB_USER, DB_PASS, 1)) {
+            RevocationList revocationList =
+                    new RevocationList(new H2AccessTokenDAO(revokedTokenDBConnectionPool, "revoked_tokens"));
+            TokenSigner tokenSigner = new TokenSigner("test_secret_test_secret_test_secret".getBytes());
+            try {
+                ((MainControllerImpl) mainController).setTokenSigner(tokenSigner, revocationList);
+                fail("signed tokens without TTL must be rejected");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            ((MainControllerImpl) mainController).setTokenTtlMillis(60_000);
+            ((MainControllerImpl) mainController).setTokenSigner(
+                    new TokenSigner("test_secret_test_secret_test_secret".getBytes()), revocationList);
+
+            String accessTokenStr = mainController.login(TEST_USERNAME, TEST_PASSWORD);
+            assertTrue(TokenSigner.isSigned(accessTokenStr));
+            assertTrue(accessTokenDAO.getKeyset().isEmpty());
+            assertEquals(new Gson().toJson(user, User.class), mainController.getUserInfoAsJSON(accessTokenStr));
+
+            String tamperedAccessTokenStr = "x" + accessTokenStr.substring(1);
+            assertNull(mainController.getUserInfoAsJSON(tamperedAccessTokenStr));
+
+            assertTrue(mainController.logout(accessTokenStr));
+            assertFalse(mainController.logout(accessTokenStr));
+            assertNull(mainController.getUserInfoAsJSON(accessTokenStr));
+            assertEquals(1, revocationList.size());
+        }
+    }
+
+    @Test
+    public void registerWithTokenTtl() throws Exception {
+        ((MainControllerImpl) mainController).setTokenTtlMillis(60_000);
+        long now = System.currentTimeMillis();
+
+        String accessTokenStr = mainController.register(TEST_USERNAME, TEST_PASSWORD);
+
+        long expiresAt = accessTokenDAO.read(TokenId.parse(accessTokenStr)).getBody().getExpiresAt();
+        assertTrue(expiresAt >= now + 60_000);
+        assertTrue(expiresAt <= System.currentTimeMillis() + 60_000);
+    }
+
     @Test
     public void getAllUsersAsJSON() throws Exception {
         User rootUser = new User(TEST_USERNAME + "0", TEST_PASSWORD, TEST_USERTYPE);
         User user1 = new User(TEST_USERNAME + "1", TEST_PASSWORD, UserType.USER);
         User user2 = new User(TEST_USERNAME + "2", TEST_PASSWORD, UserType.USER);
-        AccessToken accessToken = new AccessToken(TEST_ACCESS_TOKEN, rootUser.getUsername(), UserType.ROOT);
+        AccessToken accessToken = new AccessToken(TokenId.parse(TEST_ACCESS_TOKEN), rootUser.getUsername(), UserType.ROOT);
 
         userDAO.create(rootUser.getUsername(), rootUser);
         userDAO.create(user1.getUsername(), user1);
@@ -158,9 +303,92 @@ public class MainControllerTest {
 
         String expectedAllUsersInfoJSON = new Gson().toJson(userMap, Map.class);
 
-        String actualAllUsersInfoJSON = mainController.getAllUsersAsJSON(accessToken.getToken());
+        String actualAllUsersInfoJSON = mainController.getAllUsersAsJSON(accessToken.getToken().toString());
+
+        // order of JSON object members follows DAO scan order, so objects are compared
+        assertEquals(new JsonParser().parse(expectedAllUsersInfoJSON), new JsonParser().parse(actualAllUsersInfoJSON));
+    }
+
+    @Test
+    public void writeAllUsersAsJSON() throws Exception {
+        User rootUser = new User(TEST_USERNAME + "0", TEST_PASSWORD, TEST_USERTYPE);
+        User user1 = new User(TEST_USERNAME + "1", "<\"pass\">", UserType.USER);
+        AccessToken accessToken = new AccessToken(TokenId.parse(TEST_ACCESS_TOKEN), rootUser.getUsername(), UserType.ROOT);
+
+        userDAO.create(rootUser.getUsername(), rootUser);
+        userDAO.create(user1.getUsername(), user1);
+        accessTokenDAO.create(accessToken.getToken(), accessToken);
+
+        Map<String, User> userMap = new HashMap<>();
+        userMap.put(rootUser.getUsername(), rootUser);
+        userMap.put(user1.getUsername(), user1);
+
+        StringWriter writer = new StringWriter();
+        boolean written = mainController.writeAllUsersAsJSON(accessToken.getToken().toString(), writer);
 
-        assertEquals(expectedAllUsersInfoJSON, actualAllUsersInfoJSON);
+        assertTrue(written);
+        assertEquals(new JsonParser().parse(new Gson().toJson(userMap, Map.class)),
+                new JsonParser().parse(writer.toString()));
+    }
+
+    @Test
+    public void getUsersPageAsJSON() throws Exception {
+        AccessToken accessToken = new AccessToken(TokenId.parse(TEST_ACCESS_TOKEN), TEST_USERNAME + 0, UserType.ROOT);
+        accessTokenDAO.create(accessToken.getToken(), accessToken);
+        Map<String, User> userMap = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User(TEST_USERNAME + i, TEST_PASSWORD, i == 0 ? UserType.ROOT : UserType.USER);
+            userDAO.create(user.getUsername(), user);
+            userMap.put(user.getUsername(), user);
+        }
+
+        List<String> pageSizes = new ArrayList<>();
+        JsonObject allRecords = new JsonObject();
+        String cursor = null;
+        do {
+            JsonObject page = new JsonParser()
+                    .parse(mainController.getUsersPageAsJSON(accessToken.getToken().toString(), cursor, 2))
+                    .getAsJsonObject();
+            JsonObject records = page.getAsJsonObject("records");
+            for (Map.Entry<String, JsonElement> record : records.entrySet()) {
+                allRecords.add(record.getKey(), record.getValue());
+            }
+            pageSizes.add(String.valueOf(records.size()));
+            cursor = page.has("next") ? page.get("next").getAsString() : null;
+        } while (cursor != null);
+
+        assertEquals(Arrays.asList("2", "2", "1"), pageSizes);
+        assertEquals(new JsonParser().parse(new Gson().toJson(userMap, Map.class)), allRecords);
+    }
+
+    @Test
+    public void writeAllUsersAsJSONWithoutRootAccess() throws Exception {
+        User user = new User(TEST_USERNAME, TEST_PASSWORD, UserType.USER);
+        AccessToken accessToken = new AccessToken(TokenId.parse(TEST_ACCESS_TOKEN), user.getUsername(), UserType.USER);
+        userDAO.create(user.getUsername(), user);
+        accessTokenDAO.create(accessToken.getToken(), accessToken);
+
+        StringWriter writer = new StringWriter();
+
+        assertFalse(mainController.writeAllUsersAsJSON(accessToken.getToken().toString(), writer));
+        assertEquals("", writer.toString());
+    }
+
+    @Test
+    public void registerColocated() throws Exception {
+        try (ConnectionPool connectionPool =
+                     new ConnectionPool("jdbc:h2:mem:colocated_test", DB_USER, DB_PASS, POOL_SIZE)) {
+            MainControllerImpl colocatedController = MainControllerImpl.createColocated(connectionPool,
+                    USER_DB_TABLE_NAME, ACCESS_TOKEN_DB_TABLE_NAME);
+
+            String accessToken = colocatedController.register(TEST_USERNAME, TEST_PASSWORD);
+            assertNotNull(accessToken);
+            assertNull(colocatedController.register(TEST_USERNAME, TEST_PASSWORD));
+
+            assertEquals(2, colocatedController.getTransactionManager().getCommitCount());
+            assertEquals(TEST_USERNAME, colocatedController.getAccessTokenDAO()
+                    .read(TokenId.parse(accessToken)).getBody().getUsername());
+        }
     }
 
     // TODO add test for unsuccessful getAllUsersAsJSON
@@ -0,0 +1,71 @@
+package com.alex323glo.tutor.h2db.part_2.dao;
+
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AccessTokenSweeperTest {
+
+    private ConnectionPool connectionPool;
+    private H2AccessTokenDAO accessTokenDAO;
+
+    private static final String DB_URL = "jdbc:h2:mem:access_token_sweeper_test";
+    private static final String DB_TABLE_NAME = "access_tokens";
+    private static final String DB_USER = "user";
+    private static final String DB_PASS = "pass";
+    private static final int POOL_SIZE = 2;
+
+    private static final TokenId TEST_ACCESS_TOKEN = TokenId.parse("0b9ef2c4-5c1a-4c55-9a43-1f0a7b3e2d61");
+    private static final String TEST_USERNAME = "test_username";
+
+    @Before
+    public void setUp() throws Exception {
+        connectionPool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, POOL_SIZE);
+        accessTokenDAO = new H2AccessTokenDAO(connectionPool, DB_TABLE_NAME);
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            AccessToken accessToken = new AccessToken(new TokenId(1, i), TEST_USERNAME, UserType.USER,
+                    i < 7 ? now - 1000 : now + 60_000);
+            accessTokenDAO.create(accessToken.getToken(), accessToken);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connectionPool.close();
+    }
+
+    @Test
+    public void sweepInBatches() throws Exception {
+        try (AccessTokenSweeper sweeper = new AccessTokenSweeper(accessTokenDAO, 3)) {
+            assertEquals(7, sweeper.sweep());
+
+            assertEquals(3, sweeper.getBatchCount());
+            assertEquals(7, sweeper.getDeletedCount());
+            assertEquals(3, sweeper.getTableSize());
+            assertEquals(3, accessTokenDAO.count());
+        }
+    }
+
+    @Test
+    public void sweepInBackground() throws Exception {
+        try (AccessTokenSweeper sweeper = new AccessTokenSweeper(accessTokenDAO)) {
+            sweeper.start(10);
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (sweeper.getSweepCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(7, sweeper.getDeletedCount());
+            assertEquals(3, accessTokenDAO.count());
+        }
+    }
+}
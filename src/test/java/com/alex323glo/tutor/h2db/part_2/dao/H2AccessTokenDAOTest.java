@@ -3,7 +3,9 @@ package com.alex323glo.tutor.h2db.part_2.dao;
 import com.alex323glo.tutor.h2db.part_2.model.response.Response;
 import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
 import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
 import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
 import org.junit.*;
 
 import java.sql.Connection;
@@ -17,25 +19,26 @@ import static org.junit.Assert.*;
 
 public class H2AccessTokenDAOTest {
 
-    private DAO<String, AccessToken> accessTokenDAO;
+    private DAO<TokenId, AccessToken> accessTokenDAO;
     private Connection dbConnection;
+    private ConnectionPool connectionPool;
 
     private static final String DB_URL =
             "jdbc:h2:/home/alex323glo/Java/Idea/h2db-tutorial/src/test/resources/test_access_token_db/test";
     private static final String DB_TABLE_NAME = "access_tokens";
     private static final String DB_USER = "user";
     private static final String DB_PASS = "pass";
+    private static final int POOL_SIZE = 4;
 
-    private static final String TEST_ACCESS_TOKEN = "test_access_token";
+    private static final TokenId TEST_ACCESS_TOKEN = TokenId.parse("0b9ef2c4-5c1a-4c55-9a43-1f0a7b3e2d61");
     private static final String TEST_USERNAME = "test_username";
     private static final UserType TEST_ACCESS_TOKEN_TYPE = UserType.USER;
 
     @BeforeClass
     public static void createTestTable() throws Exception {
-        Connection tempConnection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
-        tempConnection.createStatement().execute(
-                "CREATE TABLE access_tokens(token VARCHAR(45), username VARCHAR(45), type VARCHAR (45));"
-        );
+        try (ConnectionPool tempConnectionPool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, 1)) {
+            H2SchemaManager.createAccessTokenTable(tempConnectionPool, DB_TABLE_NAME);
+        }
     }
 
     @AfterClass
@@ -48,11 +51,13 @@ public class H2AccessTokenDAOTest {
     public void setUp() throws Exception {
         dbConnection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
         dbConnection.createStatement().execute("DELETE FROM " + DB_TABLE_NAME + ";");
-        accessTokenDAO = new H2AccessTokenDAO(dbConnection, DB_TABLE_NAME);
+        connectionPool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, POOL_SIZE);
+        accessTokenDAO = new H2AccessTokenDAO(connectionPool, DB_TABLE_NAME);
     }
 
     @After
     public void tearDown() throws Exception {
+        connectionPool.close();
         dbConnection.close();
     }
 
@@ -95,7 +100,7 @@ public class H2AccessTokenDAOTest {
         accessTokenDAO.create(accessToken.getToken(), accessToken);
 
         AccessToken newAccessToken = new AccessToken(
-                TEST_ACCESS_TOKEN + "1",
+                new TokenId(1, 1),
                 TEST_USERNAME + "1",
                 TEST_ACCESS_TOKEN_TYPE.equals(UserType.USER) ? UserType.ROOT : UserType.USER
         );
@@ -135,51 +140,76 @@ public class H2AccessTokenDAOTest {
 
     @Test
     public void getKeysetFromNotEmptyTable() throws Exception {
-        AccessToken accessToken1 = new AccessToken(TEST_ACCESS_TOKEN + "1", TEST_USERNAME,
+        AccessToken accessToken1 = new AccessToken(new TokenId(1, 1), TEST_USERNAME,
                 TEST_ACCESS_TOKEN_TYPE);
-        AccessToken accessToken2 = new AccessToken(TEST_ACCESS_TOKEN + "2", TEST_USERNAME,
+        AccessToken accessToken2 = new AccessToken(new TokenId(1, 2), TEST_USERNAME,
                 TEST_ACCESS_TOKEN_TYPE);
         accessTokenDAO.create(accessToken1.getToken(), accessToken1);
         accessTokenDAO.create(accessToken2.getToken(), accessToken2);
 
-        Set<String> expectedKeySet = new HashSet<>();
+        Set<TokenId> expectedKeySet = new HashSet<>();
         expectedKeySet.add(accessToken1.getToken());
         expectedKeySet.add(accessToken2.getToken());
 
-        Set<String> actualKeySet = accessTokenDAO.getKeyset();
+        Set<TokenId> actualKeySet = accessTokenDAO.getKeyset();
 
         assertEquals(expectedKeySet, actualKeySet);
     }
 
     @Test
     public void getKeysetFromEmptyTable() throws Exception {
-        Set<String> expectedEmptyKeySet = new HashSet<>();
-        Set<String> actualKeySet = accessTokenDAO.getKeyset();
+        Set<TokenId> expectedEmptyKeySet = new HashSet<>();
+        Set<TokenId> actualKeySet = accessTokenDAO.getKeyset();
         assertEquals(expectedEmptyKeySet, actualKeySet);
     }
 
     @Test
     public void getAllFromNotEmptyTable() throws Exception {
-        AccessToken accessToken1 = new AccessToken(TEST_ACCESS_TOKEN + "1", TEST_USERNAME,
+        AccessToken accessToken1 = new AccessToken(new TokenId(1, 1), TEST_USERNAME,
                 TEST_ACCESS_TOKEN_TYPE);
-        AccessToken accessToken2 = new AccessToken(TEST_ACCESS_TOKEN + "2", TEST_USERNAME,
+        AccessToken accessToken2 = new AccessToken(new TokenId(1, 2), TEST_USERNAME,
                 TEST_ACCESS_TOKEN_TYPE);
         accessTokenDAO.create(accessToken1.getToken(), accessToken1);
         accessTokenDAO.create(accessToken2.getToken(), accessToken2);
 
-        Map<String, AccessToken> expectedMap = new HashMap<>();
+        Map<TokenId, AccessToken> expectedMap = new HashMap<>();
         expectedMap.put(accessToken1.getToken(), accessToken1);
         expectedMap.put(accessToken2.getToken(), accessToken2);
 
-        Map<String, AccessToken> actualMap = accessTokenDAO.getAll();
+        Map<TokenId, AccessToken> actualMap = accessTokenDAO.getAll();
 
         assertEquals(expectedMap, actualMap);
     }
 
     @Test
     public void getAllFromEmptyTable() throws Exception {
-        Map<String, AccessToken> expectedEmptyMap = new HashMap<>();
-        Map<String, AccessToken> actualMap = accessTokenDAO.getAll();
+        Map<TokenId, AccessToken> expectedEmptyMap = new HashMap<>();
+        Map<TokenId, AccessToken> actualMap = accessTokenDAO.getAll();
         assertEquals(expectedEmptyMap, actualMap);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void deleteExpiredInBatches() throws Exception {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            AccessToken expiredAccessToken = new AccessToken(new TokenId(2, i), TEST_USERNAME,
+                    TEST_ACCESS_TOKEN_TYPE, now - 1000);
+            accessTokenDAO.create(expiredAccessToken.getToken(), expiredAccessToken);
+        }
+        AccessToken validAccessToken = new AccessToken(TEST_ACCESS_TOKEN, TEST_USERNAME,
+                TEST_ACCESS_TOKEN_TYPE, now + 60_000);
+        AccessToken eternalAccessToken = new AccessToken(new TokenId(3, 0), TEST_USERNAME,
+                TEST_ACCESS_TOKEN_TYPE);
+        accessTokenDAO.create(validAccessToken.getToken(), validAccessToken);
+        accessTokenDAO.create(eternalAccessToken.getToken(), eternalAccessToken);
+
+        H2AccessTokenDAO h2AccessTokenDAO = (H2AccessTokenDAO) accessTokenDAO;
+        assertEquals(3, h2AccessTokenDAO.deleteExpired(now, 3));
+        assertEquals(2, h2AccessTokenDAO.deleteExpired(now, 3));
+        assertEquals(0, h2AccessTokenDAO.deleteExpired(now, 3));
+
+        assertEquals(2, h2AccessTokenDAO.count());
+        assertEquals(validAccessToken, accessTokenDAO.read(validAccessToken.getToken()).getBody());
+        assertEquals(eternalAccessToken, accessTokenDAO.read(eternalAccessToken.getToken()).getBody());
+    }
+}
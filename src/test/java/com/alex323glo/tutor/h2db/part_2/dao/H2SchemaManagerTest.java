@@ -0,0 +1,65 @@
+package com.alex323glo.tutor.h2db.part_2.dao;
+
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
+import com.alex323glo.tutor.h2db.part_2.pool.PooledConnection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class H2SchemaManagerTest {
+
+    private ConnectionPool connectionPool;
+
+    private static final String DB_URL = "jdbc:h2:mem:schema_manager_test";
+    private static final String DB_USER = "user";
+    private static final String DB_PASS = "pass";
+    private static final int POOL_SIZE = 1;
+
+    @Before
+    public void setUp() throws Exception {
+        connectionPool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, POOL_SIZE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connectionPool.close();
+    }
+
+    @Test
+    public void createUserTableTwice() throws Exception {
+        H2SchemaManager.createUserTable(connectionPool, "users");
+        H2SchemaManager.createUserTable(connectionPool, "users");
+    }
+
+    @Test
+    public void createAccessTokenTableWithUsernameIndex() throws Exception {
+        H2SchemaManager.createAccessTokenTable(connectionPool, "access_tokens");
+
+        try (PooledConnection connection = connectionPool.borrow();
+             ResultSet resultSet = connection.getConnection().getMetaData()
+                     .getIndexInfo(null, null, "ACCESS_TOKENS", false, false)) {
+            boolean usernameIndexFound = false;
+            while (resultSet.next()) {
+                usernameIndexFound |= "USERNAME".equals(resultSet.getString("COLUMN_NAME"));
+            }
+            assertTrue(usernameIndexFound);
+        }
+    }
+
+    @Test(expected = DAOException.class)
+    public void createUserTableOverIncompatibleTable() throws Exception {
+        try (PooledConnection connection = connectionPool.borrow();
+             Statement statement = connection.getConnection().createStatement()) {
+            statement.execute("CREATE TABLE legacy_users(username VARCHAR(45), password VARCHAR(45), type VARCHAR(45))");
+        }
+
+        H2SchemaManager.createUserTable(connectionPool, "legacy_users");
+    }
+
+}
@@ -4,14 +4,25 @@ import com.alex323glo.tutor.h2db.part_2.model.response.Response;
 import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
 import com.alex323glo.tutor.h2db.part_2.model.user.User;
 import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
 import org.junit.*;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -19,12 +30,14 @@ public class H2UserDAOTest {
 
     private DAO<String, User> userDAO;
     private Connection dbConnection;
+    private ConnectionPool connectionPool;
 
     private static final String DB_URL =
             "jdbc:h2:/home/alex323glo/Java/Idea/h2db-tutorial/src/test/resources/test_user_db/test";
     private static final String DB_TABLE_NAME = "users";
     private static final String DB_USER = "user";
     private static final String DB_PASS = "pass";
+    private static final int POOL_SIZE = 4;
 
     private static final String TEST_USERNAME = "test_username";
     private static final String TEST_PASSWORD = "test_password";
@@ -32,10 +45,9 @@ public class H2UserDAOTest {
 
     @BeforeClass
     public static void createTestTable() throws Exception {
-        Connection tempConnection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
-        tempConnection.createStatement().execute(
-                "CREATE TABLE users(username VARCHAR(45), password VARCHAR(45), TYPE VARCHAR(45));"
-        );
+        try (ConnectionPool tempConnectionPool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, 1)) {
+            H2SchemaManager.createUserTable(tempConnectionPool, DB_TABLE_NAME);
+        }
     }
 
     @AfterClass
@@ -48,11 +60,13 @@ public class H2UserDAOTest {
     public void setUp() throws Exception {
         dbConnection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
         dbConnection.createStatement().execute("DELETE FROM " + DB_TABLE_NAME + ";");
-        userDAO = new H2UserDAO(dbConnection, DB_TABLE_NAME);
+        connectionPool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, POOL_SIZE);
+        userDAO = new H2UserDAO(connectionPool, DB_TABLE_NAME);
     }
 
     @After
     public void tearDown() throws Exception {
+        connectionPool.close();
         dbConnection.close();
     }
 
@@ -83,6 +97,16 @@ public class H2UserDAOTest {
     }
 
 
+    @Test
+    public void createAndReadWithQuotesInValues() throws Exception {
+        User user = new User("o'" + TEST_USERNAME, "'; DROP TABLE users; --", TEST_USERTYPE);
+        assertEquals(ResponseStatus.OK, userDAO.create(user.getUsername(), user).getStatus());
+
+        Response<User> response = userDAO.read(user.getUsername());
+        assertEquals(ResponseStatus.OK, response.getStatus());
+        assertEquals(user, response.getBody());
+    }
+
     @Test
     public void readWithKO() throws Exception {
         Response<User> response = userDAO.read(TEST_USERNAME);
@@ -116,6 +140,21 @@ public class H2UserDAOTest {
         assertEquals(ResponseStatus.KO, updateResponse.getStatus());
     }
 
+    @Test
+    public void updateToExistentKeyWithKO() throws Exception {
+        User user1 = new User(TEST_USERNAME + "1", TEST_PASSWORD, TEST_USERTYPE);
+        User user2 = new User(TEST_USERNAME + "2", TEST_PASSWORD, TEST_USERTYPE);
+        userDAO.create(user1.getUsername(), user1);
+        userDAO.create(user2.getUsername(), user2);
+
+        Response<User> updateResponse = userDAO.update(user1.getUsername(),
+                new User(user2.getUsername(), TEST_PASSWORD + "1", TEST_USERTYPE));
+
+        assertEquals(ResponseStatus.KO, updateResponse.getStatus());
+        assertEquals(user1, userDAO.read(user1.getUsername()).getBody());
+        assertEquals(user2, userDAO.read(user2.getUsername()).getBody());
+    }
+
     @Test
     public void deleteWithOK() throws Exception {
         User user = new User(TEST_USERNAME, TEST_PASSWORD, TEST_USERTYPE);
@@ -127,12 +166,124 @@ public class H2UserDAOTest {
         assertEquals(user, response.getBody());
     }
 
+    @Test
+    public void deleteConcurrentlyWithSingleOK() throws Exception {
+        final User user = new User(TEST_USERNAME, TEST_PASSWORD, TEST_USERTYPE);
+        userDAO.create(user.getUsername(), user);
+
+        final int threadCount = POOL_SIZE;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Future<Response<User>>> futures = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                return userDAO.delete(user.getUsername());
+            }));
+        }
+        startLatch.countDown();
+
+        int okCount = 0;
+        for (Future<Response<User>> future : futures) {
+            Response<User> response = future.get(30, TimeUnit.SECONDS);
+            if (response.getStatus().equals(ResponseStatus.OK)) {
+                okCount++;
+                assertEquals(user, response.getBody());
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, okCount);
+    }
+
     @Test
     public void deleteWithKO() throws Exception {
         Response<User> response = userDAO.delete(TEST_USERNAME);
         assertEquals(ResponseStatus.KO, response.getStatus());
     }
 
+    @Test
+    public void createAllWithPerKeyResponses() throws Exception {
+        ((H2UserDAO) userDAO).setBatchSize(2);
+        User existentUser = new User(TEST_USERNAME + "1", TEST_PASSWORD, TEST_USERTYPE);
+        userDAO.create(existentUser.getUsername(), existentUser);
+
+        Map<String, User> records = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            records.put(TEST_USERNAME + i, new User(TEST_USERNAME + i, TEST_PASSWORD + i, TEST_USERTYPE));
+        }
+        Map<String, Response> responses = userDAO.createAll(records);
+
+        assertEquals(new ArrayList<>(records.keySet()), new ArrayList<>(responses.keySet()));
+        for (String key : records.keySet()) {
+            ResponseStatus expectedStatus = key.equals(existentUser.getUsername()) ? ResponseStatus.KO : ResponseStatus.OK;
+            assertEquals(expectedStatus, responses.get(key).getStatus());
+        }
+        assertEquals(existentUser, userDAO.read(existentUser.getUsername()).getBody());
+        assertEquals(records.get(TEST_USERNAME + 4), userDAO.read(TEST_USERNAME + 4).getBody());
+    }
+
+    @Test
+    public void readAllWithPerKeyResponses() throws Exception {
+        ((H2UserDAO) userDAO).setBatchSize(2);
+        Map<String, User> records = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            records.put(TEST_USERNAME + i, new User(TEST_USERNAME + i, TEST_PASSWORD + i, TEST_USERTYPE));
+        }
+        userDAO.createAll(records);
+
+        List<String> keys = Arrays.asList(TEST_USERNAME + 2, TEST_USERNAME + "X", TEST_USERNAME + 0, TEST_USERNAME + 1);
+        Map<String, Response<User>> responses = userDAO.readAll(keys);
+
+        assertEquals(keys, new ArrayList<>(responses.keySet()));
+        assertEquals(ResponseStatus.KO, responses.get(TEST_USERNAME + "X").getStatus());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ResponseStatus.OK, responses.get(TEST_USERNAME + i).getStatus());
+            assertEquals(records.get(TEST_USERNAME + i), responses.get(TEST_USERNAME + i).getBody());
+        }
+    }
+
+    @Test
+    public void updateAllWithPerKeyResponses() throws Exception {
+        ((H2UserDAO) userDAO).setBatchSize(2);
+        User user1 = new User(TEST_USERNAME + "1", TEST_PASSWORD, TEST_USERTYPE);
+        User user2 = new User(TEST_USERNAME + "2", TEST_PASSWORD, TEST_USERTYPE);
+        userDAO.create(user1.getUsername(), user1);
+        userDAO.create(user2.getUsername(), user2);
+
+        Map<String, User> records = new LinkedHashMap<>();
+        records.put(user1.getUsername(), new User(user1.getUsername(), TEST_PASSWORD + "1", UserType.ROOT));
+        records.put(TEST_USERNAME + "X", new User(TEST_USERNAME + "X", TEST_PASSWORD, TEST_USERTYPE));
+        records.put(user2.getUsername(), new User(user2.getUsername(), TEST_PASSWORD + "2", UserType.ROOT));
+        Map<String, Response<User>> responses = userDAO.updateAll(records);
+
+        assertEquals(new Response<>(ResponseStatus.OK, user1), responses.get(user1.getUsername()));
+        assertEquals(new Response<>(ResponseStatus.OK, user2), responses.get(user2.getUsername()));
+        assertEquals(ResponseStatus.KO, responses.get(TEST_USERNAME + "X").getStatus());
+        assertEquals(records.get(user1.getUsername()), userDAO.read(user1.getUsername()).getBody());
+        assertEquals(records.get(user2.getUsername()), userDAO.read(user2.getUsername()).getBody());
+        assertEquals(ResponseStatus.KO, userDAO.read(TEST_USERNAME + "X").getStatus());
+    }
+
+    @Test
+    public void deleteAllWithPerKeyResponses() throws Exception {
+        ((H2UserDAO) userDAO).setBatchSize(2);
+        User user1 = new User(TEST_USERNAME + "1", TEST_PASSWORD, TEST_USERTYPE);
+        User user2 = new User(TEST_USERNAME + "2", TEST_PASSWORD, TEST_USERTYPE);
+        User user3 = new User(TEST_USERNAME + "3", TEST_PASSWORD, TEST_USERTYPE);
+        userDAO.create(user1.getUsername(), user1);
+        userDAO.create(user2.getUsername(), user2);
+        userDAO.create(user3.getUsername(), user3);
+
+        Map<String, Response<User>> responses = userDAO.deleteAll(
+                Arrays.asList(user1.getUsername(), TEST_USERNAME + "X", user2.getUsername()));
+
+        assertEquals(new Response<>(ResponseStatus.OK, user1), responses.get(user1.getUsername()));
+        assertEquals(new Response<>(ResponseStatus.OK, user2), responses.get(user2.getUsername()));
+        assertEquals(ResponseStatus.KO, responses.get(TEST_USERNAME + "X").getStatus());
+        assertEquals(Collections.singleton(user3.getUsername()), userDAO.getKeyset());
+    }
+
     @Test
     public void getKeysetFromNotEmptyTable() throws Exception {
         User user1 = new User(TEST_USERNAME + "1", TEST_PASSWORD, TEST_USERTYPE);
@@ -172,6 +323,44 @@ public class H2UserDAOTest {
         assertEquals(expectedMap, actualMap);
     }
 
+    @Test
+    public void forEachStreamsAllRecords() throws Exception {
+        ((H2UserDAO) userDAO).setFetchSize(2);
+        Map<String, User> expectedMap = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User(TEST_USERNAME + i, TEST_PASSWORD, TEST_USERTYPE);
+            userDAO.create(user.getUsername(), user);
+            expectedMap.put(user.getUsername(), user);
+        }
+
+        Map<String, User> actualMap = new HashMap<>();
+        userDAO.forEach(actualMap::put);
+        Set<String> actualKeySet = new HashSet<>();
+        userDAO.forEachKey(actualKeySet::add);
+
+        assertEquals(expectedMap, actualMap);
+        assertEquals(expectedMap.keySet(), actualKeySet);
+    }
+
+    @Test
+    public void readPagesInKeyOrder() throws Exception {
+        for (int i = 4; i >= 0; i--) {
+            User user = new User(TEST_USERNAME + i, TEST_PASSWORD, TEST_USERTYPE);
+            userDAO.create(user.getUsername(), user);
+        }
+
+        Map<String, User> firstPage = userDAO.readPage(null, 2);
+        Map<String, User> secondPage = userDAO.readPage(TEST_USERNAME + 1, 2);
+        Map<String, User> lastPage = userDAO.readPage(TEST_USERNAME + 3, 2);
+        Map<String, User> emptyPage = userDAO.readPage(TEST_USERNAME + 4, 2);
+
+        assertEquals(Arrays.asList(TEST_USERNAME + 0, TEST_USERNAME + 1), new ArrayList<>(firstPage.keySet()));
+        assertEquals(Arrays.asList(TEST_USERNAME + 2, TEST_USERNAME + 3), new ArrayList<>(secondPage.keySet()));
+        assertEquals(Collections.singletonList(TEST_USERNAME + 4), new ArrayList<>(lastPage.keySet()));
+        assertTrue(emptyPage.isEmpty());
+        assertEquals(new User(TEST_USERNAME + 2, TEST_PASSWORD, TEST_USERTYPE), secondPage.get(TEST_USERNAME + 2));
+    }
+
     @Test
     public void getAllFromEmptyTable() throws Exception {
         Map<String, User> expectedEmptyMap = new HashMap<>();
@@ -0,0 +1,153 @@
+package com.alex323glo.tutor.h2db.part_2.dao.cache;
+
+import com.alex323glo.tutor.h2db.part_2.dao.H2AccessTokenDAO;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
+import com.alex323glo.tutor.h2db.part_2.util.BloomFilter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterDAOTest {
+
+    private ConnectionPool connectionPool;
+    private H2AccessTokenDAO accessTokenDAO;
+
+    private static final String DB_URL = "jdbc:h2:mem:bloom_filter_dao_test";
+    private static final String DB_TABLE_NAME = "access_tokens";
+    private static final String DB_USER = "user";
+    private static final String DB_PASS = "pass";
+    private static final int POOL_SIZE = 2;
+
+    private static final TokenId TEST_ACCESS_TOKEN = TokenId.parse("0b9ef2c4-5c1a-4c55-9a43-1f0a7b3e2d61");
+    private static final String TEST_USERNAME = "test_username";
+    private static final int EXPECTED_INSERTIONS = 1000;
+
+    @Before
+    public void setUp() throws Exception {
+        connectionPool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, POOL_SIZE);
+        accessTokenDAO = new H2AccessTokenDAO(connectionPool, DB_TABLE_NAME);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connectionPool.close();
+    }
+
+    @Test
+    public void rejectUnknownKeyWithoutRead() throws Exception {
+        BloomFilterDAO<TokenId, AccessToken> bloomFilterDAO =
+                new BloomFilterDAO<>(accessTokenDAO, AccessToken::getToken, EXPECTED_INSERTIONS);
+
+        assertEquals(ResponseStatus.KO, bloomFilterDAO.read(TEST_ACCESS_TOKEN).getStatus());
+        assertEquals(1, bloomFilterDAO.getRejectedCount());
+        assertEquals(0, bloomFilterDAO.getPassedCount());
+    }
+
+    @Test
+    public void readCreatedKey() throws Exception {
+        BloomFilterDAO<TokenId, AccessToken> bloomFilterDAO =
+                new BloomFilterDAO<>(accessTokenDAO, AccessToken::getToken, EXPECTED_INSERTIONS);
+        AccessToken accessToken = new AccessToken(TEST_ACCESS_TOKEN, TEST_USERNAME, UserType.USER);
+
+        bloomFilterDAO.create(accessToken.getToken(), accessToken);
+
+        assertEquals(accessToken, bloomFilterDAO.read(TEST_ACCESS_TOKEN).getBody());
+    }
+
+    @Test
+    public void rebuildFromExistentKeys() throws Exception {
+        AccessToken accessToken = new AccessToken(TEST_ACCESS_TOKEN, TEST_USERNAME, UserType.USER);
+        accessTokenDAO.create(accessToken.getToken(), accessToken);
+
+        BloomFilterDAO<TokenId, AccessToken> bloomFilterDAO =
+                new BloomFilterDAO<>(accessTokenDAO, AccessToken::getToken, EXPECTED_INSERTIONS);
+        assertEquals(accessToken, bloomFilterDAO.read(TEST_ACCESS_TOKEN).getBody());
+
+        bloomFilterDAO.delete(TEST_ACCESS_TOKEN);
+        bloomFilterDAO.rebuild();
+        assertFalse(bloomFilterDAO.mightContain(TEST_ACCESS_TOKEN));
+    }
+
+    @Test
+    public void concurrentRebuildsKeepCreatedKeys() throws Exception {
+        BloomFilterDAO<TokenId, AccessToken> bloomFilterDAO =
+                new BloomFilterDAO<>(accessTokenDAO, AccessToken::getToken, EXPECTED_INSERTIONS);
+        List<TokenId> createdTokens = new CopyOnWriteArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            futures.add(executor.submit(() -> {
+                for (int n = 0; n < 20; n++) {
+                    bloomFilterDAO.rebuild();
+                }
+                return null;
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            for (int n = 0; n < 500; n++) {
+                AccessToken accessToken = new AccessToken(new TokenId(1, n), TEST_USERNAME, UserType.USER);
+                bloomFilterDAO.create(accessToken.getToken(), accessToken);
+                createdTokens.add(accessToken.getToken());
+            }
+            return null;
+        }));
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(41, bloomFilterDAO.getRebuildCount());
+        for (TokenId createdToken : createdTokens) {
+            assertTrue(bloomFilterDAO.mightContain(createdToken));
+        }
+    }
+
+    @Test
+    public void periodicRebuildDropsDeletedKeys() throws Exception {
+        AccessToken accessToken = new AccessToken(TEST_ACCESS_TOKEN, TEST_USERNAME, UserType.USER);
+        try (BloomFilterDAO<TokenId, AccessToken> bloomFilterDAO =
+                     new BloomFilterDAO<>(accessTokenDAO, AccessToken::getToken, EXPECTED_INSERTIONS)) {
+            bloomFilterDAO.create(accessToken.getToken(), accessToken);
+            bloomFilterDAO.delete(TEST_ACCESS_TOKEN);
+            assertTrue(bloomFilterDAO.mightContain(TEST_ACCESS_TOKEN));
+
+            bloomFilterDAO.startRebuilds(1);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (bloomFilterDAO.mightContain(TEST_ACCESS_TOKEN) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertFalse(bloomFilterDAO.mightContain(TEST_ACCESS_TOKEN));
+        }
+    }
+
+    @Test
+    public void bloomFilterFalsePositiveRate() throws Exception {
+        BloomFilter bloomFilter = new BloomFilter(EXPECTED_INSERTIONS, 0.01);
+        for (int i = 0; i < EXPECTED_INSERTIONS; i++) {
+            bloomFilter.put("key_" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < EXPECTED_INSERTIONS; i++) {
+            assertTrue(bloomFilter.mightContain("key_" + i));
+            if (bloomFilter.mightContain("other_key_" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("too many false positives: " + falsePositives, falsePositives < EXPECTED_INSERTIONS / 20);
+    }
+}
@@ -0,0 +1,196 @@
+package com.alex323glo.tutor.h2db.part_2.dao.cache;
+
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.model.response.Response;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CachingDAOTest {
+
+    private CountingDAO countingDAO;
+
+    @Before
+    public void setUp() throws Exception {
+        countingDAO = new CountingDAO();
+        for (int i = 0; i < 10; i++) {
+            countingDAO.create("key_" + i, "value_" + i);
+        }
+    }
+
+    @Test
+    public void readFromCache() throws Exception {
+        CachingDAO<String, String> cachingDAO = new CachingDAO<>(countingDAO, 4);
+
+        assertEquals("value_1", cachingDAO.read("key_1").getBody());
+        assertEquals("value_1", cachingDAO.read("key_1").getBody());
+
+        assertEquals(1, countingDAO.readCount);
+        assertEquals(1, cachingDAO.getHitCount());
+        assertEquals(1, cachingDAO.getMissCount());
+    }
+
+    @Test
+    public void readNonExistentWithKO() throws Exception {
+        CachingDAO<String, String> cachingDAO = new CachingDAO<>(countingDAO, 4);
+
+        assertEquals(ResponseStatus.KO, cachingDAO.read("unknown_key").getStatus());
+        assertEquals(0, cachingDAO.size());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+        CachingDAO<String, String> cachingDAO = new CachingDAO<>(countingDAO, 2);
+
+        cachingDAO.read("key_1");
+        cachingDAO.read("key_2");
+        cachingDAO.read("key_1");
+        cachingDAO.read("key_3");
+
+        assertEquals(2, cachingDAO.size());
+        assertEquals(1, cachingDAO.getEvictionCount());
+
+        countingDAO.readCount = 0;
+        cachingDAO.read("key_1");
+        assertEquals(0, countingDAO.readCount);
+        cachingDAO.read("key_2");
+        assertEquals(1, countingDAO.readCount);
+    }
+
+    @Test
+    public void evictByWeight() throws Exception {
+        CachingDAO<String, String> cachingDAO =
+                new CachingDAO<>(countingDAO, 10, (key, value) -> value.length(), EvictionPolicy.LRU);
+
+        cachingDAO.read("key_1");
+        cachingDAO.read("key_2");
+
+        assertEquals(1, cachingDAO.size());
+        assertEquals("value_2".length(), cachingDAO.getWeight());
+    }
+
+    @Test
+    public void tinyLFURejectsOneOffReads() throws Exception {
+        CachingDAO<String, String> cachingDAO =
+                new CachingDAO<>(countingDAO, 2, (key, value) -> 1, EvictionPolicy.TINY_LFU);
+
+        for (int i = 0; i < 5; i++) {
+            cachingDAO.read("key_1");
+            cachingDAO.read("key_2");
+        }
+        for (int i = 3; i < 10; i++) {
+            cachingDAO.read("key_" + i);
+        }
+
+        countingDAO.readCount = 0;
+        cachingDAO.read("key_1");
+        cachingDAO.read("key_2");
+        assertEquals(0, countingDAO.readCount);
+        assertTrue(cachingDAO.getRejectionCount() > 0);
+    }
+
+    @Test
+    public void tinyLFURejectionKeepsVictims() throws Exception {
+        CachingDAO<String, String> cachingDAO = new CachingDAO<>(countingDAO, 8,
+                (key, value) -> key.equals("key_3") ? 8 : 4, EvictionPolicy.TINY_LFU);
+
+        cachingDAO.read("key_1");
+        for (int i = 0; i < 5; i++) {
+            cachingDAO.read("key_2");
+        }
+        // key_3 is more popular than key_1, but less popular than key_2, which it would evict too
+        cachingDAO.read("key_3");
+        cachingDAO.read("key_3");
+
+        assertEquals(2, cachingDAO.getRejectionCount());
+        assertEquals(0, cachingDAO.getEvictionCount());
+        assertEquals(2, cachingDAO.size());
+        assertEquals(8, cachingDAO.getWeight());
+
+        countingDAO.readCount = 0;
+        cachingDAO.read("key_1");
+        cachingDAO.read("key_2");
+        assertEquals(0, countingDAO.readCount);
+    }
+
+    @Test
+    public void updateAndDeleteInvalidateCache() throws Exception {
+        CachingDAO<String, String> cachingDAO = new CachingDAO<>(countingDAO, 4);
+
+        cachingDAO.read("key_1");
+        cachingDAO.update("key_1", "new_value");
+        assertEquals("new_value", cachingDAO.read("key_1").getBody());
+
+        cachingDAO.delete("key_1");
+        assertEquals(ResponseStatus.KO, cachingDAO.read("key_1").getStatus());
+    }
+
+    @Test
+    public void readAllOnlyMissedKeys() throws Exception {
+        CachingDAO<String, String> cachingDAO = new CachingDAO<>(countingDAO, 4);
+        cachingDAO.read("key_1");
+        countingDAO.readCount = 0;
+
+        Map<String, Response<String>> responses =
+                cachingDAO.readAll(Arrays.asList("key_1", "key_2", "unknown_key"));
+
+        assertEquals(Arrays.asList("key_1", "key_2", "unknown_key"), Arrays.asList(responses.keySet().toArray()));
+        assertEquals("value_1", responses.get("key_1").getBody());
+        assertEquals("value_2", responses.get("key_2").getBody());
+        assertEquals(ResponseStatus.KO, responses.get("unknown_key").getStatus());
+        assertEquals(2, countingDAO.readCount);
+    }
+
+    /**
+     * Map-based DAO, which counts reads.
+     */
+    private static class CountingDAO implements DAO<String, String> {
+
+        private final Map<String, String> records = new HashMap<>();
+        private int readCount;
+
+        @Override
+        public Response create(String key, String value) {
+            return new Response(records.putIfAbsent(key, value) == null ? ResponseStatus.OK : ResponseStatus.KO);
+        }
+
+        @Override
+        public Response<String> read(String key) {
+            readCount++;
+            return toResponse(records.get(key));
+        }
+
+        @Override
+        public Response<String> update(String key, String value) {
+            return toResponse(records.containsKey(key) ? records.put(key, value) : null);
+        }
+
+        @Override
+        public Response<String> delete(String key) {
+            return toResponse(records.remove(key));
+        }
+
+        @Override
+        public Set<String> getKeyset() {
+            return new HashSet<>(records.keySet());
+        }
+
+        @Override
+        public Map<String, String> getAll() {
+            return new HashMap<>(records);
+        }
+
+        private static Response<String> toResponse(String value) {
+            return value == null ?
+                    new Response<String>(ResponseStatus.KO) : new Response<String>(ResponseStatus.OK, value);
+        }
+    }
+}
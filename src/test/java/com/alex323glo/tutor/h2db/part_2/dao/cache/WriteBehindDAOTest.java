@@ -0,0 +1,190 @@
+package com.alex323glo.tutor.h2db.part_2.dao.cache;
+
+import com.alex323glo.tutor.h2db.part_2.dao.H2AccessTokenDAO;
+import com.alex323glo.tutor.h2db.part_2.dao.memory.InMemoryDAO;
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.response.Response;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindDAOTest {
+
+    private ConnectionPool connectionPool;
+    private H2AccessTokenDAO accessTokenDAO;
+
+    private static final String DB_URL = "jdbc:h2:mem:write_behind_dao_test";
+    private static final String DB_TABLE_NAME = "access_tokens";
+    private static final String DB_USER = "user";
+    private static final String DB_PASS = "pass";
+    private static final int POOL_SIZE = 4;
+
+    private static final String TEST_USERNAME = "test_username";
+    private static final long NEVER_MILLIS = 3_600_000;
+
+    @Before
+    public void setUp() throws Exception {
+        connectionPool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, POOL_SIZE);
+        accessTokenDAO = new H2AccessTokenDAO(connectionPool, DB_TABLE_NAME);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connectionPool.close();
+    }
+
+    @Test
+    public void readPendingTokenBeforeFlush() throws Exception {
+        try (WriteBehindDAO<TokenId, AccessToken> writeBehindDAO =
+                     new WriteBehindDAO<>(accessTokenDAO, WriteBehindMode.ASYNC, NEVER_MILLIS, 1000)) {
+            AccessToken accessToken = newAccessToken();
+
+            assertEquals(ResponseStatus.OK, writeBehindDAO.create(accessToken.getToken(), accessToken).getStatus());
+            assertEquals(ResponseStatus.KO, writeBehindDAO.create(accessToken.getToken(), accessToken).getStatus());
+            assertEquals(accessToken, writeBehindDAO.read(accessToken.getToken()).getBody());
+            assertEquals(ResponseStatus.KO, accessTokenDAO.read(accessToken.getToken()).getStatus());
+
+            assertEquals(1, writeBehindDAO.flush());
+            assertEquals(0, writeBehindDAO.getPendingCount());
+            assertEquals(accessToken, accessTokenDAO.read(accessToken.getToken()).getBody());
+            assertEquals(ResponseStatus.KO, writeBehindDAO.create(accessToken.getToken(), accessToken).getStatus());
+        }
+    }
+
+    @Test
+    public void flushWhenBatchIsFull() throws Exception {
+        int maxBatchSize = 10;
+        try (WriteBehindDAO<TokenId, AccessToken> writeBehindDAO =
+                     new WriteBehindDAO<>(accessTokenDAO, WriteBehindMode.ASYNC, NEVER_MILLIS, maxBatchSize)) {
+            for (int i = 0; i < maxBatchSize; i++) {
+                AccessToken accessToken = newAccessToken();
+                writeBehindDAO.create(accessToken.getToken(), accessToken);
+            }
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (writeBehindDAO.getFlushedCount() < maxBatchSize && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(maxBatchSize, writeBehindDAO.getFlushedCount());
+            assertEquals(maxBatchSize, accessTokenDAO.count());
+        }
+    }
+
+    @Test
+    public void deletePendingToken() throws Exception {
+        try (WriteBehindDAO<TokenId, AccessToken> writeBehindDAO =
+                     new WriteBehindDAO<>(accessTokenDAO, WriteBehindMode.ASYNC, NEVER_MILLIS, 1000)) {
+            AccessToken accessToken = newAccessToken();
+            writeBehindDAO.create(accessToken.getToken(), accessToken);
+
+            assertEquals(accessToken, writeBehindDAO.delete(accessToken.getToken()).getBody());
+            assertEquals(ResponseStatus.KO, writeBehindDAO.read(accessToken.getToken()).getStatus());
+        }
+    }
+
+    @Test
+    public void groupCommitWaitsForSharedBatch() throws Exception {
+        int threadCount = 8;
+        int tokensPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try (WriteBehindDAO<TokenId, AccessToken> writeBehindDAO =
+                     new WriteBehindDAO<>(accessTokenDAO, WriteBehindMode.GROUP_COMMIT, 5, 1000)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < tokensPerThread; j++) {
+                        AccessToken accessToken = newAccessToken();
+                        assertEquals(ResponseStatus.OK,
+                                writeBehindDAO.create(accessToken.getToken(), accessToken).getStatus());
+                        // acknowledged token is already stored
+                        assertEquals(accessToken, accessTokenDAO.read(accessToken.getToken()).getBody());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            assertEquals(threadCount * tokensPerThread, accessTokenDAO.count());
+            assertTrue(writeBehindDAO.getFlushCount() < threadCount * tokensPerThread);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void groupCommitReportsFailedBatch() throws Exception {
+        InMemoryDAO<TokenId, AccessToken> failingDAO = new InMemoryDAO<TokenId, AccessToken>() {
+            @Override
+            public Map<TokenId, Response> createAll(Map<TokenId, AccessToken> records) throws DAOException {
+                throw new DAOException("test failure");
+            }
+        };
+        try (WriteBehindDAO<TokenId, AccessToken> writeBehindDAO =
+                     new WriteBehindDAO<>(failingDAO, WriteBehindMode.GROUP_COMMIT, 5, 1000)) {
+            AccessToken accessToken = newAccessToken();
+            try {
+                writeBehindDAO.create(accessToken.getToken(), accessToken);
+                fail("DAOException expected");
+            } catch (DAOException e) {
+                assertEquals(ResponseStatus.KO, writeBehindDAO.read(accessToken.getToken()).getStatus());
+                assertEquals(1, writeBehindDAO.getErrorCount());
+            }
+        }
+    }
+
+    @Test
+    public void asyncRejectsCreateWhenPendingRecordsCantBeWritten() throws Exception {
+        AtomicBoolean available = new AtomicBoolean();
+        InMemoryDAO<TokenId, AccessToken> failingDAO = new InMemoryDAO<TokenId, AccessToken>() {
+            @Override
+            public Map<TokenId, Response> createAll(Map<TokenId, AccessToken> records) throws DAOException {
+                if (!available.get()) {
+                    throw new DAOException("test failure");
+                }
+                return super.createAll(records);
+            }
+        };
+        int maxBatchSize = 2;
+        try (WriteBehindDAO<TokenId, AccessToken> writeBehindDAO =
+                     new WriteBehindDAO<>(failingDAO, WriteBehindMode.ASYNC, NEVER_MILLIS, maxBatchSize)) {
+            // up to 4 full batches are acknowledged without flush
+            for (int i = 0; i < 4 * maxBatchSize; i++) {
+                AccessToken accessToken = newAccessToken();
+                assertEquals(ResponseStatus.OK, writeBehindDAO.create(accessToken.getToken(), accessToken).getStatus());
+            }
+
+            AccessToken rejectedToken = newAccessToken();
+            try {
+                writeBehindDAO.create(rejectedToken.getToken(), rejectedToken);
+                fail("DAOException expected");
+            } catch (DAOException e) {
+                assertEquals(ResponseStatus.KO, writeBehindDAO.read(rejectedToken.getToken()).getStatus());
+                assertEquals(4 * maxBatchSize, writeBehindDAO.getPendingCount());
+            }
+            available.set(true);
+        }
+        assertEquals(4 * maxBatchSize, failingDAO.getKeyset().size());
+    }
+
+    private static AccessToken newAccessToken() {
+        return new AccessToken(TokenId.fromUUID(UUID.randomUUID()), TEST_USERNAME, UserType.USER);
+    }
+}
@@ -0,0 +1,177 @@
+package com.alex323glo.tutor.h2db.part_2.dao.memory;
+
+import com.alex323glo.tutor.h2db.part_2.controller.MainController;
+import com.alex323glo.tutor.h2db.part_2.controller.MainControllerImpl;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.User;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class InMemoryDAOTest {
+
+    private File directory;
+
+    private static final String TEST_USERNAME = "test_username";
+    private static final String TEST_PASSWORD = "test_password";
+    private static final UserType TEST_USERTYPE = UserType.USER;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("in_memory_dao_test").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void createReadUpdateDelete() throws Exception {
+        InMemoryDAO<String, User> userDAO = new InMemoryDAO<>();
+        User user = new User(TEST_USERNAME, TEST_PASSWORD, TEST_USERTYPE);
+        User newUser = new User(TEST_USERNAME, "new_password", TEST_USERTYPE);
+
+        assertEquals(ResponseStatus.OK, userDAO.create(TEST_USERNAME, user).getStatus());
+        assertEquals(ResponseStatus.KO, userDAO.create(TEST_USERNAME, user).getStatus());
+        assertEquals(user, userDAO.read(TEST_USERNAME).getBody());
+        assertEquals(user, userDAO.update(TEST_USERNAME, newUser).getBody());
+        assertEquals(newUser, userDAO.delete(TEST_USERNAME).getBody());
+        assertEquals(ResponseStatus.KO, userDAO.read(TEST_USERNAME).getStatus());
+        assertEquals(ResponseStatus.KO, userDAO.update(TEST_USERNAME, newUser).getStatus());
+    }
+
+    @Test
+    public void readPagesInKeyOrder() throws Exception {
+        InMemoryDAO<String, User> userDAO = new InMemoryDAO<>();
+        for (int i = 4; i >= 0; i--) {
+            userDAO.create(TEST_USERNAME + i, new User(TEST_USERNAME + i, TEST_PASSWORD, TEST_USERTYPE));
+        }
+
+        assertEquals(Arrays.asList(TEST_USERNAME + 0, TEST_USERNAME + 1),
+                new ArrayList<>(userDAO.readPage(null, 2).keySet()));
+        assertEquals(Arrays.asList(TEST_USERNAME + 2, TEST_USERNAME + 3),
+                new ArrayList<>(userDAO.readPage(TEST_USERNAME + 1, 2).keySet()));
+    }
+
+    @Test
+    public void recoverFromSnapshotAndLog() throws Exception {
+        try (InMemoryDAO<String, User> userDAO = new InMemoryDAO<>(directory, false)) {
+            for (int i = 0; i < 10; i++) {
+                userDAO.create(TEST_USERNAME + i, new User(TEST_USERNAME + i, TEST_PASSWORD, TEST_USERTYPE));
+            }
+            userDAO.snapshot();
+            userDAO.delete(TEST_USERNAME + 0);
+            userDAO.update(TEST_USERNAME + 1, new User(TEST_USERNAME + 1, "new_password", TEST_USERTYPE));
+        }
+
+        try (InMemoryDAO<String, User> userDAO = new InMemoryDAO<>(directory, false)) {
+            assertEquals(9, userDAO.size());
+            assertEquals(2, userDAO.getReplayedCount());
+            assertEquals(ResponseStatus.KO, userDAO.read(TEST_USERNAME + 0).getStatus());
+            assertEquals("new_password", userDAO.read(TEST_USERNAME + 1).getBody().getPassword());
+        }
+    }
+
+    @Test
+    public void recoverWritesConcurrentWithSnapshots() throws Exception {
+        int threadCount = 4;
+        int keyCount = 16;
+        Map<String, User> expectedRecords = new HashMap<>();
+        try (InMemoryDAO<String, User> userDAO = new InMemoryDAO<>(directory, false)) {
+            for (int i = 0; i < keyCount; i++) {
+                userDAO.create(TEST_USERNAME + i, new User(TEST_USERNAME + i, TEST_PASSWORD, TEST_USERTYPE));
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    for (int n = 0; n < 5000; n++) {
+                        String username = TEST_USERNAME + (n % keyCount);
+                        if (n % 7 == thread) {
+                            userDAO.delete(username);
+                            userDAO.create(username, new User(username, TEST_PASSWORD, TEST_USERTYPE));
+                        } else {
+                            userDAO.update(username, new User(username, thread + "_" + n, TEST_USERTYPE));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            // snapshots are taken while writes are in progress
+            executor.shutdown();
+            do {
+                userDAO.snapshot();
+            } while (!executor.isTerminated());
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            expectedRecords.putAll(userDAO.getAll());
+        }
+
+        try (InMemoryDAO<String, User> userDAO = new InMemoryDAO<>(directory, false)) {
+            assertEquals(expectedRecords, userDAO.getAll());
+        }
+    }
+
+    @Test
+    public void recoverFromLogWithTornTail() throws Exception {
+        try (InMemoryDAO<TokenId, AccessToken> accessTokenDAO = new InMemoryDAO<>(directory, true)) {
+            accessTokenDAO.create(new TokenId(0, 1), new AccessToken(new TokenId(0, 1), TEST_USERNAME, TEST_USERTYPE));
+            accessTokenDAO.create(new TokenId(0, 2), new AccessToken(new TokenId(0, 2), TEST_USERNAME, TEST_USERTYPE));
+        }
+
+        File log = directory.listFiles((dir, name) -> name.endsWith(".log"))[0];
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        try (InMemoryDAO<TokenId, AccessToken> accessTokenDAO = new InMemoryDAO<>(directory, true)) {
+            assertEquals(1, accessTokenDAO.size());
+            assertEquals(ResponseStatus.OK, accessTokenDAO.read(new TokenId(0, 1)).getStatus());
+
+            accessTokenDAO.create(new TokenId(0, 3), new AccessToken(new TokenId(0, 3), TEST_USERNAME, TEST_USERTYPE));
+        }
+
+        try (InMemoryDAO<TokenId, AccessToken> accessTokenDAO = new InMemoryDAO<>(directory, true)) {
+            assertEquals(2, accessTokenDAO.size());
+            assertEquals(ResponseStatus.OK, accessTokenDAO.read(new TokenId(0, 3)).getStatus());
+        }
+    }
+
+    @Test
+    public void useInMainController() throws Exception {
+        MainController mainController = new MainControllerImpl(new InMemoryDAO<>(), new InMemoryDAO<>());
+
+        String accessToken = mainController.register(TEST_USERNAME, TEST_PASSWORD);
+
+        assertNotNull(accessToken);
+        assertNotNull(mainController.login(TEST_USERNAME, TEST_PASSWORD));
+        assertTrue(mainController.logout(accessToken));
+    }
+}
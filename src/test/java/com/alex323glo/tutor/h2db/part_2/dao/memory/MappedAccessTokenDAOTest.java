@@ -0,0 +1,124 @@
+package com.alex323glo.tutor.h2db.part_2.dao.memory;
+
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MappedAccessTokenDAOTest {
+
+    private File file;
+
+    private static final TokenId TEST_TOKEN = TokenId.parse("0b9ef2c4-5c1a-4c55-9a43-1f0a7b3e2d61");
+    private static final String TEST_USERNAME = "test_username";
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("mapped_access_token_dao_test", ".bin");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void createReadUpdateDelete() throws Exception {
+        try (MappedAccessTokenDAO accessTokenDAO = new MappedAccessTokenDAO(file, 16)) {
+            AccessToken accessToken = new AccessToken(TEST_TOKEN, TEST_USERNAME, UserType.USER, 1000L);
+            AccessToken newAccessToken = new AccessToken(TEST_TOKEN, TEST_USERNAME, UserType.ROOT, 0L);
+
+            assertEquals(ResponseStatus.OK, accessTokenDAO.create(TEST_TOKEN, accessToken).getStatus());
+            assertEquals(ResponseStatus.KO, accessTokenDAO.create(TEST_TOKEN, accessToken).getStatus());
+            assertEquals(accessToken, accessTokenDAO.read(TEST_TOKEN).getBody());
+            assertEquals(accessToken, accessTokenDAO.update(TEST_TOKEN, newAccessToken).getBody());
+            assertEquals(newAccessToken, accessTokenDAO.delete(TEST_TOKEN).getBody());
+            assertEquals(ResponseStatus.KO, accessTokenDAO.read(TEST_TOKEN).getStatus());
+            assertEquals(ResponseStatus.KO, accessTokenDAO.delete(TEST_TOKEN).getStatus());
+            assertEquals(0, accessTokenDAO.size());
+        }
+    }
+
+    @Test
+    public void reopenFile() throws Exception {
+        try (MappedAccessTokenDAO accessTokenDAO = new MappedAccessTokenDAO(file, 1000)) {
+            for (int i = 0; i < 1000; i++) {
+                accessTokenDAO.create(new TokenId(0, i), new AccessToken(new TokenId(0, i), TEST_USERNAME, UserType.USER));
+            }
+            for (int i = 0; i < 1000; i += 2) {
+                accessTokenDAO.delete(new TokenId(0, i));
+            }
+        }
+
+        try (MappedAccessTokenDAO accessTokenDAO = new MappedAccessTokenDAO(file, 1)) {
+            assertEquals(500, accessTokenDAO.size());
+            assertEquals(500, accessTokenDAO.getKeyset().size());
+            assertEquals(ResponseStatus.KO, accessTokenDAO.read(new TokenId(0, 0)).getStatus());
+            assertEquals(new AccessToken(new TokenId(0, 1), TEST_USERNAME, UserType.USER),
+                    accessTokenDAO.read(new TokenId(0, 1)).getBody());
+        }
+    }
+
+    @Test
+    public void missStaysCheapAfterChurn() throws Exception {
+        try (MappedAccessTokenDAO accessTokenDAO = new MappedAccessTokenDAO(file, 1000)) {
+            Random random = new Random(42);
+            TokenId[] liveTokens = new TokenId[100];
+            for (int i = 0; i < 100_000; i++) {
+                int index = i % liveTokens.length;
+                if (liveTokens[index] != null) {
+                    assertEquals(ResponseStatus.OK, accessTokenDAO.delete(liveTokens[index]).getStatus());
+                }
+                liveTokens[index] = new TokenId(random.nextLong(), random.nextLong());
+                assertEquals(ResponseStatus.OK, accessTokenDAO.create(liveTokens[index],
+                        new AccessToken(liveTokens[index], TEST_USERNAME, UserType.USER)).getStatus());
+            }
+
+            assertEquals(liveTokens.length, accessTokenDAO.size());
+            assertTrue(accessTokenDAO.size() + accessTokenDAO.getTombstoneCount() <= accessTokenDAO.getMaxSize());
+            for (TokenId liveToken : liveTokens) {
+                assertEquals(ResponseStatus.OK, accessTokenDAO.read(liveToken).getStatus());
+            }
+
+            long totalProbeLength = 0;
+            for (int i = 0; i < 1000; i++) {
+                TokenId unknownToken = new TokenId(random.nextLong(), random.nextLong());
+                assertEquals(ResponseStatus.KO, accessTokenDAO.read(unknownToken).getStatus());
+                totalProbeLength += accessTokenDAO.getProbeLength(unknownToken);
+            }
+            // at load factor 0.75 expected probe length of miss is about 8.5 slots (of 2048)
+            assertTrue("average probe length of miss: " + totalProbeLength / 1000.0, totalProbeLength < 1000 * 32);
+        }
+    }
+
+    @Test
+    public void fullFile() throws Exception {
+        try (MappedAccessTokenDAO accessTokenDAO = new MappedAccessTokenDAO(file, 3)) {
+            int maxSize = accessTokenDAO.getMaxSize();
+            for (int i = 0; i < maxSize; i++) {
+                accessTokenDAO.create(new TokenId(0, i), new AccessToken(new TokenId(0, i), TEST_USERNAME, UserType.USER));
+            }
+            try {
+                accessTokenDAO.create(TEST_TOKEN, new AccessToken(TEST_TOKEN, TEST_USERNAME, UserType.USER));
+                fail("full file must reject new token");
+            } catch (DAOException e) {
+                // expected
+            }
+
+            // tombstone of deleted token is reused
+            accessTokenDAO.delete(new TokenId(0, 0));
+            assertEquals(ResponseStatus.OK, accessTokenDAO.create(TEST_TOKEN,
+                    new AccessToken(TEST_TOKEN, TEST_USERNAME, UserType.USER)).getStatus());
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.alex323glo.tutor.h2db.part_2.http;
+
+import com.alex323glo.tutor.h2db.part_2.controller.DAOExecutor;
+import com.alex323glo.tutor.h2db.part_2.controller.MainControllerImpl;
+import com.alex323glo.tutor.h2db.part_2.dao.memory.InMemoryDAO;
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.user.User;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.*;
+
+public class MainHttpServerTest {
+
+    private DAOExecutor executor;
+    private MainHttpServer server;
+
+    private static final String ROOT_USERNAME = "root_username";
+    private static final String TEST_USERNAME = "test_username";
+    private static final String TEST_PASSWORD = "test_password";
+
+    @Before
+    public void setUp() throws Exception {
+        InMemoryDAO<String, User> userDAO = new InMemoryDAO<>();
+        userDAO.create(ROOT_USERNAME, new User(ROOT_USERNAME, TEST_PASSWORD, UserType.ROOT));
+
+        executor = new DAOExecutor(2, 100);
+        server = new MainHttpServer(new MainControllerImpl(userDAO, new InMemoryDAO<>()),
+                new InetSocketAddress("127.0.0.1", 0), executor);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+        executor.close();
+    }
+
+    @Test
+    public void registerLoginLogout() throws Exception {
+        HttpURLConnection connection = post("/register", "username=" + TEST_USERNAME + "&password=" + TEST_PASSWORD, null);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("application/json; charset=utf-8", connection.getContentType());
+        assertNotNull(readJSON(connection).get("accessToken"));
+
+        assertEquals(409, post("/register", "username=" + TEST_USERNAME + "&password=" + TEST_PASSWORD, null)
+                .getResponseCode());
+        assertEquals(401, post("/login", "username=" + TEST_USERNAME + "&password=wrong", null).getResponseCode());
+
+        connection = post("/login", "username=" + TEST_USERNAME + "&password=" + TEST_PASSWORD, null);
+        assertEquals(200, connection.getResponseCode());
+        String accessToken = readJSON(connection).get("accessToken").getAsString();
+
+        // USER access token doesn't give access to user info
+        assertEquals(403, get("/user", accessToken).getResponseCode());
+        assertEquals(403, get("/users", accessToken).getResponseCode());
+
+        assertEquals(204, post("/logout", "", accessToken).getResponseCode());
+        assertEquals(401, post("/logout", "", accessToken).getResponseCode());
+    }
+
+    @Test
+    public void getUserInfoAndAllUsers() throws Exception {
+        HttpURLConnection connection = post("/login", "username=" + ROOT_USERNAME + "&password=" + TEST_PASSWORD, null);
+        String accessToken = readJSON(connection).get("accessToken").getAsString();
+        for (int i = 0; i < 10; i++) {
+            post("/register", "username=" + TEST_USERNAME + i + "&password=" + TEST_PASSWORD, null).getResponseCode();
+        }
+
+        connection = get("/user", accessToken);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals(ROOT_USERNAME, readJSON(connection).get("username").getAsString());
+
+        connection = get("/users", accessToken);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals(11, readJSON(connection).size());
+
+        connection = get("/users?pageSize=4", accessToken);
+        assertEquals(200, connection.getResponseCode());
+        assertEquals(4, readJSON(connection).getAsJsonObject("records").size());
+
+        assertEquals(400, get("/users", null).getResponseCode());
+        assertEquals(400, get("/users?pageSize=x", accessToken).getResponseCode());
+    }
+
+    @Test
+    public void abortUsersStreamOnFailure() throws Exception {
+        server.close();
+        InMemoryDAO<String, User> userDAO = new InMemoryDAO<String, User>() {
+            @Override
+            public void forEach(BiConsumer<? super String, ? super User> action) throws DAOException {
+                super.forEach(action);
+                throw new DAOException("test failure");
+            }
+        };
+        userDAO.create(ROOT_USERNAME, new User(ROOT_USERNAME, TEST_PASSWORD, UserType.ROOT));
+        server = new MainHttpServer(new MainControllerImpl(userDAO, new InMemoryDAO<>()),
+                new InetSocketAddress("127.0.0.1", 0), executor);
+        server.start();
+
+        HttpURLConnection connection = post("/login", "username=" + ROOT_USERNAME + "&password=" + TEST_PASSWORD, null);
+        String accessToken = readJSON(connection).get("accessToken").getAsString();
+
+        // 200 is already sent, when DAO fails, but body must not end normally
+        connection = get("/users", accessToken);
+        assertEquals(200, connection.getResponseCode());
+        try {
+            readJSON(connection);
+            fail("truncated body must not be read as complete one");
+        } catch (IOException e) {
+            assertEquals(1, server.getErrorCount());
+        }
+    }
+
+    @Test
+    public void badRequests() throws Exception {
+        assertEquals(400, post("/register", "password=" + TEST_PASSWORD, null).getResponseCode());
+        assertEquals(405, get("/login", null).getResponseCode());
+        assertEquals(404, get("/user/other", null).getResponseCode());
+
+        StringBuilder body = new StringBuilder("username=" + TEST_USERNAME + "&password=");
+        while (body.length() <= MainHttpServer.MAX_BODY_SIZE) {
+            body.append('x');
+        }
+        assertEquals(413, post("/register", body.toString(), null).getResponseCode());
+    }
+
+    @Test
+    public void rejectWhenExecutorIsFull() throws Exception {
+        server.close();
+        executor.close();
+        executor = new DAOExecutor(1, 1);
+        server = new MainHttpServer(new MainControllerImpl(new InMemoryDAO<>(), new InMemoryDAO<>()),
+                new InetSocketAddress("127.0.0.1", 0), executor);
+        server.start();
+
+        CountDownLatch blockLatch = new CountDownLatch(1);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        executor.execute(() -> {
+            startLatch.countDown();
+            try {
+                blockLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        startLatch.await();
+        executor.execute(() -> {
+        });
+
+        HttpURLConnection connection = post("/login", "username=" + TEST_USERNAME + "&password=" + TEST_PASSWORD, null);
+        assertEquals(503, connection.getResponseCode());
+        assertEquals("1", connection.getHeaderField("Retry-After"));
+        assertEquals(1, server.getRejectedCount());
+
+        blockLatch.countDown();
+    }
+
+    private HttpURLConnection get(String path, String accessToken) throws IOException {
+        HttpURLConnection connection = open(path, accessToken);
+        connection.setRequestMethod("GET");
+        return connection;
+    }
+
+    private HttpURLConnection post(String path, String form, String accessToken) throws IOException {
+        HttpURLConnection connection = open(path, accessToken);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(form.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+
+    private HttpURLConnection open(String path, String accessToken) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+                new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        if (accessToken != null) {
+            connection.setRequestProperty("Authorization", "Bearer " + accessToken);
+        }
+        return connection;
+    }
+
+    private static JsonObject readJSON(HttpURLConnection connection) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                body.write(buffer, 0, length);
+            }
+        }
+        return new Gson().fromJson(new String(body.toByteArray(), StandardCharsets.UTF_8), JsonObject.class);
+    }
+}
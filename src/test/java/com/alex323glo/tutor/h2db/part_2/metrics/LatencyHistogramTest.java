@@ -0,0 +1,61 @@
+package com.alex323glo.tutor.h2db.part_2.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverWholeRange() throws Exception {
+        long[] values = {0, 1, 63, 64, 65, 127, 128, 1_000, 1_000_000, 123_456_789_012L, Long.MAX_VALUE};
+        for (long value : values) {
+            long highest = LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucketIndex(value));
+            assertTrue(value + " > " + highest, highest >= value);
+            assertTrue(value + " << " + highest, highest - value <= value / 32);
+        }
+        assertEquals(LatencyHistogram.bucketIndex(64), LatencyHistogram.bucketIndex(65));
+        assertNotEquals(LatencyHistogram.bucketIndex(64), LatencyHistogram.bucketIndex(66));
+    }
+
+    @Test
+    public void percentiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMaxNanos());
+        assertEquals(5_000_500, histogram.getMeanNanos(), 0.001);
+        assertEquals(5_000_000, histogram.getPercentile(50), 5_000_000 / 32);
+        assertEquals(9_900_000, histogram.getPercentile(99), 9_900_000 / 32);
+        assertEquals(10_000_000, histogram.getPercentile(100));
+        assertEquals(1_000, histogram.getPercentile(0), 1_000 / 32);
+    }
+
+    @Test
+    public void concurrentRecording() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100_000; j++) {
+                    histogram.record(ThreadLocalRandom.current().nextLong(1_000_000));
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000, histogram.getCount());
+        assertTrue(histogram.getMaxNanos() < 1_000_000);
+        assertTrue(histogram.getPercentile(100) <= histogram.getMaxNanos());
+    }
+}
@@ -0,0 +1,122 @@
+package com.alex323glo.tutor.h2db.part_2.metrics;
+
+import com.alex323glo.tutor.h2db.part_2.controller.MainController;
+import com.alex323glo.tutor.h2db.part_2.controller.MainControllerImpl;
+import com.alex323glo.tutor.h2db.part_2.dao.DAO;
+import com.alex323glo.tutor.h2db.part_2.dao.H2AccessTokenDAO;
+import com.alex323glo.tutor.h2db.part_2.dao.H2UserDAO;
+import com.alex323glo.tutor.h2db.part_2.dao.memory.InMemoryDAO;
+import com.alex323glo.tutor.h2db.part_2.exception.AppException;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.User;
+import com.alex323glo.tutor.h2db.part_2.pool.ConnectionPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class MetricsDAOTest {
+
+    private static final String TEST_DB_URL = "jdbc:h2:mem:metrics_dao_test;DB_CLOSE_DELAY=-1";
+    private static final String TEST_DB_USER = "user";
+    private static final String TEST_DB_PASSWORD = "pass";
+
+    private static final String TEST_USERNAME = "test_username";
+    private static final String TEST_PASSWORD = "test_password";
+
+    private ConnectionPool connectionPool;
+    private MetricsRegistry registry;
+    private DAO<String, User> userDAO;
+    private MainController mainController;
+
+    @Before
+    public void setUp() throws Exception {
+        connectionPool = new ConnectionPool(TEST_DB_URL, TEST_DB_USER, TEST_DB_PASSWORD, 2);
+        registry = new MetricsRegistry();
+        userDAO = new MetricsDAO<>(new H2UserDAO(connectionPool, "metrics_users"), registry, "UserDAO");
+        DAO<TokenId, AccessToken> accessTokenDAO = new MetricsDAO<>(
+                new H2AccessTokenDAO(connectionPool, "metrics_access_tokens"), registry, "AccessTokenDAO");
+        mainController = new MetricsMainController(new MainControllerImpl(userDAO, accessTokenDAO), registry);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        registry.unregisterMBeans();
+        connectionPool.borrow().getConnection().createStatement().execute("DROP ALL OBJECTS");
+        connectionPool.close();
+    }
+
+    @Test
+    public void countsCallsAndRoundTrips() throws Exception {
+        assertEquals(ResponseStatus.OK, userDAO.create(TEST_USERNAME, new User(TEST_USERNAME, TEST_PASSWORD)).getStatus());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(ResponseStatus.OK, userDAO.read(TEST_USERNAME).getStatus());
+        }
+
+        MethodMetrics readMetrics = registry.get("UserDAO.read");
+        assertEquals(10, readMetrics.getCount());
+        assertEquals(0, readMetrics.getErrorCount());
+        assertEquals(10, readMetrics.getRoundTripCount());
+        assertTrue(readMetrics.getMaxMicros() > 0);
+        assertEquals(1, registry.get("UserDAO.create").getCount());
+        assertEquals(0, registry.get("UserDAO.delete").getCount());
+
+        String accessToken = mainController.login(TEST_USERNAME, TEST_PASSWORD);
+        assertNotNull(accessToken);
+        MethodMetrics loginMetrics = registry.get(MetricsMainController.NAME + ".login");
+        assertEquals(1, loginMetrics.getCount());
+        // read of user and insert of access token
+        assertEquals(registry.get("UserDAO.read").getRoundTripCount() - 10 +
+                registry.get("AccessTokenDAO.create").getRoundTripCount(), loginMetrics.getRoundTripCount());
+        assertTrue(loginMetrics.getRoundTripCount() >= 2);
+
+        try {
+            mainController.login(null, TEST_PASSWORD);
+            fail();
+        } catch (AppException e) {
+            assertEquals(1, loginMetrics.getErrorCount());
+        }
+        assertEquals(2, loginMetrics.getCount());
+    }
+
+    @Test
+    public void sampledLatency() throws Exception {
+        MetricsRegistry sampledRegistry = new MetricsRegistry(4);
+        DAO<String, User> sampledUserDAO = new MetricsDAO<>(new InMemoryDAO<String, User>(), sampledRegistry, "UserDAO");
+        for (int i = 0; i < 1000; i++) {
+            sampledUserDAO.read(TEST_USERNAME);
+        }
+
+        MethodMetrics readMetrics = sampledRegistry.get("UserDAO.read");
+        assertEquals(1000, readMetrics.getCount());
+        assertTrue(readMetrics.getLatency().getCount() > 100);
+        assertTrue(readMetrics.getLatency().getCount() < 500);
+    }
+
+    @Test
+    public void registerMBeansAndDump() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        registry.registerMBeans();
+        userDAO.read(TEST_USERNAME);
+        registry.get("Other.method");
+
+        ObjectName readName = registry.getObjectName(registry.get("UserDAO.read"));
+        assertEquals(1L, mBeanServer.getAttribute(readName, "Count"));
+        assertTrue(mBeanServer.isRegistered(registry.getObjectName(registry.get("Other.method"))));
+
+        String dump = registry.dump();
+        assertTrue(dump.startsWith("method"));
+        assertTrue(dump.contains("UserDAO.read"));
+        assertTrue(dump.contains("MainController.login"));
+
+        registry.unregisterMBeans();
+        assertFalse(mBeanServer.isRegistered(readName));
+    }
+}
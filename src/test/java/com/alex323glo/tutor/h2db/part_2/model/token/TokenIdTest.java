@@ -0,0 +1,31 @@
+package com.alex323glo.tutor.h2db.part_2.model.token;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class TokenIdTest {
+
+    private static final String TEST_TOKEN = "0b9ef2c4-5c1a-4c55-9a43-1f0a7b3e2d61";
+
+    @Test
+    public void parse() throws Exception {
+        TokenId tokenId = TokenId.parse(TEST_TOKEN);
+
+        assertEquals(UUID.fromString(TEST_TOKEN), tokenId.toUUID());
+        assertEquals(tokenId, TokenId.parse(TEST_TOKEN.toUpperCase()));
+        assertEquals(TEST_TOKEN, tokenId.toString());
+    }
+
+    @Test
+    public void parseWrongFormatWithNull() throws Exception {
+        assertNull(TokenId.parse(null));
+        assertNull(TokenId.parse(TEST_TOKEN.substring(1)));
+        assertNull(TokenId.parse(TEST_TOKEN.replace('-', '_')));
+        assertNull(TokenId.parse(TEST_TOKEN.replace('b', 'g')));
+        // full-width digit one (U+FF11) is a digit for Character.digit(), but not a hex digit of UUID
+        assertNull(TokenId.parse(TEST_TOKEN.replace('1', '\uFF11')));
+    }
+}
@@ -0,0 +1,151 @@
+package com.alex323glo.tutor.h2db.part_2.pool;
+
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+
+import static org.junit.Assert.*;
+
+public class ConnectionPoolTest {
+
+    private ConnectionPool connectionPool;
+
+    private static final String DB_URL = "jdbc:h2:mem:connection_pool_test;DB_CLOSE_DELAY=-1";
+    private static final String DB_USER = "user";
+    private static final String DB_PASS = "pass";
+    private static final int POOL_SIZE = 2;
+
+    @Before
+    public void setUp() throws Exception {
+        connectionPool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, POOL_SIZE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connectionPool.close();
+    }
+
+    @Test
+    public void borrowReusesReleasedConnection() throws Exception {
+        Connection firstConnection;
+        try (PooledConnection connection = connectionPool.borrow()) {
+            firstConnection = connection.getConnection();
+        }
+
+        try (PooledConnection connection = connectionPool.borrow()) {
+            assertSame(firstConnection, connection.getConnection());
+        }
+
+        assertEquals(1, connectionPool.getCreatedCount());
+        assertEquals(2, connectionPool.getBorrowCount());
+        assertEquals(0, connectionPool.getActiveCount());
+        assertEquals(1, connectionPool.getIdleCount());
+    }
+
+    @Test
+    public void borrowFromExhaustedPoolTimesOut() throws Exception {
+        connectionPool.setBorrowTimeoutMillis(50);
+        PooledConnection connection1 = connectionPool.borrow();
+        PooledConnection connection2 = connectionPool.borrow();
+
+        try {
+            connectionPool.borrow();
+            fail("pool of " + POOL_SIZE + " connections must be exhausted");
+        } catch (DAOException e) {
+            assertEquals(1, connectionPool.getTimeoutCount());
+        } finally {
+            connection1.close();
+            connection2.close();
+        }
+
+        try (PooledConnection connection = connectionPool.borrow()) {
+            assertNotNull(connection.getConnection());
+        }
+    }
+
+    @Test
+    public void closedConnectionIsDiscarded() throws Exception {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            connection.getConnection().close();
+        }
+
+        assertEquals(1, connectionPool.getDiscardedCount());
+        assertEquals(0, connectionPool.getIdleCount());
+
+        try (PooledConnection connection = connectionPool.borrow()) {
+            assertFalse(connection.getConnection().isClosed());
+        }
+        assertEquals(2, connectionPool.getCreatedCount());
+    }
+
+    @Test
+    public void idleConnectionIsValidatedOnBorrow() throws Exception {
+        connectionPool.setValidationIdleMillis(0);
+        Connection firstConnection;
+        try (PooledConnection connection = connectionPool.borrow()) {
+            firstConnection = connection.getConnection();
+        }
+        Thread.sleep(5);
+
+        try (PooledConnection connection = connectionPool.borrow()) {
+            assertSame(firstConnection, connection.getConnection());
+        }
+        assertEquals(0, connectionPool.getDiscardedCount());
+    }
+
+    @Test
+    public void releaseRollsBackOpenTransaction() throws Exception {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            connection.getConnection().setAutoCommit(false);
+        }
+
+        try (PooledConnection connection = connectionPool.borrow()) {
+            assertTrue(connection.getConnection().getAutoCommit());
+        }
+    }
+
+    @Test
+    public void staleCloseDoesNotReturnReborrowedConnection() throws Exception {
+        PooledConnection firstBorrow = connectionPool.borrow();
+        firstBorrow.close();
+
+        try (PooledConnection secondBorrow = connectionPool.borrow()) {
+            assertSame(firstBorrow.getConnection(), secondBorrow.getConnection());
+
+            firstBorrow.close();
+            assertEquals(1, connectionPool.getActiveCount());
+            assertEquals(0, connectionPool.getIdleCount());
+            try (PooledConnection thirdBorrow = connectionPool.borrow()) {
+                assertNotSame(secondBorrow.getConnection(), thirdBorrow.getConnection());
+            }
+        }
+        assertEquals(0, connectionPool.getActiveCount());
+        assertEquals(2, connectionPool.getIdleCount());
+    }
+
+    @Test
+    public void detectLeaks() throws Exception {
+        connectionPool.setLeakThresholdMillis(1);
+
+        try (PooledConnection connection = connectionPool.borrow()) {
+            // stack traces are recorded only on request
+            assertNull(connection.getBorrowStack());
+            Thread.sleep(20);
+
+            assertEquals(1, connectionPool.detectLeaks().size());
+            assertEquals(1, connectionPool.detectLeaks().size());
+            assertEquals(1, connectionPool.getLeakCount());
+        }
+
+        assertTrue(connectionPool.detectLeaks().isEmpty());
+
+        connectionPool.setRecordBorrowStacks(true);
+        try (PooledConnection connection = connectionPool.borrow()) {
+            assertNotNull(connection.getBorrowStack());
+        }
+    }
+
+}
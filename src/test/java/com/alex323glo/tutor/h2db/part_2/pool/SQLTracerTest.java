@@ -0,0 +1,113 @@
+package com.alex323glo.tutor.h2db.part_2.pool;
+
+import com.alex323glo.tutor.h2db.part_2.dao.H2UserDAO;
+import com.alex323glo.tutor.h2db.part_2.model.user.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SQLTracerTest {
+
+    private ConnectionPool connectionPool;
+    private SQLTracer sqlTracer;
+
+    private static final String DB_URL = "jdbc:h2:mem:sql_tracer_test;DB_CLOSE_DELAY=-1";
+    private static final String DB_USER = "user";
+    private static final String DB_PASS = "pass";
+    private static final int POOL_SIZE = 2;
+
+    private static final String TEST_TABLE_NAME = "traced_users";
+    private static final String TEST_USERNAME = "test_username";
+    private static final String TEST_PASSWORD = "test_password";
+
+    @Before
+    public void setUp() throws Exception {
+        connectionPool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, POOL_SIZE);
+        sqlTracer = new SQLTracer(0, 100);
+        connectionPool.setSQLTracer(sqlTracer);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try (PooledConnection connection = connectionPool.borrow();
+             Statement statement = connection.getConnection().createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connectionPool.close();
+    }
+
+    @Test
+    public void traceDAOStatements() throws Exception {
+        H2UserDAO userDAO = new H2UserDAO(connectionPool, TEST_TABLE_NAME);
+        sqlTracer.clearSlowQueries();
+        long statementCount = sqlTracer.getStatementCount();
+
+        userDAO.create(TEST_USERNAME, new User(TEST_USERNAME, TEST_PASSWORD));
+        assertEquals(TEST_USERNAME, userDAO.read(TEST_USERNAME).getBody().getUsername());
+
+        List<SlowQuery> slowQueries = sqlTracer.getSlowQueries();
+        assertEquals(2, slowQueries.size());
+        assertEquals(statementCount + 2, sqlTracer.getStatementCount());
+
+        SlowQuery insert = slowQueries.get(0);
+        assertTrue(insert.getSql().startsWith("INSERT"));
+        assertEquals(1, insert.getRows());
+        assertEquals(0, insert.getFetchNanos());
+
+        SlowQuery select = slowQueries.get(1);
+        assertTrue(select.getSql().startsWith("SELECT"));
+        assertEquals(1, select.getBindCount());
+        assertEquals(1, select.getRows());
+        assertTrue(select.getExecuteNanos() > 0);
+        assertEquals(Thread.currentThread().getName(), select.getThreadName());
+
+        assertTrue(sqlTracer.dump().contains(select.getSql()));
+    }
+
+    @Test
+    public void ringBufferKeepsLastSlowQueries() throws Exception {
+        sqlTracer = new SQLTracer(0, 3);
+        try (PooledConnection connection = connectionPool.borrow()) {
+            Statement statement = sqlTracer.wrap(connection.getConnection()).createStatement();
+            for (int i = 0; i < 5; i++) {
+                statement.execute("SELECT " + i);
+            }
+        }
+
+        List<SlowQuery> slowQueries = sqlTracer.getSlowQueries();
+        assertEquals(3, slowQueries.size());
+        assertEquals("SELECT 2", slowQueries.get(0).getSql());
+        assertEquals("SELECT 4", slowQueries.get(2).getSql());
+        assertEquals(5, sqlTracer.getSlowQueryCount());
+    }
+
+    @Test
+    public void fastStatementsAreOnlyCounted() throws Exception {
+        sqlTracer.setSlowThresholdMillis(60_000);
+        H2UserDAO userDAO = new H2UserDAO(connectionPool, TEST_TABLE_NAME);
+        userDAO.read(TEST_USERNAME);
+
+        assertTrue(sqlTracer.getStatementCount() > 0);
+        assertEquals(0, sqlTracer.getSlowQueryCount());
+        assertTrue(sqlTracer.getSlowQueries().isEmpty());
+
+    }
+
+    @Test
+    public void failedStatementIsTraced() throws Exception {
+        try (PooledConnection connection = connectionPool.borrow();
+             Statement statement = connection.getConnection().createStatement()) {
+            statement.executeQuery("SELECT * FROM missing_table");
+            fail("missing_table doesn't exist");
+        } catch (SQLException e) {
+            assertEquals(1, sqlTracer.getFailedCount());
+            assertTrue(sqlTracer.getSlowQueries().get(0).isFailed());
+        }
+    }
+}
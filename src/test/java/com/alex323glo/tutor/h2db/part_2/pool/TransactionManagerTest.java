@@ -0,0 +1,109 @@
+package com.alex323glo.tutor.h2db.part_2.pool;
+
+import com.alex323glo.tutor.h2db.part_2.dao.H2AccessTokenDAO;
+import com.alex323glo.tutor.h2db.part_2.dao.H2UserDAO;
+import com.alex323glo.tutor.h2db.part_2.exception.DAOException;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.User;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+
+import static org.junit.Assert.*;
+
+public class TransactionManagerTest {
+
+    private ConnectionPool connectionPool;
+    private H2UserDAO userDAO;
+    private H2AccessTokenDAO accessTokenDAO;
+    private TransactionManager transactionManager;
+
+    private static final String DB_URL = "jdbc:h2:mem:transaction_manager_test;DB_CLOSE_DELAY=-1";
+    private static final String DB_USER = "user";
+    private static final String DB_PASS = "pass";
+    private static final int POOL_SIZE = 2;
+
+    private static final String TEST_USERNAME = "test_username";
+    private static final String TEST_PASSWORD = "test_password";
+    private static final TokenId TEST_ACCESS_TOKEN = TokenId.parse("0b9ef2c4-5c1a-4c55-9a43-1f0a7b3e2d61");
+
+    @Before
+    public void setUp() throws Exception {
+        connectionPool = new ConnectionPool(DB_URL, DB_USER, DB_PASS, POOL_SIZE);
+        userDAO = new H2UserDAO(connectionPool, "users");
+        accessTokenDAO = new H2AccessTokenDAO(connectionPool, "access_tokens");
+        transactionManager = new TransactionManager(connectionPool);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try (PooledConnection connection = connectionPool.borrow()) {
+            connection.getConnection().createStatement().execute("DROP ALL OBJECTS");
+        }
+        connectionPool.close();
+    }
+
+    @Test
+    public void writesOfBothDAOsShareOneConnection() throws Exception {
+        Connection[] connections = new Connection[2];
+
+        transactionManager.execute(() -> {
+            try (PooledConnection connection = connectionPool.borrow()) {
+                connections[0] = connection.getConnection();
+            }
+            userDAO.create(TEST_USERNAME, new User(TEST_USERNAME, TEST_PASSWORD));
+            accessTokenDAO.create(TEST_ACCESS_TOKEN, new AccessToken(TEST_ACCESS_TOKEN, TEST_USERNAME, UserType.USER));
+            try (PooledConnection connection = connectionPool.borrow()) {
+                connections[1] = connection.getConnection();
+            }
+            assertTrue(connectionPool.isInTransaction());
+            return null;
+        });
+
+        assertSame(connections[0], connections[1]);
+        assertFalse(connectionPool.isInTransaction());
+        assertEquals(0, connectionPool.getActiveCount());
+        assertEquals(1, transactionManager.getCommitCount());
+        assertEquals(ResponseStatus.OK, userDAO.read(TEST_USERNAME).getStatus());
+        assertEquals(ResponseStatus.OK, accessTokenDAO.read(TEST_ACCESS_TOKEN).getStatus());
+    }
+
+    @Test
+    public void failedUnitOfWorkIsRolledBack() throws Exception {
+        try {
+            transactionManager.execute(() -> {
+                userDAO.create(TEST_USERNAME, new User(TEST_USERNAME, TEST_PASSWORD));
+                throw new DAOException("test failure");
+            });
+            fail("DAOException expected");
+        } catch (DAOException e) {
+            assertEquals("test failure", e.getMessage());
+        }
+
+        assertEquals(1, transactionManager.getRollbackCount());
+        assertEquals(ResponseStatus.KO, userDAO.read(TEST_USERNAME).getStatus());
+        try (PooledConnection connection = connectionPool.borrow()) {
+            assertTrue(connection.getConnection().getAutoCommit());
+        }
+    }
+
+    @Test
+    public void nestedUnitOfWorkJoinsOuterTransaction() throws Exception {
+        try {
+            transactionManager.execute(() -> {
+                transactionManager.execute(() ->
+                        userDAO.create(TEST_USERNAME, new User(TEST_USERNAME, TEST_PASSWORD)));
+                throw new DAOException("test failure");
+            });
+            fail("DAOException expected");
+        } catch (DAOException e) {
+            assertEquals(ResponseStatus.KO, userDAO.read(TEST_USERNAME).getStatus());
+        }
+        assertEquals(0, transactionManager.getCommitCount());
+    }
+}
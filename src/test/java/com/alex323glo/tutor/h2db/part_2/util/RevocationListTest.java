@@ -0,0 +1,36 @@
+package com.alex323glo.tutor.h2db.part_2.util;
+
+import com.alex323glo.tutor.h2db.part_2.dao.memory.InMemoryDAO;
+import com.alex323glo.tutor.h2db.part_2.model.response.ResponseStatus;
+import com.alex323glo.tutor.h2db.part_2.model.token.AccessToken;
+import com.alex323glo.tutor.h2db.part_2.model.token.TokenId;
+import com.alex323glo.tutor.h2db.part_2.model.user.UserType;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RevocationListTest {
+
+    private static final String TEST_USERNAME = "test_username";
+
+    @Test
+    public void pruneExpiredRevocations() throws Exception {
+        InMemoryDAO<TokenId, AccessToken> revokedTokenDAO = new InMemoryDAO<>();
+        long now = System.currentTimeMillis();
+        AccessToken expiredToken = new AccessToken(new TokenId(0, 1), TEST_USERNAME, UserType.USER, now - 1000);
+        AccessToken liveToken = new AccessToken(new TokenId(0, 2), TEST_USERNAME, UserType.USER, now + 60_000);
+        revokedTokenDAO.create(expiredToken.getToken(), expiredToken);
+
+        // expired revocation, stored by other instance, is deleted on load
+        RevocationList revocationList = new RevocationList(revokedTokenDAO, 0);
+        assertEquals(0, revocationList.size());
+        assertEquals(ResponseStatus.KO, revokedTokenDAO.read(expiredToken.getToken()).getStatus());
+
+        assertTrue(revocationList.revoke(expiredToken));
+        assertTrue(revocationList.revoke(liveToken));
+        assertFalse(revocationList.isRevoked(expiredToken));
+        assertTrue(revocationList.isRevoked(liveToken));
+        assertEquals(1, revocationList.size());
+        assertEquals(1, revokedTokenDAO.getKeyset().size());
+    }
+}